@@ -0,0 +1,444 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.apiimpl.rendercontext;
+
+import static grondag.canvas.apiimpl.mesh.MeshEncodingHelper.TOTAL_MESH_QUAD_STRIDE;
+import static grondag.canvas.apiimpl.mesh.MeshEncodingHelper.UV_EXTRA_PRECISION;
+import static grondag.canvas.apiimpl.mesh.MeshEncodingHelper.UV_PRECISE_UNIT_VALUE;
+
+import java.util.Arrays;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import grondag.canvas.apiimpl.mesh.MeshEncodingHelper;
+import grondag.canvas.apiimpl.mesh.MutableQuadViewImpl;
+import grondag.canvas.material.state.RenderMaterialImpl;
+import grondag.canvas.perf.ChunkRebuildCounters;
+import grondag.canvas.texture.MaterialIndexer;
+
+/**
+ * Merges coplanar single-block quads of a region into larger quads.
+ *
+ * <p>Models emit quads normally and lighting and color are applied as usual.
+ * Quads that cover exactly one axis-aligned block face with one copy of their sprite are
+ * held back instead of encoded.  Held quads are grouped by everything except their position
+ * within the plane: material, sprite, plane, normal and per-vertex color, light and AO. Cells
+ * in the same group are greedily merged into rectangles when the region is complete.
+ *
+ * <p>Merged quads use {@link MaterialIndexer#repeatingIndex(int)} so the shader tiles the sprite
+ * once per block, as the unmerged quads did.  Faces where color, light or AO vary between
+ * blocks end up in different groups and stay unmerged, so per-vertex values are never lost.
+ *
+ * <p>Used for flat fluid surfaces and for all block faces of distant regions.
+ * Faces of reduced-detail terrain are scaled by {@link #scaleBlockFace} instead.
+ */
+class FaceMerger {
+	/** Precise sprite coordinate spanning one block of a repeating quad. */
+	static final int PRECISE_TILE = UV_PRECISE_UNIT_VALUE / MaterialIndexer.REPEAT_UV_TILES;
+
+	/** Normalization of atlas coordinates isn't exact, so allow error of one encoded step. */
+	private static final int UV_TOLERANCE = 1 << UV_EXTRA_PRECISION;
+
+	/** Limits memory for regions with many different faces.  Quads beyond this are encoded normally. */
+	private static final int MAX_GROUPS = 4096;
+
+	private static final int AO_OFFSET = TOTAL_MESH_QUAD_STRIDE;
+	private static final int PLANE_OFFSET = AO_OFFSET + 4;
+	private static final int KEY_LENGTH = PLANE_OFFSET + 1;
+
+	/**
+	 * Planar axes for each normal axis, as x = 0, y = 1, z = 2.
+	 * Cells are indexed by the first axis within rows of the second.
+	 */
+	private static final int[] FIRST_AXIS = {2, 0, 0};
+	private static final int[] SECOND_AXIS = {1, 2, 1};
+
+	/** Mapping codes: which planar axis the U or V coordinate follows. */
+	private static final int FOLLOWS_FIRST = 0;
+	private static final int FOLLOWS_SECOND = 1;
+
+	private final ObjectArrayList<Group> groups = new ObjectArrayList<>();
+	private final Int2ObjectOpenHashMap<Group> groupsByHash = new Int2ObjectOpenHashMap<>();
+	private int groupCount;
+
+	private final int[] key = new int[KEY_LENGTH];
+	private final int[] rects = new int[256];
+	private final float[] cell = new float[3];
+	private final float[] pos = new float[3];
+
+	/** Geometry of the last quad tested by {@link #isMergeable(MutableQuadViewImpl)}. */
+	private int normalAxis, uAxis, vAxis;
+
+	void clear() {
+		for (int i = 0; i < groupCount; ++i) {
+			groups.get(i).clear();
+		}
+
+		groupsByHash.clear();
+		groupCount = 0;
+	}
+
+	boolean isEmpty() {
+		return groupCount == 0;
+	}
+
+	/**
+	 * Holds the quad for merging if it is eligible. Call after lighting and color are applied.
+	 *
+	 * @param x region-relative block position
+	 * @param y region-relative block position
+	 * @param z region-relative block position
+	 * @param isFluid true for fluid quads, reported separately
+	 * @return true if the quad was retained and should not be encoded
+	 */
+	boolean accept(MutableQuadViewImpl quad, int x, int y, int z, boolean isFluid) {
+		final RenderMaterialImpl mat = quad.material();
+
+		if (mat.discardsTexture || !mat.texture.isAtlas()) {
+			return false;
+		}
+
+		// ensure header state is current so it survives copy
+		quad.geometryFlags();
+		quad.packedFaceTanget();
+		quad.normalizeSpritesIfNeeded();
+
+		if (!isMergeable(quad)) {
+			return false;
+		}
+
+		final int normalAxis = this.normalAxis;
+		final int depth = normalAxis == 0 ? x : normalAxis == 1 ? y : z;
+		final int[] key = this.key;
+		System.arraycopy(quad.data(), quad.vertexStart() - MeshEncodingHelper.HEADER_STRIDE, key, 0, TOTAL_MESH_QUAD_STRIDE);
+
+		for (int i = 0; i < 4; ++i) {
+			key[AO_OFFSET + i] = Float.floatToRawIntBits(quad.ao[i]);
+		}
+
+		// normal axis is implied by vertex positions
+		key[PLANE_OFFSET] = depth | (isFluid ? 0x100 : 0);
+
+		final int hash = Arrays.hashCode(key);
+		Group group = groupsByHash.get(hash);
+
+		while (group != null && !Arrays.equals(group.key, key)) {
+			group = group.next;
+		}
+
+		if (group == null) {
+			if (groupCount == MAX_GROUPS) {
+				return false;
+			}
+
+			if (groupCount == groups.size()) {
+				groups.add(new Group());
+			}
+
+			group = groups.get(groupCount++);
+			System.arraycopy(key, 0, group.key, 0, KEY_LENGTH);
+			group.normalAxis = normalAxis;
+			group.depth = depth;
+			group.isFluid = isFluid;
+			group.uAxis = uAxis;
+			group.vAxis = vAxis;
+			group.next = groupsByHash.put(hash, group);
+		}
+
+		final int first = FIRST_AXIS[normalAxis];
+		final int second = SECOND_AXIS[normalAxis];
+		final int bit = 1 << (first == 0 ? x : z);
+		final int row = second == 1 ? y : z;
+
+		if ((group.rows[row] & bit) != 0) {
+			// identical quad already held for this block
+			return false;
+		}
+
+		group.rows[row] |= bit;
+		++group.cellCount;
+		return true;
+	}
+
+	/**
+	 * True if the quad is axis-aligned, spans exactly one block face, and the sprite
+	 * covers it exactly once, possibly flipped or rotated. Captures geometry for {@link #accept}.
+	 */
+	private boolean isMergeable(MutableQuadViewImpl quad) {
+		final int normalAxis;
+
+		if (isConstant(quad, 0)) {
+			normalAxis = 0;
+		} else if (isConstant(quad, 1)) {
+			normalAxis = 1;
+		} else if (isConstant(quad, 2)) {
+			normalAxis = 2;
+		} else {
+			return false;
+		}
+
+		final int first = FIRST_AXIS[normalAxis];
+		final int second = SECOND_AXIS[normalAxis];
+		int corners = 0;
+		int firstBits = 0, secondBits = 0, uBits = 0, vBits = 0;
+
+		for (int i = 0; i < 4; ++i) {
+			final int c0 = unitBit(quad.posByIndex(i, first));
+			final int c1 = unitBit(quad.posByIndex(i, second));
+			final int cu = unitBit(quad.spritePreciseU(i));
+			final int cv = unitBit(quad.spritePreciseV(i));
+
+			if ((c0 | c1 | cu | cv) < 0) {
+				return false;
+			}
+
+			corners |= 1 << (c0 | (c1 << 1));
+			firstBits |= c0 << i;
+			secondBits |= c1 << i;
+			uBits |= cu << i;
+			vBits |= cv << i;
+		}
+
+		if (corners != 0b1111) {
+			return false;
+		}
+
+		this.normalAxis = normalAxis;
+
+		if (follows(uBits, firstBits) && follows(vBits, secondBits)) {
+			uAxis = FOLLOWS_FIRST;
+			vAxis = FOLLOWS_SECOND;
+			return true;
+		} else if (follows(uBits, secondBits) && follows(vBits, firstBits)) {
+			uAxis = FOLLOWS_SECOND;
+			vAxis = FOLLOWS_FIRST;
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean isConstant(MutableQuadViewImpl quad, int axis) {
+		final float value = quad.posByIndex(0, axis);
+		return quad.posByIndex(1, axis) == value && quad.posByIndex(2, axis) == value && quad.posByIndex(3, axis) == value;
+	}
+
+	/** True if coordinate bits equal position bits, or their complement. */
+	private static boolean follows(int coordinateBits, int positionBits) {
+		return coordinateBits == positionBits || coordinateBits == (~positionBits & 0b1111);
+	}
+
+	private static int unitBit(float position) {
+		return position == 0f ? 0 : position == 1f ? 1 : -1;
+	}
+
+	private static int unitBit(int preciseSprite) {
+		if (preciseSprite <= UV_TOLERANCE && preciseSprite >= -UV_TOLERANCE) {
+			return 0;
+		} else if (Math.abs(preciseSprite - UV_PRECISE_UNIT_VALUE) <= UV_TOLERANCE) {
+			return 1;
+		} else {
+			return -1;
+		}
+	}
+
+	/**
+	 * Merges and encodes all held quads.  Context must have an identity transform
+	 * because positions are written relative to the region origin.
+	 */
+	void emit(MutableQuadViewImpl quad, TerrainRenderContext context) {
+		final int[] rects = this.rects;
+		final float[] cell = this.cell;
+		final float[] pos = this.pos;
+		int fluidCellCount = 0, fluidQuadCount = 0, blockCellCount = 0, blockQuadCount = 0;
+
+		for (int g = 0; g < groupCount; ++g) {
+			final Group group = groups.get(g);
+			final int rectCount = mergeRectangles(group.rows, rects);
+			final int first = FIRST_AXIS[group.normalAxis];
+			final int second = SECOND_AXIS[group.normalAxis];
+
+			if (group.isFluid) {
+				fluidCellCount += group.cellCount;
+				fluidQuadCount += rectCount;
+			} else {
+				blockCellCount += group.cellCount;
+				blockQuadCount += rectCount;
+			}
+
+			for (int r = 0; r < rectCount; ++r) {
+				final int rect = rects[r];
+				final int width = rectWidth(rect);
+				final int height = rectHeight(rect);
+				final boolean isRepeating = width > 1 || height > 1;
+
+				quad.copyAndLoad(group.key, 0, TOTAL_MESH_QUAD_STRIDE);
+				quad.setSpriteNormalized(true);
+
+				for (int i = 0; i < 4; ++i) {
+					quad.ao[i] = Float.intBitsToFloat(group.key[AO_OFFSET + i]);
+				}
+
+				for (int i = 0; i < 4; ++i) {
+					cell[0] = quad.x(i);
+					cell[1] = quad.y(i);
+					cell[2] = quad.z(i);
+
+					pos[group.normalAxis] = group.depth + cell[group.normalAxis];
+					pos[first] = rectFirst(rect) + cell[first] * width;
+					pos[second] = rectSecond(rect) + cell[second] * height;
+
+					if (isRepeating) {
+						final int u = mergedSprite(quad.spritePreciseU(i), group.uAxis == FOLLOWS_FIRST ? width : height);
+						final int v = mergedSprite(quad.spritePreciseV(i), group.vAxis == FOLLOWS_FIRST ? width : height);
+						quad.spritePrecise(i, u, v);
+					}
+
+					quad.pos(i, pos[0], pos[1], pos[2]);
+				}
+
+				context.encodeMergedQuad(quad, isRepeating);
+			}
+		}
+
+		if (ChunkRebuildCounters.ENABLED) {
+			if (fluidCellCount > 0) {
+				ChunkRebuildCounters.countFluidSurfaces(fluidCellCount, fluidQuadCount);
+			}
+
+			if (blockCellCount > 0) {
+				ChunkRebuildCounters.countMergedFaces(blockCellCount, blockQuadCount);
+			}
+		}
+
+		clear();
+	}
+
+	/**
+	 * Scales a quad that covers exactly one block face with one copy of its sprite so it
+	 * covers the same face of a cube {@code scale} blocks wide, tiling the sprite once per block.
+	 * Positions are relative to the region origin, same as merged quads.
+	 *
+	 * @param x region-relative origin of the cube
+	 * @param y region-relative origin of the cube
+	 * @param z region-relative origin of the cube
+	 * @return false, with positions unchanged, if the quad isn't a single full block face
+	 */
+	static boolean scaleBlockFace(MutableQuadViewImpl quad, int x, int y, int z, int scale) {
+		final RenderMaterialImpl mat = quad.material();
+
+		if (mat.discardsTexture || !mat.texture.isAtlas()) {
+			return false;
+		}
+
+		quad.normalizeSpritesIfNeeded();
+
+		for (int i = 0; i < 4; ++i) {
+			if ((unitBit(quad.x(i)) | unitBit(quad.y(i)) | unitBit(quad.z(i)) | unitBit(quad.spritePreciseU(i)) | unitBit(quad.spritePreciseV(i))) < 0) {
+				return false;
+			}
+		}
+
+		for (int i = 0; i < 4; ++i) {
+			quad.spritePrecise(i, mergedSprite(quad.spritePreciseU(i), scale), mergedSprite(quad.spritePreciseV(i), scale));
+			quad.pos(i, x + quad.x(i) * scale, y + quad.y(i) * scale, z + quad.z(i) * scale);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Precise sprite coordinate for a vertex of a repeating quad.
+	 *
+	 * @param cellSprite precise coordinate of the same vertex in the single-block quad
+	 * @param extent blocks spanned by the merged quad along the axis this coordinate follows
+	 */
+	static int mergedSprite(int cellSprite, int extent) {
+		return unitBit(cellSprite) == 0 ? 0 : extent * PRECISE_TILE;
+	}
+
+	/**
+	 * Greedily covers set cells with rectangles, consuming the input.
+	 * Rectangles are disjoint and cover exactly the set cells.
+	 *
+	 * @param rows  16 bits of cells per row, first axis in the low bits, indexed by second axis
+	 * @param rects receives packed rectangles, must hold at least 256
+	 * @return number of rectangles
+	 */
+	static int mergeRectangles(int[] rows, int[] rects) {
+		int count = 0;
+
+		for (int r = 0; r < 16; ++r) {
+			int row = rows[r];
+
+			while (row != 0) {
+				final int first = Integer.numberOfTrailingZeros(row);
+				final int width = Integer.numberOfTrailingZeros(~(row >>> first));
+				final int mask = ((1 << width) - 1) << first;
+				int height = 1;
+
+				while (r + height < 16 && (rows[r + height] & mask) == mask) {
+					rows[r + height] &= ~mask;
+					++height;
+				}
+
+				row &= ~mask;
+				rects[count++] = first | (r << 4) | ((width - 1) << 8) | ((height - 1) << 12);
+			}
+
+			rows[r] = 0;
+		}
+
+		return count;
+	}
+
+	static int rectFirst(int rect) {
+		return rect & 0xF;
+	}
+
+	static int rectSecond(int rect) {
+		return (rect >> 4) & 0xF;
+	}
+
+	static int rectWidth(int rect) {
+		return ((rect >> 8) & 0xF) + 1;
+	}
+
+	static int rectHeight(int rect) {
+		return ((rect >> 12) & 0xF) + 1;
+	}
+
+	private static class Group {
+		final int[] key = new int[KEY_LENGTH];
+		final int[] rows = new int[16];
+		/** Next group with the same hash. */
+		Group next;
+		int normalAxis;
+		int depth;
+		boolean isFluid;
+		int uAxis;
+		int vAxis;
+		int cellCount;
+
+		void clear() {
+			Arrays.fill(rows, 0);
+			cellCount = 0;
+			next = null;
+		}
+	}
+}
@@ -0,0 +1,228 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.apiimpl.rendercontext;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+
+import net.minecraft.client.render.model.BakedModel;
+import net.minecraft.item.Item;
+
+import grondag.canvas.buffer.input.CollectorCapture;
+import grondag.canvas.buffer.input.VertexCollectorList;
+import grondag.canvas.mixinterface.Matrix4fExt;
+
+/**
+ * Encoded output of item models drawn in GUI screens, replayed instead of emitting and
+ * encoding the model again. One instance per item render context.
+ *
+ * <p>Entries are keyed by model and also match item, glint, light, overlay and the linear part of
+ * the model matrix. Matrices that differ only by translation replay with an offset.  Tint colors
+ * looked up during capture are looked up again on replay and any change forces a new capture,
+ * so stack data that changes color, like potion contents or dye, is handled.
+ *
+ * <p>Only vanilla-adapter models are cached. Other models can render dynamically. Entries are
+ * dropped on renderer reload because models, sprites and block layers can change then.
+ */
+final class GuiItemMeshCache {
+	/** All entries are dropped when more than this many models are cached. */
+	private static final int MAX_ENTRIES = 2048;
+
+	private final Reference2ObjectOpenHashMap<BakedModel, Entry> entries = new Reference2ObjectOpenHashMap<>();
+	private int entryCount;
+
+	private boolean isCapturing;
+	private int[] captureTints = new int[8];
+	private int captureTintCount;
+	private final BitSet priorAnimationBits = new BitSet();
+
+	private int hitCount;
+	private int captureCount;
+	private int bypassCount;
+
+	/**
+	 * Appends cached output to the collectors if a current entry exists.
+	 * When false, output should be captured with {@link #beginCapture(VertexCollectorList, BitSet)}.
+	 */
+	boolean replay(ItemRenderContext context, BakedModel model, Item item, boolean hasGlint, boolean leftHanded, int light, int overlay, Matrix4fExt matrix, VertexCollectorList collectors, BitSet animationBits) {
+		Entry entry = entries.get(model);
+
+		while (entry != null) {
+			if (entry.matches(item, hasGlint, leftHanded, light, overlay, matrix) && entry.tintsMatch(context)) {
+				collectors.append(entry.capture, matrix.a03() - entry.x, matrix.a13() - entry.y, matrix.a23() - entry.z);
+
+				for (final int i : entry.animationIndices) {
+					animationBits.set(i);
+				}
+
+				++hitCount;
+				return true;
+			}
+
+			entry = entry.next;
+		}
+
+		return false;
+	}
+
+	void beginCapture(VertexCollectorList collectors, BitSet animationBits) {
+		collectors.mark();
+		captureTintCount = 0;
+		priorAnimationBits.clear();
+		priorAnimationBits.or(animationBits);
+		animationBits.clear();
+		isCapturing = true;
+	}
+
+	/** Records a tint color looked up during capture. */
+	void recordTint(int colorIndex, int color) {
+		if (!isCapturing) {
+			return;
+		}
+
+		final int[] tints = captureTints;
+		final int limit = captureTintCount * 2;
+
+		for (int i = 0; i < limit; i += 2) {
+			if (tints[i] == colorIndex) {
+				return;
+			}
+		}
+
+		if (limit + 2 > tints.length) {
+			captureTints = Arrays.copyOf(tints, tints.length * 2);
+		}
+
+		captureTints[limit] = colorIndex;
+		captureTints[limit + 1] = color;
+		++captureTintCount;
+	}
+
+	void endCapture(BakedModel model, Item item, boolean hasGlint, boolean leftHanded, int light, int overlay, Matrix4fExt matrix, VertexCollectorList collectors, BitSet animationBits) {
+		isCapturing = false;
+		final int[] animationIndices = animationBits.stream().toArray();
+		animationBits.or(priorAnimationBits);
+
+		final CollectorCapture capture = new CollectorCapture();
+
+		if (!collectors.copySinceMark(capture)) {
+			++bypassCount;
+			return;
+		}
+
+		capture.trim();
+
+		if (entryCount >= MAX_ENTRIES) {
+			clear();
+		}
+
+		final Entry entry = new Entry(item, hasGlint, leftHanded, light, overlay, matrix, Arrays.copyOf(captureTints, captureTintCount * 2), animationIndices, capture);
+		Entry prior = entries.get(model);
+
+		// replace a stale entry for the same item, which usually means tint colors changed
+		if (prior != null && prior.matches(item, hasGlint, leftHanded, light, overlay, matrix)) {
+			prior = prior.next;
+		} else {
+			++entryCount;
+		}
+
+		entry.next = prior;
+		entries.put(model, entry);
+		++captureCount;
+	}
+
+	/** Counts output that was neither replayed nor captured. */
+	void bypass() {
+		++bypassCount;
+	}
+
+	void clear() {
+		entries.clear();
+		entryCount = 0;
+	}
+
+	/** Counts are reset after each call. */
+	String debugSummary() {
+		final int total = hitCount + captureCount + bypassCount;
+		final String result = String.format("GUI item cache: %d%% hit  %d/%d  entries: %d", total == 0 ? 0 : hitCount * 100 / total, hitCount, total, entryCount);
+		hitCount = 0;
+		captureCount = 0;
+		bypassCount = 0;
+		return result;
+	}
+
+	private static class Entry {
+		private final Item item;
+		private final boolean hasGlint;
+		private final boolean leftHanded;
+		private final int light;
+		private final int overlay;
+		private final float a00, a01, a02, a10, a11, a12, a20, a21, a22;
+		private final float x, y, z;
+
+		/** Color index and color of each tint looked up during capture. */
+		private final int[] tints;
+		private final int[] animationIndices;
+		private final CollectorCapture capture;
+		private Entry next;
+
+		private Entry(Item item, boolean hasGlint, boolean leftHanded, int light, int overlay, Matrix4fExt matrix, int[] tints, int[] animationIndices, CollectorCapture capture) {
+			this.item = item;
+			this.hasGlint = hasGlint;
+			this.leftHanded = leftHanded;
+			this.light = light;
+			this.overlay = overlay;
+			a00 = matrix.a00();
+			a01 = matrix.a01();
+			a02 = matrix.a02();
+			a10 = matrix.a10();
+			a11 = matrix.a11();
+			a12 = matrix.a12();
+			a20 = matrix.a20();
+			a21 = matrix.a21();
+			a22 = matrix.a22();
+			x = matrix.a03();
+			y = matrix.a13();
+			z = matrix.a23();
+			this.tints = tints;
+			this.animationIndices = animationIndices;
+			this.capture = capture;
+		}
+
+		private boolean matches(Item item, boolean hasGlint, boolean leftHanded, int light, int overlay, Matrix4fExt matrix) {
+			return this.item == item && this.hasGlint == hasGlint && this.leftHanded == leftHanded && this.light == light && this.overlay == overlay
+					&& a00 == matrix.a00() && a01 == matrix.a01() && a02 == matrix.a02()
+					&& a10 == matrix.a10() && a11 == matrix.a11() && a12 == matrix.a12()
+					&& a20 == matrix.a20() && a21 == matrix.a21() && a22 == matrix.a22();
+		}
+
+		private boolean tintsMatch(ItemRenderContext context) {
+			final int[] tints = this.tints;
+			final int limit = tints.length;
+
+			for (int i = 0; i < limit; i += 2) {
+				if (context.computeTint(tints[i]) != tints[i + 1]) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+	}
+}
@@ -40,6 +40,7 @@ import net.minecraft.client.render.model.json.ModelTransformation.Mode;
 import net.minecraft.client.util.ModelIdentifier;
 import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.item.BlockItem;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.item.Items;
 
@@ -50,6 +51,7 @@ import net.fabricmc.fabric.api.renderer.v1.render.RenderContext;
 import grondag.canvas.apiimpl.mesh.MutableQuadViewImpl;
 import grondag.canvas.buffer.format.QuadEncoders;
 import grondag.canvas.buffer.input.CanvasImmediate;
+import grondag.canvas.config.Configurator;
 import grondag.canvas.material.state.MaterialFinderImpl;
 import grondag.canvas.material.state.RenderContextState;
 import grondag.canvas.material.state.RenderContextState.GuiMode;
@@ -57,6 +59,7 @@ import grondag.canvas.mixin.AccessMultiPhaseParameters;
 import grondag.canvas.mixin.AccessTexture;
 import grondag.canvas.mixinterface.ItemRendererExt;
 import grondag.canvas.mixinterface.Matrix3fExt;
+import grondag.canvas.mixinterface.Matrix4fExt;
 import grondag.canvas.mixinterface.MinecraftClientExt;
 import grondag.canvas.mixinterface.MultiPhaseExt;
 import grondag.canvas.mixinterface.ShaderExt;
@@ -91,6 +94,7 @@ public class ItemRenderContext extends AbstractRenderContext implements RenderCo
 
 	private int lightmap;
 	private ItemStack itemStack;
+	private final GuiItemMeshCache guiMeshCache = new GuiItemMeshCache();
 
 	public ItemRenderContext(ItemColors colorMap) {
 		super("ItemRenderContext");
@@ -124,7 +128,26 @@ public class ItemRenderContext extends AbstractRenderContext implements RenderCo
 
 	@Override
 	public int indexedColor(int colorIndex) {
-		return colorIndex == -1 ? -1 : (colorMap.getColor(itemStack, colorIndex) | 0xFF000000);
+		if (colorIndex == -1) {
+			return -1;
+		}
+
+		final int result = computeTint(colorIndex);
+		guiMeshCache.recordTint(colorIndex, result);
+		return result;
+	}
+
+	int computeTint(int colorIndex) {
+		return colorMap.getColor(itemStack, colorIndex) | 0xFF000000;
+	}
+
+	/** Call when item models or block layers may have changed. */
+	public void clearGuiItemCache() {
+		guiMeshCache.clear();
+	}
+
+	public String guiItemCacheDebugSummary() {
+		return guiMeshCache.debugSummary();
 	}
 
 	@Override
@@ -210,12 +233,35 @@ public class ItemRenderContext extends AbstractRenderContext implements RenderCo
 				defaultConsumer = vertexConsumers.getBuffer(defaultRenderLayer);
 			}
 
-			((FabricBakedModel) model).emitItemQuads(itemStack, randomSupplier, this);
+			if (isGui && collectors != null && Configurator.cacheGuiItems) {
+				renderGuiItem(model, leftHanded);
+			} else {
+				((FabricBakedModel) model).emitItemQuads(itemStack, randomSupplier, this);
+			}
 		}
 
 		matrices.pop();
 	}
 
+	private void renderGuiItem(BakedModel model, boolean leftHanded) {
+		final FabricBakedModel fabricModel = (FabricBakedModel) model;
+
+		if (!fabricModel.isVanillaAdapter()) {
+			guiMeshCache.bypass();
+			fabricModel.emitItemQuads(itemStack, randomSupplier, this);
+			return;
+		}
+
+		final Item item = itemStack.getItem();
+		final Matrix4fExt matrixExt = (Matrix4fExt) (Object) matrix;
+
+		if (!guiMeshCache.replay(this, model, item, hasGlint, leftHanded, lightmap, overlay, matrixExt, collectors, animationBits)) {
+			guiMeshCache.beginCapture(collectors, animationBits);
+			fabricModel.emitItemQuads(itemStack, randomSupplier, this);
+			guiMeshCache.endCapture(model, item, hasGlint, leftHanded, lightmap, overlay, matrixExt, collectors, animationBits);
+		}
+	}
+
 	@Override
 	protected void adjustMaterial() {
 		final MaterialFinderImpl finder = this.finder;
@@ -0,0 +1,170 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.apiimpl.rendercontext;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.render.model.BakedModel;
+import net.minecraft.client.render.model.BasicBakedModel;
+
+import net.fabricmc.fabric.api.renderer.v1.model.FabricBakedModel;
+
+import grondag.canvas.apiimpl.mesh.MeshEncodingHelper;
+import grondag.canvas.apiimpl.mesh.MutableQuadViewImpl;
+
+/**
+ * Quad templates for block models that always emit the same quads for a given block state.
+ *
+ * <p>Templates hold every quad the model emits, with materials already mapped and resolved
+ * and geometry, tangents and sprites already computed. Quads with a cull face are kept and
+ * culled at placement, so one template serves all cull masks.  Lighting, AO, tint and
+ * position are applied per placement by the normal encoding path.
+ *
+ * <p>Only vanilla basic models without a model offset are eligible. These ignore the random
+ * supplier and render attachments, so output depends only on the block state.
+ * Cleared on renderer reload because block layers, AO and models can change then.
+ */
+public abstract class StaticBlockModelCache {
+	/** Assigned to block states with models that can't be cached. */
+	static final Template NOT_STATIC = new Template(new int[0], 0, new int[0]);
+
+	private static final ConcurrentHashMap<BlockState, Template> TEMPLATES = new ConcurrentHashMap<>();
+
+	/**
+	 * Cached template, {@link #NOT_STATIC} if the model can never be cached,
+	 * or null if the model is eligible but hasn't been captured yet.
+	 */
+	static @Nullable Template get(BlockState blockState, FabricBakedModel model) {
+		final Template result = TEMPLATES.get(blockState);
+
+		if (result != null) {
+			return result;
+		}
+
+		if (isStatic(blockState, model)) {
+			return null;
+		}
+
+		TEMPLATES.put(blockState, NOT_STATIC);
+		return NOT_STATIC;
+	}
+
+	static void put(BlockState blockState, Template template) {
+		TEMPLATES.put(blockState, template);
+	}
+
+	public static void clear() {
+		TEMPLATES.clear();
+	}
+
+	private static boolean isStatic(BlockState blockState, FabricBakedModel model) {
+		return ((BakedModel) model).getClass() == BasicBakedModel.class
+				&& model.isVanillaAdapter()
+				&& blockState.getBlock().getOffsetType() == Block.OffsetType.NONE;
+	}
+
+	static final class Template {
+		/** Quads in mesh encoding. */
+		final int[] quadData;
+		final int quadCount;
+
+		/** Animated sprites referenced by the model, for tracking animation visibility. */
+		final int[] animationIndices;
+
+		private Template(int[] quadData, int quadCount, int[] animationIndices) {
+			this.quadData = quadData;
+			this.quadCount = quadCount;
+			this.animationIndices = animationIndices;
+		}
+
+		/**
+		 * Emits all quads that pass the context cull test.
+		 */
+		void render(AbstractRenderContext context, MutableQuadViewImpl quad) {
+			final int[] data = quadData;
+			final int stride = MeshEncodingHelper.TOTAL_MESH_QUAD_STRIDE;
+			final int limit = quadCount * stride;
+
+			for (int index = 0; index < limit; index += stride) {
+				quad.copyAndLoad(data, index, stride);
+
+				if (context.cullTest(quad.cullFaceId())) {
+					context.encodeQuad(quad);
+				}
+			}
+
+			for (final int i : animationIndices) {
+				context.animationBits.set(i);
+			}
+		}
+	}
+
+	/**
+	 * Accumulates quads during capture. One instance per render context.
+	 */
+	static final class TemplateBuilder {
+		private int[] quadData = new int[MeshEncodingHelper.TOTAL_MESH_QUAD_STRIDE * 6];
+		private int quadCount;
+		private final BitSet priorAnimationBits = new BitSet();
+
+		/**
+		 * Call before the model emits quads.  Animation bits of the context are set aside
+		 * so the ones set by the model can be identified.
+		 */
+		void begin(BitSet animationBits) {
+			quadCount = 0;
+			priorAnimationBits.clear();
+			priorAnimationBits.or(animationBits);
+			animationBits.clear();
+		}
+
+		/**
+		 * Records a quad that is ready for lighting and encoding.
+		 */
+		void accept(MutableQuadViewImpl quad) {
+			// ensure header state is current so it survives copy
+			quad.geometryFlags();
+			quad.packedFaceTanget();
+			quad.normalizeSpritesIfNeeded();
+
+			final int stride = MeshEncodingHelper.TOTAL_MESH_QUAD_STRIDE;
+			final int index = quadCount * stride;
+
+			if (index + stride > quadData.length) {
+				quadData = Arrays.copyOf(quadData, quadData.length * 2);
+			}
+
+			System.arraycopy(quad.data(), quad.vertexStart() - MeshEncodingHelper.HEADER_STRIDE, quadData, index, stride);
+			++quadCount;
+		}
+
+		/**
+		 * Restores prior animation bits of the context and returns the completed template.
+		 */
+		Template end(BitSet animationBits) {
+			final int[] animationIndices = animationBits.stream().toArray();
+			animationBits.or(priorAnimationBits);
+			return new Template(Arrays.copyOf(quadData, quadCount * MeshEncodingHelper.TOTAL_MESH_QUAD_STRIDE), quadCount, animationIndices);
+		}
+	}
+}
@@ -19,7 +19,7 @@ package grondag.canvas.apiimpl.rendercontext;
 import static grondag.canvas.buffer.format.EncoderUtils.applyBlockLighting;
 import static grondag.canvas.buffer.format.EncoderUtils.colorizeQuad;
 
-import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
@@ -30,12 +30,17 @@ import net.minecraft.util.crash.CrashReport;
 import net.minecraft.util.crash.CrashReportSection;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.Matrix3f;
+import net.minecraft.util.math.Matrix4f;
 
 import net.fabricmc.fabric.api.renderer.v1.model.FabricBakedModel;
 import net.fabricmc.fabric.api.renderer.v1.model.ModelHelper;
 import net.fabricmc.fabric.api.renderer.v1.render.RenderContext;
 
+import grondag.canvas.apiimpl.mesh.MeshEncodingHelper;
 import grondag.canvas.apiimpl.mesh.MutableQuadViewImpl;
+import grondag.canvas.apiimpl.util.ColorHelper;
+import grondag.canvas.buffer.format.QuadEncoder;
 import grondag.canvas.buffer.input.VertexCollectorList;
 import grondag.canvas.config.Configurator;
 import grondag.canvas.light.AoCalculator;
@@ -53,9 +58,11 @@ import grondag.canvas.terrain.util.RenderRegionStateIndexer;
  */
 public class TerrainRenderContext extends AbstractBlockRenderContext<InputRegion> {
 	// Reused each build to prevent needless allocation
-	public final ObjectOpenHashSet<BlockEntity> nonCullBlockEntities = new ObjectOpenHashSet<>();
-	public final ObjectOpenHashSet<BlockEntity> addedBlockEntities = new ObjectOpenHashSet<>();
-	public final ObjectOpenHashSet<BlockEntity> removedBlockEntities = new ObjectOpenHashSet<>();
+	public final ObjectArrayList<BlockEntity> addedBlockEntities = new ObjectArrayList<>();
+	public final ObjectArrayList<BlockEntity> removedBlockEntities = new ObjectArrayList<>();
+
+	/** Representative block of each cube of a reduced-detail region, sized for the smallest cubes. */
+	public final int[] lodCubes = new int[8 * 8 * 8];
 
 	private final AoCalculator aoCalc = new AoCalculator() {
 		@Override
@@ -72,55 +79,139 @@ public class TerrainRenderContext extends AbstractBlockRenderContext<InputRegion
 		protected boolean isOpaque(int cacheIndex) {
 			return region.isClosed(cacheIndex);
 		}
+
+		@Override
+		protected boolean needsLighting(int interiorIndex) {
+			return !region.getRegionBlockState(interiorIndex).isAir();
+		}
 	};
 
 	private int cullCompletionFlags;
 	private int cullResultFlags;
 
+	private final StaticBlockModelCache.TemplateBuilder templateBuilder = new StaticBlockModelCache.TemplateBuilder();
+
+	/** When true, quads are captured to {@link #templateBuilder} without culling or encoding. */
+	private boolean isCapturingTemplate = false;
+
+	private final FaceMerger faceMerger = new FaceMerger();
+	private boolean mergeFluidSurfaces = false;
+	private boolean mergeBlockFaces = false;
+	private final Matrix4f identityMatrix = new Matrix4f();
+	private final Matrix3f identityNormalMatrix = new Matrix3f();
+
+	/** Width in blocks of the reduced-detail cube being rendered, or zero for normal rendering. */
+	private int lodScale = 0;
+	private int lodFaceFlags;
+	private int lodX, lodY, lodZ;
+
 	public TerrainRenderContext() {
 		super("TerrainRenderContext");
 		region = new InputRegion(this);
 		collectors = new VertexCollectorList(true);
+		identityMatrix.loadIdentity();
+		identityNormalMatrix.loadIdentity();
 	}
 
 	public TerrainRenderContext prepareForRegion(PackedInputRegion protoRegion) {
-		nonCullBlockEntities.clear();
 		addedBlockEntities.clear();
 		removedBlockEntities.clear();
 		region.prepare(protoRegion);
 		animationBits.clear();
 
 		if (Configurator.lightSmoothing) {
-			//            final long start = counter.startRun();
 			LightSmoother.computeSmoothedBrightness(region);
 		}
 
+		if (Configurator.precomputeRegionAo) {
+			aoCalc.computeRegion();
+		} else {
+			aoCalc.clearRegion();
+		}
+
+		// HD lightmap coordinates are unique to each quad
+		mergeFluidSurfaces = Configurator.mergeFluidSurfaces && !Configurator.hdLightmaps();
+		mergeBlockFaces = false;
+		faceMerger.clear();
+
 		return this;
 	}
 
+	/**
+	 * Call after {@link #prepareForRegion(PackedInputRegion)} to merge coplanar block faces
+	 * of the region into larger quads. Has no effect when HD lightmaps are enabled.
+	 */
+	public void enableBlockFaceMerging() {
+		mergeBlockFaces = !Configurator.hdLightmaps();
+	}
+
+	/**
+	 * Encodes faces held for merging. Call after all blocks in the region are rendered.
+	 */
+	public void completeMergedFaces() {
+		if (!faceMerger.isEmpty()) {
+			matrix = identityMatrix;
+			normalMatrix = (Matrix3fExt) (Object) identityNormalMatrix;
+			faceMerger.emit(makerQuad, this);
+		}
+	}
+
+	void encodeMergedQuad(MutableQuadViewImpl quad, boolean isRepeating) {
+		final QuadEncoder encoder = isRepeating ? TerrainFormat.REPEATING_TERRAIN_ENCODER : TerrainFormat.TERRAIN_ENCODER;
+		encoder.encode(quad, this, collectors.get(quad.material()));
+	}
+
 	public void renderFluid(BlockState blockState, BlockPos blockPos, boolean defaultAo, final FabricBakedModel model, MatrixStack matrixStack) {
 		isFluidModel = true;
-		renderInner(blockState, blockPos, defaultAo, model, matrixStack);
+		renderInner(blockState, blockPos, defaultAo, model, matrixStack.peek().getModel(), matrixStack.peek().getNormal());
 	}
 
 	public void renderBlock(BlockState blockState, BlockPos blockPos, boolean defaultAo, final FabricBakedModel model, MatrixStack matrixStack) {
 		isFluidModel = false;
-		renderInner(blockState, blockPos, defaultAo, model, matrixStack);
+		renderInner(blockState, blockPos, defaultAo, model, matrixStack.peek().getModel(), matrixStack.peek().getNormal());
 	}
 
-	// PERF: don't pass in matrixStack each time, just change model matrix directly
-	private void renderInner(BlockState blockState, BlockPos blockPos, boolean defaultAo, final FabricBakedModel model, MatrixStack matrixStack) {
-		matrix = matrixStack.peek().getModel();
+	/**
+	 * Renders the model of a block as a cube {@code scale} blocks wide, for reduced-detail terrain.
+	 * Only faces of the model that cover a full side of the block are drawn, scaled to the cube
+	 * with the sprite tiled once per block. Faces are flat lit from the light outside the cube.
+	 *
+	 * @param blockPos  world position of the block that supplies the model, tint and emissive state
+	 * @param x         region-relative origin of the cube
+	 * @param y         region-relative origin of the cube
+	 * @param z         region-relative origin of the cube
+	 * @param faceFlags bits of faces to draw, indexed by face id
+	 */
+	public void renderLodBlock(BlockState blockState, BlockPos blockPos, int x, int y, int z, int scale, int faceFlags, final FabricBakedModel model) {
+		isFluidModel = false;
+		lodScale = scale;
+		lodFaceFlags = faceFlags;
+		lodX = x;
+		lodY = y;
+		lodZ = z;
+
+		try {
+			renderInner(blockState, blockPos, false, model, identityMatrix, identityNormalMatrix);
+		} finally {
+			lodScale = 0;
+		}
+	}
 
-		// PERF: can probably grab this at prepare
-		normalMatrix = (Matrix3fExt) (Object) matrixStack.peek().getNormal();
+	private void renderInner(BlockState blockState, BlockPos blockPos, boolean defaultAo, final FabricBakedModel model, Matrix4f modelMatrix, Matrix3f modelNormalMatrix) {
+		matrix = modelMatrix;
+		normalMatrix = (Matrix3fExt) (Object) modelNormalMatrix;
 
 		try {
 			aoCalc.prepare(RenderRegionStateIndexer.interiorIndex(blockPos));
 			prepareForBlock(blockState, blockPos, defaultAo, -1);
 			cullCompletionFlags = 0;
 			cullResultFlags = 0;
-			model.emitBlockQuads(region, blockState, blockPos, randomSupplier, this);
+
+			if (isFluidModel) {
+				model.emitBlockQuads(region, blockState, blockPos, randomSupplier, this);
+			} else {
+				renderBlockQuads(blockState, blockPos, model);
+			}
 		} catch (final Throwable var9) {
 			final CrashReport crashReport_1 = CrashReport.create(var9, "Tesselating block in world - Canvas Renderer");
 			final CrashReportSection crashReportElement_1 = crashReport_1.addElement("Block being tesselated");
@@ -129,6 +220,35 @@ public class TerrainRenderContext extends AbstractBlockRenderContext<InputRegion
 		}
 	}
 
+	/**
+	 * Uses the cached template for static models, capturing it first if needed.
+	 * Other models emit quads normally.
+	 */
+	private void renderBlockQuads(BlockState blockState, BlockPos blockPos, final FabricBakedModel model) {
+		StaticBlockModelCache.Template template = StaticBlockModelCache.get(blockState, model);
+
+		if (template == StaticBlockModelCache.NOT_STATIC) {
+			model.emitBlockQuads(region, blockState, blockPos, randomSupplier, this);
+			return;
+		}
+
+		if (template == null) {
+			templateBuilder.begin(animationBits);
+			isCapturingTemplate = true;
+
+			try {
+				model.emitBlockQuads(region, blockState, blockPos, randomSupplier, this);
+			} finally {
+				isCapturingTemplate = false;
+				template = templateBuilder.end(animationBits);
+			}
+
+			StaticBlockModelCache.put(blockState, template);
+		}
+
+		template.render(this, makerQuad);
+	}
+
 	@Override
 	public int brightness() {
 		return 0;
@@ -159,6 +279,14 @@ public class TerrainRenderContext extends AbstractBlockRenderContext<InputRegion
 
 	@Override
 	protected boolean cullTest(int faceIndex) {
+		if (isCapturingTemplate) {
+			return true;
+		}
+
+		if (lodScale != 0) {
+			return faceIndex != ModelHelper.NULL_FACE_ID && (lodFaceFlags & (1 << faceIndex)) != 0;
+		}
+
 		if (faceIndex == ModelHelper.NULL_FACE_ID) {
 			return true;
 		}
@@ -169,7 +297,7 @@ public class TerrainRenderContext extends AbstractBlockRenderContext<InputRegion
 			cullCompletionFlags |= mask;
 			final Direction face = ModelHelper.faceFromIndex(faceIndex);
 
-			if (Block.shouldDrawSide(blockState, region, blockPos, face, internalSearchPos.set(blockPos, face))) {
+			if (region.shouldDrawSide(blockState, blockPos, face, internalSearchPos.set(blockPos, face))) {
 				cullResultFlags |= mask;
 				return true;
 			} else {
@@ -182,9 +310,55 @@ public class TerrainRenderContext extends AbstractBlockRenderContext<InputRegion
 
 	@Override
 	protected void encodeQuad(MutableQuadViewImpl quad) {
+		if (isCapturingTemplate) {
+			templateBuilder.accept(quad);
+			return;
+		}
+
+		if (lodScale != 0) {
+			encodeLodQuad(quad);
+			return;
+		}
+
 		// needs to happen before offsets are applied
 		applyBlockLighting(quad, this);
 		colorizeQuad(quad, this);
+
+		if (isFluidModel ? mergeFluidSurfaces : (mergeBlockFaces && blockState.getBlock().getOffsetType() == Block.OffsetType.NONE)) {
+			if (faceMerger.accept(quad, blockPos.getX() & 0xF, blockPos.getY() & 0xF, blockPos.getZ() & 0xF, isFluidModel)) {
+				return;
+			}
+		}
+
 		TerrainFormat.TERRAIN_ENCODER.encode(quad, this, collectors.get(quad.material()));
 	}
+
+	private void encodeLodQuad(MutableQuadViewImpl quad) {
+		// vanilla inside quads bypass the cull test
+		if (quad.cullFaceId() == ModelHelper.NULL_FACE_ID || !FaceMerger.scaleBlockFace(quad, lodX, lodY, lodZ, lodScale)) {
+			return;
+		}
+
+		final int brightness;
+
+		if (blockState.hasEmissiveLighting(region, blockPos)) {
+			brightness = MeshEncodingHelper.FULL_BRIGHTNESS;
+		} else {
+			// sample the center of the neighboring block layer outside the face
+			final Direction face = ModelHelper.faceFromIndex(quad.cullFaceId());
+			final int half = lodScale >> 1;
+			final int x = (blockPos.getX() & ~0xF) + lodX + half + face.getOffsetX() * half + Math.min(face.getOffsetX(), 0);
+			final int y = (blockPos.getY() & ~0xF) + lodY + half + face.getOffsetY() * half + Math.min(face.getOffsetY(), 0);
+			final int z = (blockPos.getZ() & ~0xF) + lodZ + half + face.getOffsetZ() * half + Math.min(face.getOffsetZ(), 0);
+			brightness = region.cachedBrightness(internalSearchPos.set(x, y, z));
+		}
+
+		for (int i = 0; i < 4; ++i) {
+			quad.lightmap(i, ColorHelper.maxBrightness(quad.lightmap(i), brightness));
+			quad.ao[i] = 1f;
+		}
+
+		colorizeQuad(quad, this);
+		TerrainFormat.REPEATING_TERRAIN_ENCODER.encode(quad, this, collectors.get(quad.material()));
+	}
 }
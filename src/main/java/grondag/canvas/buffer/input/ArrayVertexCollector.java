@@ -19,6 +19,7 @@ package grondag.canvas.buffer.input;
 import java.nio.IntBuffer;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import com.mojang.blaze3d.systems.RenderSystem;
 import it.unimi.dsi.fastutil.Swapper;
 import it.unimi.dsi.fastutil.ints.IntComparator;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
@@ -119,6 +120,35 @@ public class ArrayVertexCollector implements VertexCollector {
 		return allocate(size);
 	}
 
+	/**
+	 * Adds all vertex data of another collector with the same render state after existing data.
+	 */
+	public void append(ArrayVertexCollector source) {
+		assert !isTerrain && source.renderState == renderState;
+		final int size = source.integerSize;
+		final int start = allocate(size);
+		System.arraycopy(source.vertexData, 0, vertexData, start, size);
+	}
+
+	/**
+	 * Adds vertex data in the standard format after existing data, offsetting all vertex positions.
+	 */
+	public void appendTranslated(int[] source, int sourceStart, int size, float dx, float dy, float dz) {
+		assert !isTerrain;
+		final int start = allocate(size);
+		final int[] data = vertexData;
+		System.arraycopy(source, sourceStart, data, start, size);
+
+		final int stride = CanvasVertexFormats.STANDARD_VERTEX_STRIDE;
+		final int limit = start + size;
+
+		for (int i = start; i < limit; i += stride) {
+			data[i] = Float.floatToRawIntBits(Float.intBitsToFloat(data[i]) + dx);
+			data[i + 1] = Float.floatToRawIntBits(Float.intBitsToFloat(data[i + 1]) + dy);
+			data[i + 2] = Float.floatToRawIntBits(Float.intBitsToFloat(data[i + 2]) + dz);
+		}
+	}
+
 	public void toBuffer(IntBuffer intBuffer, int startingIndex) {
 		intBuffer.put(vertexData, startingIndex, integerSize);
 	}
@@ -326,19 +356,22 @@ public class ArrayVertexCollector implements VertexCollector {
 
 	/** Avoid: slow. */
 	public void drawSingle() {
-		// PERF: allocation - or eliminate this
-		final ObjectArrayList<ArrayVertexCollector> drawList = new ObjectArrayList<>();
+		final ObjectArrayList<ArrayVertexCollector> drawList = SINGLE_DRAW_LIST;
 		drawList.add(this);
 		draw(drawList);
 	}
 
 	/**
 	 * Single-buffer draw, minimizes state changes.
-	 * Assumes all collectors are non-empty.
+	 * Assumes all collectors are non-empty. Render thread only.
 	 */
 	public static void draw(ObjectArrayList<ArrayVertexCollector> drawList) {
-		final DrawableStream buffer = new DrawableStream(drawList);
-		buffer.draw(false);
-		buffer.close();
+		assert RenderSystem.isOnRenderThread();
+		DRAW_STREAM.prepare(drawList).draw(false);
+		DRAW_STREAM.close();
 	}
+
+	/** Reused by the immediate draw methods, which always run on the render thread and never nest. */
+	private static final DrawableStream DRAW_STREAM = new DrawableStream();
+	private static final ObjectArrayList<ArrayVertexCollector> SINGLE_DRAW_LIST = new ObjectArrayList<>(1);
 }
@@ -43,6 +43,15 @@ public class CanvasImmediate extends Immediate implements FrexVertexConsumerProv
 	public final VertexCollectorList collectors = new VertexCollectorList(false);
 	public final RenderContextState contextState;
 
+	/**
+	 * Incremented when output goes to vanilla buffers or a layer is drawn early.
+	 * Lets callers detect output that can't be captured from {@link #collectors}.
+	 */
+	private int untrackedOutputCount;
+
+	/** Returned by {@link #prepareDrawable(MaterialTarget)} and reused every frame. */
+	private final DrawableStream drawable = new DrawableStream();
+
 	public CanvasImmediate(BufferBuilder fallbackBuffer, Map<RenderLayer, BufferBuilder> layerBuffers, RenderContextState contextState) {
 		super(fallbackBuffer, layerBuffers);
 		this.contextState = contextState;
@@ -53,28 +62,41 @@ public class CanvasImmediate extends Immediate implements FrexVertexConsumerProv
 		RenderMaterialImpl mat = ((MultiPhaseExt) renderLayer).canvas_materialState();
 
 		if (mat == RenderMaterialImpl.MISSING) {
-			return super.getBuffer(renderLayer);
+			++untrackedOutputCount;
+			return fallbackBuffer(renderLayer);
 		}
 
 		mat = contextState.mapMaterial(mat);
 
 		if (mat == RenderMaterialImpl.MISSING) {
-			return super.getBuffer(renderLayer);
+			++untrackedOutputCount;
+			return fallbackBuffer(renderLayer);
 		} else {
 			return collectors.consumer.prepare(mat);
 		}
 	}
 
+	/** Consumer for layers Canvas doesn't handle. Vanilla behavior by default. */
+	protected VertexConsumer fallbackBuffer(RenderLayer renderLayer) {
+		return super.getBuffer(renderLayer);
+	}
+
 	@Override
 	public VertexConsumer getConsumer(RenderMaterial material) {
 		final RenderMaterialImpl mat = contextState.mapMaterial((RenderMaterialImpl) material);
 		return collectors.consumer.prepare(mat);
 	}
 
-	public DrawableStream prepareDrawable(MaterialTarget target) {
-		final ObjectArrayList<ArrayVertexCollector> drawList = collectors.sortedDrawList(target);
+	public int untrackedOutputCount() {
+		return untrackedOutputCount;
+	}
 
-		return drawList.isEmpty() ? DrawableStream.EMPTY : new DrawableStream(drawList);
+	/**
+	 * Uploads collectors for the target to a stream owned by this instance.
+	 * Close the result before calling again.
+	 */
+	public DrawableStream prepareDrawable(MaterialTarget target) {
+		return drawable.prepare(collectors.sortedDrawList(target));
 	}
 
 	public void drawCollectors(MaterialTarget target) {
@@ -98,6 +120,8 @@ public class CanvasImmediate extends Immediate implements FrexVertexConsumerProv
 
 	@Override
 	public void draw(RenderLayer layer) {
+		++untrackedOutputCount;
+
 		if (RenderLayerHelper.isExcluded(layer)) {
 			super.draw(layer);
 		} else {
@@ -0,0 +1,85 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.buffer.input;
+
+import java.util.Arrays;
+
+/**
+ * Vertex data copied from a {@link VertexCollectorList} for later replay,
+ * grouped in spans of data for one collector each.
+ */
+public class CollectorCapture {
+	private int[] data = new int[1024];
+	private int size;
+
+	/** Collector index and integer length of each span. */
+	private int[] spans = new int[16];
+	private int spanCount;
+
+	public void clear() {
+		size = 0;
+		spanCount = 0;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/** Releases unused capacity. For captures that are retained for a long time. */
+	public void trim() {
+		if (data.length > size) {
+			data = Arrays.copyOf(data, size);
+		}
+
+		if (spans.length > spanCount * 2) {
+			spans = Arrays.copyOf(spans, spanCount * 2);
+		}
+	}
+
+	void add(int collectorIndex, int[] source, int start, int length) {
+		if (size + length > data.length) {
+			data = Arrays.copyOf(data, Math.max(data.length * 2, size + length));
+		}
+
+		System.arraycopy(source, start, data, size, length);
+		size += length;
+
+		if (spanCount * 2 + 2 > spans.length) {
+			spans = Arrays.copyOf(spans, Math.max(16, spans.length * 2));
+		}
+
+		spans[spanCount * 2] = collectorIndex;
+		spans[spanCount * 2 + 1] = length;
+		++spanCount;
+	}
+
+	int spanCount() {
+		return spanCount;
+	}
+
+	int spanCollectorIndex(int span) {
+		return spans[span * 2];
+	}
+
+	int spanLength(int span) {
+		return spans[span * 2 + 1];
+	}
+
+	int[] data() {
+		return data;
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.buffer.input;
+
+/**
+ * Captures vertex output of an immediate for later replay at another position.
+ *
+ * <p>Caches decide what to capture and when captured output is still good, and hold it in
+ * {@link Entry} instances. This class owns the collector mark, so only one capture can be open at
+ * a time, and output that went to vanilla buffers during capture leaves the entry invalid.
+ */
+public class CollectorReplay {
+	private final CanvasImmediate immediate;
+
+	/** Entry being captured, if any. */
+	private Entry captureEntry;
+	private int captureUntrackedCount;
+
+	public CollectorReplay(CanvasImmediate immediate) {
+		this.immediate = immediate;
+	}
+
+	/**
+	 * Appends captured output of the entry, translated from the camera-relative origin
+	 * where it was captured to the given one.
+	 */
+	public void replay(Entry entry, double originX, double originY, double originZ) {
+		assert entry.isValid;
+		immediate.collectors.append(entry.capture, (float) (originX - entry.originX), (float) (originY - entry.originY), (float) (originZ - entry.originZ));
+	}
+
+	/**
+	 * Starts capture of output for the entry, which is invalid until {@link #endCapture()}.
+	 * Returns false and does nothing if another capture is open, in which case the caller
+	 * should render without capturing.
+	 */
+	public boolean beginCapture(Entry entry, double originX, double originY, double originZ) {
+		if (captureEntry != null) {
+			return false;
+		}
+
+		entry.isValid = false;
+		entry.originX = originX;
+		entry.originY = originY;
+		entry.originZ = originZ;
+		captureEntry = entry;
+		captureUntrackedCount = immediate.untrackedOutputCount();
+		immediate.collectors.mark();
+		return true;
+	}
+
+	/**
+	 * Completes the open capture, if any. Call after rendering anything that may have started one.
+	 */
+	public void endCapture() {
+		final Entry entry = captureEntry;
+
+		if (entry != null) {
+			captureEntry = null;
+			entry.isValid = immediate.untrackedOutputCount() == captureUntrackedCount && immediate.collectors.copySinceMark(entry.capture);
+		}
+	}
+
+	public void clear() {
+		captureEntry = null;
+	}
+
+	/** Captured output and the camera-relative origin it was captured at. */
+	public static class Entry {
+		private final CollectorCapture capture = new CollectorCapture();
+		private boolean isValid;
+		private double originX, originY, originZ;
+
+		public boolean isValid() {
+			return isValid;
+		}
+	}
+}
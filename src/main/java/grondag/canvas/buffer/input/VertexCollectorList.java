@@ -19,6 +19,7 @@ package grondag.canvas.buffer.input;
 import java.util.Comparator;
 import java.util.function.Predicate;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 
 import net.minecraft.client.render.VertexConsumer;
@@ -29,10 +30,12 @@ import grondag.canvas.apiimpl.mesh.MutableQuadViewImpl;
 import grondag.canvas.apiimpl.rendercontext.AbsentEncodingContext;
 import grondag.canvas.buffer.format.QuadEncoders;
 import grondag.canvas.config.Configurator;
+import grondag.canvas.material.state.CollectorIndexMap;
 import grondag.canvas.material.state.RenderMaterialImpl;
 import grondag.canvas.material.state.RenderState;
 import grondag.canvas.render.terrain.base.UploadableRegion;
 import grondag.canvas.render.terrain.cluster.ClusteredDrawableRegion;
+import grondag.canvas.render.terrain.cluster.VertexClusterRealm;
 import grondag.canvas.render.world.WorldRenderState;
 import grondag.canvas.terrain.region.RegionPosition;
 
@@ -41,10 +44,16 @@ import grondag.canvas.terrain.region.RegionPosition;
  */
 public class VertexCollectorList {
 	private final ObjectArrayList<ArrayVertexCollector> active = new ObjectArrayList<>();
+	/** Collector index of each active collector, in the same order. */
+	private final IntArrayList activeIndices = new IntArrayList();
 	private final ArrayVertexCollector[] collectors = new ArrayVertexCollector[RenderState.MAX_COUNT];
 	private final ObjectArrayList<ArrayVertexCollector> drawList = new ObjectArrayList<>();
 	public final boolean isTerrain;
 
+	/** Sizes of active collectors at last {@link #mark()}. */
+	private int[] markSizes = new int[64];
+	private int markCount;
+
 	public VertexCollectorList(boolean isTerrain) {
 		this.isTerrain = isTerrain;
 	}
@@ -105,7 +114,10 @@ public class VertexCollectorList {
 			return null;
 		}
 
-		final int index = materialState.collectorIndex;
+		return get(materialState.collectorIndex, materialState.renderState);
+	}
+
+	private ArrayVertexCollector get(int index, RenderState renderState) {
 		final ArrayVertexCollector[] collectors = this.collectors;
 
 		ArrayVertexCollector result = null;
@@ -115,14 +127,95 @@ public class VertexCollectorList {
 		}
 
 		if (result == null) {
-			result = new ArrayVertexCollector(materialState.renderState, isTerrain);
+			result = new ArrayVertexCollector(renderState, isTerrain);
 			collectors[index] = result;
 			active.add(result);
+			activeIndices.add(index);
 		}
 
 		return result;
 	}
 
+	/**
+	 * Appends all vertex data of another list and clears it. Data of each material
+	 * is added after data already collected for the same material.
+	 * Not for terrain, which tracks vertex buckets per collector.
+	 */
+	public void append(VertexCollectorList source) {
+		assert !isTerrain && !source.isTerrain;
+		final ArrayVertexCollector[] sourceCollectors = source.collectors;
+		final int limit = sourceCollectors.length;
+
+		for (int i = 0; i < limit; ++i) {
+			final ArrayVertexCollector sourceCollector = sourceCollectors[i];
+
+			if (sourceCollector != null && !sourceCollector.isEmpty()) {
+				get(i, sourceCollector.renderState).append(sourceCollector);
+				sourceCollector.clear();
+			}
+		}
+	}
+
+	/**
+	 * Records collector sizes so that data added afterwards can be copied with {@link #copySinceMark(CollectorCapture)}.
+	 */
+	public void mark() {
+		final int limit = active.size();
+
+		if (markSizes.length < limit) {
+			markSizes = new int[limit * 2];
+		}
+
+		for (int i = 0; i < limit; ++i) {
+			markSizes[i] = active.get(i).integerSize();
+		}
+
+		markCount = limit;
+	}
+
+	/**
+	 * Replaces the content of the capture with all data added since the last {@link #mark()}.
+	 * Returns false and leaves the capture empty if a collector shrank in between,
+	 * which means it was drawn or cleared and added data can't be identified.
+	 */
+	public boolean copySinceMark(CollectorCapture capture) {
+		assert !isTerrain;
+		capture.clear();
+		final int limit = active.size();
+
+		for (int i = 0; i < limit; ++i) {
+			final ArrayVertexCollector collector = active.get(i);
+			final int start = i < markCount ? markSizes[i] : 0;
+			final int size = collector.integerSize();
+
+			if (size < start) {
+				capture.clear();
+				return false;
+			} else if (size > start) {
+				capture.add(activeIndices.getInt(i), collector.data(), start, size - start);
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Appends captured data to the collectors it came from, offsetting all vertex positions.
+	 */
+	public void append(CollectorCapture capture, float dx, float dy, float dz) {
+		assert !isTerrain;
+		final int[] data = capture.data();
+		final int spanCount = capture.spanCount();
+		int start = 0;
+
+		for (int i = 0; i < spanCount; ++i) {
+			final int index = capture.spanCollectorIndex(i);
+			final int length = capture.spanLength(i);
+			get(index, CollectorIndexMap.renderStateForIndex(index)).appendTranslated(data, start, length, dx, dy, dz);
+			start += length;
+		}
+	}
+
 	public boolean contains(RenderMaterialImpl materialState) {
 		final int index = materialState.collectorIndex;
 		return index < collectors.length && collectors[index] != null;
@@ -153,8 +246,12 @@ public class VertexCollectorList {
 	}
 
 	public UploadableRegion toUploadableChunk(boolean sorted, RegionPosition origin, WorldRenderState worldRenderState) {
+		return toUploadableChunk(sorted, origin, sorted ? worldRenderState.translucentClusterRealm : worldRenderState.solidClusterRealm);
+	}
+
+	public UploadableRegion toUploadableChunk(boolean sorted, RegionPosition origin, VertexClusterRealm realm) {
 		final int bytes = totalBytes(sorted);
-		return bytes == 0 ? UploadableRegion.EMPTY_UPLOADABLE : ClusteredDrawableRegion.uploadable(this, sorted ? worldRenderState.translucentClusterRealm : worldRenderState.solidClusterRealm, bytes, origin);
+		return bytes == 0 ? UploadableRegion.EMPTY_UPLOADABLE : ClusteredDrawableRegion.uploadable(this, realm, bytes, origin);
 	}
 
 	/**
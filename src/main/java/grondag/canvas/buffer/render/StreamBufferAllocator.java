@@ -34,10 +34,16 @@ public class StreamBufferAllocator {
 
 	static StreamBuffer claim(CanvasVertexFormat format, int bytes) {
 		assert RenderSystem.isOnRenderThread();
-		return ALLOCATORS.computeIfAbsent(format, binIndex -> {
+		BufferAllocator<StreamBuffer> result = ALLOCATORS.get(format);
+
+		// not computeIfAbsent because the capturing lambda would allocate on every claim
+		if (result == null) {
 			final Function<BinIndex, StreamBuffer> allocator = b -> new StreamBuffer(b, format);
-			return new BufferAllocator<>("STREAM", allocator, ArrayDeque::new);
-		}).claim(bytes);
+			result = new BufferAllocator<>("STREAM", allocator, ArrayDeque::new);
+			ALLOCATORS.put(format, result);
+		}
+
+		return result.claim(bytes);
 	}
 
 	public static void forceReload() {
@@ -17,12 +17,14 @@
 package grondag.canvas.buffer.util;
 
 import java.nio.IntBuffer;
+import java.util.Arrays;
 
 import com.mojang.blaze3d.systems.RenderSystem;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import org.jetbrains.annotations.Nullable;
 
 import net.minecraft.client.render.VertexFormat.DrawMode;
+import net.minecraft.util.math.MathHelper;
 
 import grondag.canvas.buffer.format.CanvasVertexFormats;
 import grondag.canvas.buffer.input.ArrayVertexCollector;
@@ -30,47 +32,71 @@ import grondag.canvas.buffer.render.StreamBuffer;
 import grondag.canvas.material.state.RenderState;
 import grondag.canvas.varia.GFX;
 
+/**
+ * Uploads the contents of a draw list to one stream buffer and draws each collector
+ * with its render state. Instances are reusable: {@link #prepare(ObjectArrayList)}
+ * fills the stream and {@link #close()} releases the buffer and leaves the stream empty.
+ * Per-collector arrays keep their capacity across uses so steady-state frames allocate nothing.
+ */
 public class DrawableStream implements AutoCloseable {
 	@Nullable private StreamBuffer buffer;
-	private final int limit;
-	private final int[] counts;
-	private final RenderState[] states;
+	private int limit;
+	private int[] counts = new int[16];
+	private RenderState[] states = new RenderState[16];
 
-	public DrawableStream(ObjectArrayList<ArrayVertexCollector> drawList) {
-		limit = drawList.size();
+	/**
+	 * Uploads all collectors in the list, then clears them and the list.
+	 * Assumes all collectors are non-empty. Returns this instance.
+	 */
+	public DrawableStream prepare(ObjectArrayList<ArrayVertexCollector> drawList) {
+		assert buffer == null : "DrawableStream prepared without close";
 
-		int bytes = 0;
+		final int bytes = captureStates(drawList);
 
-		for (int i = 0; i < limit; ++i) {
-			final ArrayVertexCollector collector = drawList.get(i);
-			collector.sortIfNeeded();
-			bytes += collector.byteSize();
+		if (limit == 0) {
+			return this;
 		}
 
 		buffer = StreamBuffer.claim(bytes, CanvasVertexFormats.STANDARD_MATERIAL_FORMAT);
 		final IntBuffer intBuffer = buffer.intBuffer();
-		counts = new int[limit];
-		states = new RenderState[limit];
-
 		intBuffer.position(0);
 
 		for (int i = 0; i < limit; ++i) {
 			final ArrayVertexCollector collector = drawList.get(i);
+			collector.sortIfNeeded();
 			collector.toBuffer(intBuffer, 0);
-			counts[i] = collector.quadCount() * 4;
-			states[i] = collector.renderState;
 			collector.clear();
 		}
 
 		drawList.clear();
 		buffer.upload();
+		return this;
 	}
 
-	private DrawableStream() {
-		buffer = null;
-		limit = 0;
-		counts = null;
-		states = null;
+	/**
+	 * Records vertex counts and render states of the draw list, growing the arrays if needed,
+	 * and returns the total byte size.  Doesn't modify the collectors.
+	 */
+	int captureStates(ObjectArrayList<ArrayVertexCollector> drawList) {
+		final int limit = drawList.size();
+		this.limit = limit;
+
+		if (counts.length < limit) {
+			final int capacity = MathHelper.smallestEncompassingPowerOfTwo(limit);
+			counts = new int[capacity];
+			states = new RenderState[capacity];
+		}
+
+		int bytes = 0;
+
+		for (int i = 0; i < limit; ++i) {
+			final ArrayVertexCollector collector = drawList.get(i);
+			bytes += collector.byteSize();
+			counts[i] = collector.quadCount() * 4;
+			states[i] = collector.renderState;
+		}
+
+		return bytes;
 	}
 
 	public void draw(boolean isShadow) {
@@ -99,13 +125,18 @@ public class DrawableStream implements AutoCloseable {
 		}
 	}
 
+	/** Releases the buffer. The stream can be prepared again afterwards. Safe to call more than once. */
 	@Override
 	public void close() {
 		if (buffer != null) {
 			buffer.release();
 			buffer = null;
 		}
-	}
 
-	public static final DrawableStream EMPTY = new DrawableStream();
+		if (limit != 0) {
+			// don't retain render states past their use
+			Arrays.fill(states, 0, limit, null);
+			limit = 0;
+		}
+	}
 }
@@ -61,6 +61,8 @@ class ConfigData {
 	boolean terrainSetupOffThread = true;
 	@Comment("Use more efficient entity culling. Improves framerate in most scenes.")
 	boolean cullEntityRender = true;
+	@Comment("Skip entities and block entities hidden behind terrain, using the terrain occlusion raster. Not used while shadows are enabled.")
+	boolean cullOccludedEntities = true;
 	@Comment("When true, render thread does not yield to other threads every frame. Vanilla behavior is false (yields).")
 	boolean greedyRenderThread = true;
 	@Comment("Use more efficient model loading. Improves chunk rebuild speed and reduces memory use.")
@@ -85,6 +87,40 @@ class ConfigData {
 	boolean cullBackfacingTerrain = true;
 	@Comment("Enabling may help performance by drawing fewer regions but some regions may flicker as you move around nearby blocks.")
 	boolean enableNearOccluders = false;
+	@Comment("Maximum occluder boxes drawn per occlusion pass, in hundreds. Largest on screen are drawn first. Lower values reduce occlusion cost in dense builds but may cull less. 0 = unlimited.")
+	int occluderBudget = 0;
+	@Comment("Computes smooth lighting for all exposed block faces of a region before meshing instead of as each block is meshed. May build chunks faster on some systems.")
+	boolean precomputeRegionAo = false;
+	@Comment("Computes biome colors for a whole chunk at once. Faster with large blend radius.")
+	boolean bulkBiomeColors = false;
+	@Comment("Biome color blend radius for terrain, 0-15. -1 uses the vanilla setting.")
+	int biomeBlendRadius = -1;
+	@Comment("Merges flat, still fluid surfaces of each region into larger quads. Reduces translucent sorting and upload for oceans. Shaders that read fluid texture coordinates may not render merged surfaces correctly.")
+	boolean mergeFluidSurfaces = false;
+	@Comment("Regions at least this many chunks away are meshed with coplanar block faces merged into larger quads. Reduces vertex count and upload at high render distance. Full detail is restored as regions come closer. 0 = disabled.")
+	int faceMergeDistance = 0;
+	@Comment("Regions at least this many chunks away are meshed at reduced detail, with blocks grouped into 2x2x2 cells. Cells are 4x4x4 from twice this distance and 8x8x8 from four times this distance. 0 = disabled.")
+	int lodDistance = 0;
+	@Comment("Renders allow-listed entity and block entity types on worker threads. Each type is rendered by only one thread per frame. Only list types with renderers that don't share state with other types.")
+	boolean parallelEntityRendering = false;
+	@Comment("Comma-separated entity type ids rendered on worker threads when parallel entity rendering is enabled.")
+	String parallelEntityTypes = "";
+	@Comment("Comma-separated block entity type ids rendered on worker threads when parallel entity rendering is enabled.")
+	String parallelBlockEntityTypes = "minecraft:chest,minecraft:trapped_chest,minecraft:ender_chest,minecraft:shulker_box,minecraft:banner";
+	@Comment("Builds particle geometry on worker threads when there are many particles. Vanilla particles and allow-listed particle types on opaque and cutout sheets are built in parallel, others on the render thread.")
+	boolean parallelParticleBuild = false;
+	@Comment("Comma-separated ids of modded particle types that are safe to build on worker threads when parallel particle build is enabled.")
+	String parallelParticleTypes = "";
+	@Comment("Retains the output of allow-listed block entity types and reuses it until they change, instead of rendering them every frame.")
+	boolean bakeBlockEntities = false;
+	@Comment("Comma-separated block entity type ids retained when block entity baking is enabled. Animated parts of listed types will not move, except chest and shulker box lids, which render normally while they move.")
+	String bakedBlockEntityTypes = "minecraft:sign,minecraft:skull,minecraft:chest,minecraft:trapped_chest,minecraft:ender_chest,minecraft:shulker_box";
+	@Comment("Reuses encoded output of item models drawn in inventory and container screens instead of encoding them again every frame.")
+	boolean cacheGuiItems = true;
+	@Comment("Entities at least this many blocks away reuse their geometry from a prior frame and render again only every few frames. 0 = disabled.")
+	int entityFrameSkipDistance = 64;
+	@Comment("Most frames distant entity geometry is reused before the entity renders again, 2-8. Reached at increasing multiples of the frame skip distance.")
+	int entityFrameSkipInterval = 3;
 	@Comment("Method used to transfer data to GPU. AUTO is recommended but performance can be specific to your system. Other options are DIRECT, HYBRID, and MAPPED")
 	public TransferBuffers.Config transferBufferMode = TransferBuffers.Config.AUTO;
 	@Comment("Uses slower and safer memory allocation method for GL buffers.  Use only if having problems. Requires restart.")
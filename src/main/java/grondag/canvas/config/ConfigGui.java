@@ -19,11 +19,17 @@ package grondag.canvas.config;
 import static grondag.canvas.config.ConfigManager.DEFAULTS;
 import static grondag.canvas.config.ConfigManager.parse;
 import static grondag.canvas.config.Configurator.advancedTerrainCulling;
+import static grondag.canvas.config.Configurator.bakeBlockEntities;
+import static grondag.canvas.config.Configurator.bakedBlockEntityTypes;
+import static grondag.canvas.config.Configurator.biomeBlendRadius;
 import static grondag.canvas.config.Configurator.blendFluidColors;
+import static grondag.canvas.config.Configurator.bulkBiomeColors;
+import static grondag.canvas.config.Configurator.cacheGuiItems;
 import static grondag.canvas.config.Configurator.clampExteriorVertices;
 import static grondag.canvas.config.Configurator.conciseErrors;
 import static grondag.canvas.config.Configurator.cullBackfacingTerrain;
 import static grondag.canvas.config.Configurator.cullEntityRender;
+import static grondag.canvas.config.Configurator.cullOccludedEntities;
 import static grondag.canvas.config.Configurator.cullParticles;
 import static grondag.canvas.config.Configurator.debugNativeMemoryAllocation;
 import static grondag.canvas.config.Configurator.debugOcclusionBoxes;
@@ -36,16 +42,28 @@ import static grondag.canvas.config.Configurator.dynamicFrustumPadding;
 import static grondag.canvas.config.Configurator.enableBufferDebug;
 import static grondag.canvas.config.Configurator.enableLifeCycleDebug;
 import static grondag.canvas.config.Configurator.enableNearOccluders;
+import static grondag.canvas.config.Configurator.entityFrameSkipDistance;
+import static grondag.canvas.config.Configurator.entityFrameSkipInterval;
+import static grondag.canvas.config.Configurator.faceMergeDistance;
 import static grondag.canvas.config.Configurator.fixLuminousBlockShading;
 import static grondag.canvas.config.Configurator.forceJmxModelLoading;
 import static grondag.canvas.config.Configurator.greedyRenderThread;
 import static grondag.canvas.config.Configurator.groupAnimatedSprites;
+import static grondag.canvas.config.Configurator.lodDistance;
 import static grondag.canvas.config.Configurator.logGlStateChanges;
 import static grondag.canvas.config.Configurator.logMachineInfo;
 import static grondag.canvas.config.Configurator.logMaterials;
 import static grondag.canvas.config.Configurator.logMissingUniforms;
 import static grondag.canvas.config.Configurator.logRenderLagSpikes;
+import static grondag.canvas.config.Configurator.mergeFluidSurfaces;
+import static grondag.canvas.config.Configurator.occluderBudget;
+import static grondag.canvas.config.Configurator.parallelBlockEntityTypes;
+import static grondag.canvas.config.Configurator.parallelEntityRendering;
+import static grondag.canvas.config.Configurator.parallelEntityTypes;
+import static grondag.canvas.config.Configurator.parallelParticleBuild;
+import static grondag.canvas.config.Configurator.parallelParticleTypes;
 import static grondag.canvas.config.Configurator.pipelineId;
+import static grondag.canvas.config.Configurator.precomputeRegionAo;
 import static grondag.canvas.config.Configurator.preprocessShaderSource;
 import static grondag.canvas.config.Configurator.preventDepthFighting;
 import static grondag.canvas.config.Configurator.profilerDisplayMode;
@@ -86,6 +104,7 @@ import grondag.canvas.perf.Timekeeper;
 import grondag.canvas.pipeline.config.PipelineConfig;
 import grondag.canvas.pipeline.config.PipelineDescription;
 import grondag.canvas.pipeline.config.PipelineLoader;
+import grondag.canvas.terrain.util.ChunkColorCache;
 
 public class ConfigGui {
 	static final ConfigEntryBuilder ENTRY_BUILDER = ConfigEntryBuilder.create();
@@ -286,6 +305,15 @@ public class ConfigGui {
 				})
 				.build());
 
+		tweaks.addEntry(ENTRY_BUILDER
+				.startBooleanToggle(new TranslatableText("config.canvas.value.cull_occluded_entities"), cullOccludedEntities)
+				.setDefaultValue(DEFAULTS.cullOccludedEntities)
+				.setTooltip(parse("config.canvas.help.cull_occluded_entities"))
+				.setSaveConsumer(b -> {
+					cullOccludedEntities = b;
+				})
+				.build());
+
 		tweaks.addEntry(ENTRY_BUILDER
 				.startBooleanToggle(new TranslatableText("config.canvas.value.greedy_render_thread"), greedyRenderThread)
 				.setDefaultValue(DEFAULTS.greedyRenderThread)
@@ -349,6 +377,144 @@ public class ConfigGui {
 				})
 				.build());
 
+		tweaks.addEntry(ENTRY_BUILDER
+				.startIntSlider(new TranslatableText("config.canvas.value.occluder_budget"), occluderBudget, 0, 100)
+				.setDefaultValue(DEFAULTS.occluderBudget)
+				.setTooltip(parse("config.canvas.help.occluder_budget"))
+				.setSaveConsumer(b -> {
+					occluderBudget = b;
+				})
+				.build());
+
+		tweaks.addEntry(ENTRY_BUILDER
+				.startBooleanToggle(new TranslatableText("config.canvas.value.precompute_region_ao"), precomputeRegionAo)
+				.setDefaultValue(DEFAULTS.precomputeRegionAo)
+				.setTooltip(parse("config.canvas.help.precompute_region_ao"))
+				.setSaveConsumer(b -> {
+					precomputeRegionAo = b;
+				})
+				.build());
+
+		tweaks.addEntry(ENTRY_BUILDER
+				.startBooleanToggle(new TranslatableText("config.canvas.value.bulk_biome_colors"), bulkBiomeColors)
+				.setDefaultValue(DEFAULTS.bulkBiomeColors)
+				.setTooltip(parse("config.canvas.help.bulk_biome_colors"))
+				.setSaveConsumer(b -> {
+					reload |= bulkBiomeColors != b;
+					bulkBiomeColors = b;
+				})
+				.build());
+
+		tweaks.addEntry(ENTRY_BUILDER
+				.startIntSlider(new TranslatableText("config.canvas.value.biome_blend_radius"), biomeBlendRadius, -1, ChunkColorCache.MAX_BLEND_RADIUS)
+				.setDefaultValue(DEFAULTS.biomeBlendRadius)
+				.setTooltip(parse("config.canvas.help.biome_blend_radius"))
+				.setSaveConsumer(b -> {
+					reload |= biomeBlendRadius != b;
+					biomeBlendRadius = b;
+				})
+				.build());
+
+		tweaks.addEntry(ENTRY_BUILDER
+				.startBooleanToggle(new TranslatableText("config.canvas.value.merge_fluid_surfaces"), mergeFluidSurfaces)
+				.setDefaultValue(DEFAULTS.mergeFluidSurfaces)
+				.setTooltip(parse("config.canvas.help.merge_fluid_surfaces"))
+				.setSaveConsumer(b -> {
+					reload |= mergeFluidSurfaces != b;
+					mergeFluidSurfaces = b;
+				})
+				.build());
+
+		tweaks.addEntry(ENTRY_BUILDER
+				.startIntSlider(new TranslatableText("config.canvas.value.face_merge_distance"), faceMergeDistance, 0, 64)
+				.setDefaultValue(DEFAULTS.faceMergeDistance)
+				.setTooltip(parse("config.canvas.help.face_merge_distance"))
+				.setSaveConsumer(b -> {
+					reload |= faceMergeDistance != b;
+					faceMergeDistance = b;
+				})
+				.build());
+
+		tweaks.addEntry(ENTRY_BUILDER
+				.startIntSlider(new TranslatableText("config.canvas.value.lod_distance"), lodDistance, 0, 64)
+				.setDefaultValue(DEFAULTS.lodDistance)
+				.setTooltip(parse("config.canvas.help.lod_distance"))
+				.setSaveConsumer(b -> {
+					reload |= lodDistance != b;
+					lodDistance = b;
+				})
+				.build());
+
+		tweaks.addEntry(ENTRY_BUILDER
+				.startIntSlider(new TranslatableText("config.canvas.value.entity_frame_skip_distance"), entityFrameSkipDistance, 0, 256)
+				.setDefaultValue(DEFAULTS.entityFrameSkipDistance)
+				.setTooltip(parse("config.canvas.help.entity_frame_skip_distance"))
+				.setSaveConsumer(b -> entityFrameSkipDistance = b)
+				.build());
+
+		tweaks.addEntry(ENTRY_BUILDER
+				.startIntSlider(new TranslatableText("config.canvas.value.entity_frame_skip_interval"), entityFrameSkipInterval, 2, 8)
+				.setDefaultValue(DEFAULTS.entityFrameSkipInterval)
+				.setTooltip(parse("config.canvas.help.entity_frame_skip_interval"))
+				.setSaveConsumer(b -> entityFrameSkipInterval = b)
+				.build());
+
+		tweaks.addEntry(ENTRY_BUILDER
+				.startBooleanToggle(new TranslatableText("config.canvas.value.parallel_entity_rendering"), parallelEntityRendering)
+				.setDefaultValue(DEFAULTS.parallelEntityRendering)
+				.setTooltip(parse("config.canvas.help.parallel_entity_rendering"))
+				.setSaveConsumer(b -> parallelEntityRendering = b)
+				.build());
+
+		tweaks.addEntry(ENTRY_BUILDER
+				.startStrField(new TranslatableText("config.canvas.value.parallel_entity_types"), parallelEntityTypes)
+				.setDefaultValue(DEFAULTS.parallelEntityTypes)
+				.setTooltip(parse("config.canvas.help.parallel_entity_types"))
+				.setSaveConsumer(b -> parallelEntityTypes = b)
+				.build());
+
+		tweaks.addEntry(ENTRY_BUILDER
+				.startStrField(new TranslatableText("config.canvas.value.parallel_block_entity_types"), parallelBlockEntityTypes)
+				.setDefaultValue(DEFAULTS.parallelBlockEntityTypes)
+				.setTooltip(parse("config.canvas.help.parallel_block_entity_types"))
+				.setSaveConsumer(b -> parallelBlockEntityTypes = b)
+				.build());
+
+		tweaks.addEntry(ENTRY_BUILDER
+				.startBooleanToggle(new TranslatableText("config.canvas.value.parallel_particle_build"), parallelParticleBuild)
+				.setDefaultValue(DEFAULTS.parallelParticleBuild)
+				.setTooltip(parse("config.canvas.help.parallel_particle_build"))
+				.setSaveConsumer(b -> parallelParticleBuild = b)
+				.build());
+
+		tweaks.addEntry(ENTRY_BUILDER
+				.startStrField(new TranslatableText("config.canvas.value.parallel_particle_types"), parallelParticleTypes)
+				.setDefaultValue(DEFAULTS.parallelParticleTypes)
+				.setTooltip(parse("config.canvas.help.parallel_particle_types"))
+				.setSaveConsumer(b -> parallelParticleTypes = b)
+				.build());
+
+		tweaks.addEntry(ENTRY_BUILDER
+				.startBooleanToggle(new TranslatableText("config.canvas.value.bake_block_entities"), bakeBlockEntities)
+				.setDefaultValue(DEFAULTS.bakeBlockEntities)
+				.setTooltip(parse("config.canvas.help.bake_block_entities"))
+				.setSaveConsumer(b -> bakeBlockEntities = b)
+				.build());
+
+		tweaks.addEntry(ENTRY_BUILDER
+				.startStrField(new TranslatableText("config.canvas.value.baked_block_entity_types"), bakedBlockEntityTypes)
+				.setDefaultValue(DEFAULTS.bakedBlockEntityTypes)
+				.setTooltip(parse("config.canvas.help.baked_block_entity_types"))
+				.setSaveConsumer(b -> bakedBlockEntityTypes = b)
+				.build());
+
+		tweaks.addEntry(ENTRY_BUILDER
+				.startBooleanToggle(new TranslatableText("config.canvas.value.cache_gui_items"), cacheGuiItems)
+				.setDefaultValue(DEFAULTS.cacheGuiItems)
+				.setTooltip(parse("config.canvas.help.cache_gui_items"))
+				.setSaveConsumer(b -> cacheGuiItems = b)
+				.build());
+
 		tweaks.addEntry(ENTRY_BUILDER
 				.startBooleanToggle(new TranslatableText("config.canvas.value.use_combined_thread_pool"), useCombinedThreadPool)
 				.setDefaultValue(DEFAULTS.useCombinedThreadPool)
@@ -26,6 +26,7 @@ import net.fabricmc.api.Environment;
 import grondag.canvas.buffer.render.TransferBuffers;
 import grondag.canvas.perf.Timekeeper;
 import grondag.canvas.pipeline.config.PipelineConfig;
+import grondag.canvas.terrain.util.ChunkColorCache;
 
 @Environment(EnvType.CLIENT)
 public class Configurator {
@@ -45,6 +46,7 @@ public class Configurator {
 	public static boolean advancedTerrainCulling = DEFAULTS.advancedTerrainCulling;
 	public static boolean terrainSetupOffThread = DEFAULTS.terrainSetupOffThread;
 	public static boolean cullEntityRender = DEFAULTS.cullEntityRender;
+	public static boolean cullOccludedEntities = DEFAULTS.cullOccludedEntities;
 	public static boolean greedyRenderThread = DEFAULTS.greedyRenderThread;
 	public static boolean forceJmxModelLoading = DEFAULTS.forceJmxModelLoading;
 	public static boolean reduceResolutionOnMac = DEFAULTS.reduceResolutionOnMac;
@@ -76,6 +78,23 @@ public class Configurator {
 	public static int profilerDetailLevel = DEFAULTS.profilerDetailLevel;
 	public static float profilerOverlayScale = DEFAULTS.profilerOverlayScale;
 	public static boolean enableNearOccluders = DEFAULTS.enableNearOccluders;
+	public static int occluderBudget = DEFAULTS.occluderBudget;
+	public static boolean precomputeRegionAo = DEFAULTS.precomputeRegionAo;
+	public static boolean bulkBiomeColors = DEFAULTS.bulkBiomeColors;
+	public static int biomeBlendRadius = DEFAULTS.biomeBlendRadius;
+	public static boolean mergeFluidSurfaces = DEFAULTS.mergeFluidSurfaces;
+	public static int faceMergeDistance = DEFAULTS.faceMergeDistance;
+	public static int lodDistance = DEFAULTS.lodDistance;
+	public static int entityFrameSkipDistance = DEFAULTS.entityFrameSkipDistance;
+	public static int entityFrameSkipInterval = DEFAULTS.entityFrameSkipInterval;
+	public static boolean parallelEntityRendering = DEFAULTS.parallelEntityRendering;
+	public static String parallelEntityTypes = DEFAULTS.parallelEntityTypes;
+	public static String parallelBlockEntityTypes = DEFAULTS.parallelBlockEntityTypes;
+	public static boolean parallelParticleBuild = DEFAULTS.parallelParticleBuild;
+	public static String parallelParticleTypes = DEFAULTS.parallelParticleTypes;
+	public static boolean bakeBlockEntities = DEFAULTS.bakeBlockEntities;
+	public static String bakedBlockEntityTypes = DEFAULTS.bakedBlockEntityTypes;
+	public static boolean cacheGuiItems = DEFAULTS.cacheGuiItems;
 	public static TransferBuffers.Config transferBufferMode = DEFAULTS.transferBufferMode;
 	public static boolean steadyDebugScreen = DEFAULTS.steadyDebugScreen;
 	public static boolean disableUnseenSpriteAnimation = DEFAULTS.disableUnseenSpriteAnimation;
@@ -128,6 +147,7 @@ public class Configurator {
 		terrainSetupOffThread = config.terrainSetupOffThread;
 		safeNativeMemoryAllocation = config.safeNativeMemoryAllocation;
 		cullEntityRender = config.cullEntityRender;
+		cullOccludedEntities = config.cullOccludedEntities;
 		greedyRenderThread = config.greedyRenderThread;
 		forceJmxModelLoading = config.forceJmxModelLoading;
 		reduceResolutionOnMac = config.reduceResolutionOnMac;
@@ -159,6 +179,23 @@ public class Configurator {
 		profilerDetailLevel = MathHelper.clamp(config.profilerDetailLevel, 0, 2);
 		profilerOverlayScale = config.profilerOverlayScale;
 		enableNearOccluders = config.enableNearOccluders;
+		occluderBudget = MathHelper.clamp(config.occluderBudget, 0, 100);
+		precomputeRegionAo = config.precomputeRegionAo;
+		bulkBiomeColors = config.bulkBiomeColors;
+		biomeBlendRadius = MathHelper.clamp(config.biomeBlendRadius, -1, ChunkColorCache.MAX_BLEND_RADIUS);
+		mergeFluidSurfaces = config.mergeFluidSurfaces;
+		faceMergeDistance = MathHelper.clamp(config.faceMergeDistance, 0, 64);
+		lodDistance = MathHelper.clamp(config.lodDistance, 0, 64);
+		entityFrameSkipDistance = MathHelper.clamp(config.entityFrameSkipDistance, 0, 256);
+		entityFrameSkipInterval = MathHelper.clamp(config.entityFrameSkipInterval, 2, 8);
+		parallelEntityRendering = config.parallelEntityRendering;
+		parallelEntityTypes = config.parallelEntityTypes;
+		parallelBlockEntityTypes = config.parallelBlockEntityTypes;
+		parallelParticleBuild = config.parallelParticleBuild;
+		parallelParticleTypes = config.parallelParticleTypes;
+		bakeBlockEntities = config.bakeBlockEntities;
+		bakedBlockEntityTypes = config.bakedBlockEntityTypes;
+		cacheGuiItems = config.cacheGuiItems;
 		disableUnseenSpriteAnimation = config.disableUnseenSpriteAnimation;
 		groupAnimatedSprites = config.groupAnimatedSprites;
 		cullBackfacingTerrain = config.cullBackfacingTerrain;
@@ -189,6 +226,7 @@ public class Configurator {
 		config.terrainSetupOffThread = terrainSetupOffThread;
 		config.safeNativeMemoryAllocation = safeNativeMemoryAllocation;
 		config.cullEntityRender = cullEntityRender;
+		config.cullOccludedEntities = cullOccludedEntities;
 		config.greedyRenderThread = greedyRenderThread;
 		config.forceJmxModelLoading = forceJmxModelLoading;
 		config.reduceResolutionOnMac = reduceResolutionOnMac;
@@ -220,6 +258,23 @@ public class Configurator {
 		config.profilerDetailLevel = profilerDetailLevel;
 		config.profilerOverlayScale = profilerOverlayScale;
 		config.enableNearOccluders = enableNearOccluders;
+		config.occluderBudget = occluderBudget;
+		config.precomputeRegionAo = precomputeRegionAo;
+		config.bulkBiomeColors = bulkBiomeColors;
+		config.biomeBlendRadius = biomeBlendRadius;
+		config.mergeFluidSurfaces = mergeFluidSurfaces;
+		config.faceMergeDistance = faceMergeDistance;
+		config.lodDistance = lodDistance;
+		config.entityFrameSkipDistance = entityFrameSkipDistance;
+		config.entityFrameSkipInterval = entityFrameSkipInterval;
+		config.parallelEntityRendering = parallelEntityRendering;
+		config.parallelEntityTypes = parallelEntityTypes;
+		config.parallelBlockEntityTypes = parallelBlockEntityTypes;
+		config.parallelParticleBuild = parallelParticleBuild;
+		config.parallelParticleTypes = parallelParticleTypes;
+		config.bakeBlockEntities = bakeBlockEntities;
+		config.bakedBlockEntityTypes = bakedBlockEntityTypes;
+		config.cacheGuiItems = cacheGuiItems;
 		config.disableUnseenSpriteAnimation = disableUnseenSpriteAnimation;
 		config.groupAnimatedSprites = groupAnimatedSprites;
 		config.cullBackfacingTerrain = cullBackfacingTerrain;
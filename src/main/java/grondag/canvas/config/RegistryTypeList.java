@@ -0,0 +1,71 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.config;
+
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+
+import net.minecraft.util.Identifier;
+import net.minecraft.util.registry.Registry;
+
+import grondag.canvas.CanvasMod;
+
+/**
+ * Set of registry entries parsed from a comma-separated list of ids in a configuration string.
+ * Unrecognized ids are logged and ignored.
+ */
+public class RegistryTypeList<T> {
+	private final Registry<T> registry;
+	private final ReferenceOpenHashSet<T> types = new ReferenceOpenHashSet<>();
+	private String parsedIds;
+
+	public RegistryTypeList(Registry<T> registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * Parses the ids if they differ from those last parsed.
+	 * Returns true if they did, so that anything derived from the old list can be discarded.
+	 */
+	public boolean update(String ids) {
+		if (ids.equals(parsedIds)) {
+			return false;
+		}
+
+		parsedIds = ids;
+		types.clear();
+
+		for (final String id : ids.split(",")) {
+			final String trimmed = id.trim();
+
+			if (!trimmed.isEmpty()) {
+				final Identifier identifier = Identifier.tryParse(trimmed);
+
+				if (identifier != null && registry.containsId(identifier)) {
+					types.add(registry.get(identifier));
+				} else {
+					CanvasMod.LOG.warn("Unrecognized type id in Canvas configuration: " + trimmed);
+				}
+			}
+		}
+
+		return true;
+	}
+
+	public boolean contains(T type) {
+		return types.contains(type);
+	}
+}
@@ -20,11 +20,14 @@ import static grondag.canvas.apiimpl.util.GeometryHelper.AXIS_ALIGNED_FLAG;
 import static grondag.canvas.apiimpl.util.GeometryHelper.CUBIC_FLAG;
 import static grondag.canvas.apiimpl.util.GeometryHelper.LIGHT_FACE_FLAG;
 import static grondag.canvas.light.AoFaceData.OPAQUE;
+import static grondag.canvas.terrain.util.RenderRegionStateIndexer.INTERIOR_STATE_COUNT;
 import static grondag.canvas.terrain.util.RenderRegionStateIndexer.fastOffsetRegionIndex;
 import static grondag.canvas.terrain.util.RenderRegionStateIndexer.offsetInteriorIndex;
 import static grondag.canvas.terrain.util.RenderRegionStateIndexer.regionIndexToXyz5;
 import static grondag.canvas.varia.CanvasMath.clampNormalized;
 
+import java.util.Arrays;
+
 import net.minecraft.util.math.Direction;
 import net.minecraft.util.math.MathHelper;
 
@@ -39,6 +42,7 @@ import grondag.canvas.apiimpl.util.PackedVector3f;
 import grondag.canvas.config.Configurator;
 import grondag.canvas.light.AoFace.Vertex2Float;
 import grondag.canvas.light.AoFace.WeightFunction;
+import grondag.canvas.perf.ChunkRebuildCounters;
 
 /**
  * Adaptation of inner, non-static class in BlockModelRenderer that serves same
@@ -71,6 +75,15 @@ public abstract class AoCalculator {
 	 * Holds per-corner weights - used locally to avoid new allocation.
 	 */
 	private final float[] w = new float[4];
+	/**
+	 * Packed AO, block and sky light corners from {@link #computeRegion()}, three per interior block face.
+	 */
+	private final int[] regionFaceData = new int[INTERIOR_STATE_COUNT * 6 * 3];
+	/**
+	 * One bit per interior block face, set when {@link #regionFaceData} holds a result for the face.
+	 */
+	private final long[] regionFaceFlags = new long[INTERIOR_STATE_COUNT * 6 / 64];
+	private boolean hasRegionData = false;
 	private long blendCacheCompletionLowFlags;
 	private long blendCacheCompletionHighFlags;
 	private int regionRelativeCacheIndex;
@@ -101,6 +114,69 @@ public abstract class AoCalculator {
 
 	protected abstract boolean isOpaque(int cacheIndex);
 
+	/**
+	 * True if the block at the given interior index may emit quads that need lighting.
+	 */
+	protected abstract boolean needsLighting(int interiorIndex);
+
+	/**
+	 * Computes outer face lighting for every exposed face of every block in the region
+	 * in one sweep, so that lighting quads later is a lookup.  Faces that aren't computed
+	 * here, or if this isn't called for the region, are computed as needed.
+	 * Call after the region and its light cache are ready, before any blocks are prepared.
+	 */
+	public void computeRegion() {
+		Arrays.fill(regionFaceFlags, 0);
+		hasRegionData = !Configurator.hdLightmaps();
+
+		if (!hasRegionData) {
+			return;
+		}
+
+		if (ChunkRebuildCounters.ENABLED) {
+			ChunkRebuildCounters.startAoPrecompute();
+		}
+
+		final AoFaceData fd = localData;
+		final int[] data = regionFaceData;
+		final long[] flags = regionFaceFlags;
+		int faceCount = 0;
+
+		for (int index = 0; index < INTERIOR_STATE_COUNT; ++index) {
+			if (!needsLighting(index)) {
+				continue;
+			}
+
+			for (int face = 0; face < 6; ++face) {
+				// hidden faces are rarely lit, leave them for lazy computation
+				if (isOpaque(offsetInteriorIndex(index, ModelHelper.faceFromIndex(face)))) {
+					continue;
+				}
+
+				updateFace(fd, face, true, index);
+
+				final int faceIndex = index * 6 + face;
+				final int dataIndex = faceIndex * 3;
+				data[dataIndex] = fd.calc.packedAo();
+				data[dataIndex + 1] = fd.calc.packedBlockLight();
+				data[dataIndex + 2] = fd.calc.packedSkyLight();
+				flags[faceIndex >> 6] |= 1L << faceIndex;
+				++faceCount;
+			}
+		}
+
+		if (ChunkRebuildCounters.ENABLED) {
+			ChunkRebuildCounters.completeAoPrecompute(faceCount);
+		}
+	}
+
+	/**
+	 * Call instead of {@link #computeRegion()} when region lighting won't be precomputed.
+	 */
+	public void clearRegion() {
+		hasRegionData = false;
+	}
+
 	private boolean checkBlendDirty(int blendIndex) {
 		if (blendIndex < 64) {
 			final long mask = 1L << blendIndex;
@@ -446,16 +522,37 @@ public abstract class AoCalculator {
 
 		if ((completionFlags & mask) == 0) {
 			completionFlags |= mask;
-			updateFace(fd, lightFace, isOnBlockFace);
+
+			if (!isOnBlockFace || !loadRegionFace(fd.calc, lightFace)) {
+				updateFace(fd, lightFace, isOnBlockFace, regionRelativeCacheIndex);
+			}
 		}
 
 		return fd;
 	}
 
-	private void updateFace(AoFaceData fd, final int lightFace, boolean isOnBlockFace) {
-		final boolean hd = Configurator.hdLightmaps();
+	/**
+	 * Copies the precomputed result for the outer face of the current block, if there is one.
+	 * Only the calc result is loaded, which is all non-HD lighting uses.
+	 */
+	private boolean loadRegionFace(AoFaceCalc calc, int lightFace) {
+		final int faceIndex = regionRelativeCacheIndex * 6 + lightFace;
+		final boolean result = hasRegionData && (regionFaceFlags[faceIndex >> 6] & (1L << faceIndex)) != 0;
+
+		if (result) {
+			final int dataIndex = faceIndex * 3;
+			calc.unpack(regionFaceData[dataIndex], regionFaceData[dataIndex + 1], regionFaceData[dataIndex + 2]);
+		}
 
-		int index = regionRelativeCacheIndex;
+		if (ChunkRebuildCounters.ENABLED) {
+			ChunkRebuildCounters.countAoFace(result);
+		}
+
+		return result;
+	}
+
+	private void updateFace(AoFaceData fd, final int lightFace, boolean isOnBlockFace, int index) {
+		final boolean hd = Configurator.hdLightmaps();
 
 		// Overall this is different from vanilla, which seems to be buggy
 		// basically, use neighbor pos unless it is full opaque - in that case cheat and use
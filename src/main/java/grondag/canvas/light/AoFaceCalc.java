@@ -124,6 +124,45 @@ public class AoFaceCalc {
 		skyTopRight = (l >>> 16) & 0xFFFF;
 	}
 
+	/**
+	 * AO corners packed one per byte: bottom right, bottom left, top left, top right.
+	 * All corner values are in the range 0-255.
+	 */
+	int packedAo() {
+		return aoBottomRight | (aoBottomLeft << 8) | (aoTopLeft << 16) | (aoTopRight << 24);
+	}
+
+	/**
+	 * Block light corners packed same as {@link #packedAo()}.
+	 */
+	int packedBlockLight() {
+		return blockBottomRight | (blockBottomLeft << 8) | (blockTopLeft << 16) | (blockTopRight << 24);
+	}
+
+	/**
+	 * Sky light corners packed same as {@link #packedAo()}.
+	 */
+	int packedSkyLight() {
+		return skyBottomRight | (skyBottomLeft << 8) | (skyTopLeft << 16) | (skyTopRight << 24);
+	}
+
+	void unpack(int packedAo, int packedBlockLight, int packedSkyLight) {
+		aoBottomRight = packedAo & 0xFF;
+		aoBottomLeft = (packedAo >> 8) & 0xFF;
+		aoTopLeft = (packedAo >> 16) & 0xFF;
+		aoTopRight = packedAo >>> 24;
+
+		blockBottomRight = packedBlockLight & 0xFF;
+		blockBottomLeft = (packedBlockLight >> 8) & 0xFF;
+		blockTopLeft = (packedBlockLight >> 16) & 0xFF;
+		blockTopRight = packedBlockLight >>> 24;
+
+		skyBottomRight = packedSkyLight & 0xFF;
+		skyBottomLeft = (packedSkyLight >> 8) & 0xFF;
+		skyTopLeft = (packedSkyLight >> 16) & 0xFF;
+		skyTopRight = packedSkyLight >>> 24;
+	}
+
 	int weightedBlockLight(float[] w) {
 		return (int) (blockBottomRight * w[0] + blockBottomLeft * w[1] + blockTopLeft * w[2] + blockTopRight * w[3]) & 0xFF;
 	}
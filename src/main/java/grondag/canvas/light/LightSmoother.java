@@ -20,13 +20,23 @@ import net.minecraft.block.BlockState;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.MathHelper;
 
+import grondag.canvas.perf.ChunkRebuildCounters;
 import grondag.canvas.terrain.region.input.InputRegion;
+import grondag.canvas.terrain.util.RenderRegionStateIndexer;
 
 // TODO: look at VoxelShapes.method_1080 as a way to not propagate thru slabs
 // Also BlockState.hasSidedTransparency seems promising
 
+/**
+ * Blurs block and sky light over a region and stores the result in the region light cache.
+ *
+ * <p>Block and sky light are packed into one long per position, block light in the low
+ * 32 bits and sky light in the high 32 bits, so every pass blurs both channels at once.
+ * Channel values stay well below 2^24 during weighting so they can't carry into each other.
+ * Passes are separable and iterate X innermost to stay on contiguous memory.
+ */
 public class LightSmoother {
-	public static final int OPAQUE = -1;
+	public static final long OPAQUE = -1L;
 	private static final int BLUR_RADIUS = 2;
 	private static final int MARGIN = BLUR_RADIUS + 2;
 	private static final int POS_DIAMETER = 16 + MARGIN * 2;
@@ -37,186 +47,145 @@ public class LightSmoother {
 	private static final int INNER_DIST = 28966; // fractional part of 0xFFFF
 	private static final int OUTER_DIST = (0xFFFF - INNER_DIST) / 2;
 	private static final int INNER_PLUS = INNER_DIST + OUTER_DIST;
+	private static final long ROUNDING = 0x00007FFF00007FFFL;
+
+	/** Sentinel for uniform value tracking. Can't collide with packed light or {@link #OPAQUE}. */
+	private static final long NO_VALUE = Long.MIN_VALUE;
+
+	/** First and last+1 position written to the light cache: one block beyond the region on each side. */
+	private static final int OUTPUT_MIN = MARGIN - 1;
+	private static final int OUTPUT_LIMIT = 16 + MARGIN + 1;
 
 	public static void computeSmoothedBrightness(InputRegion region) {
+		if (ChunkRebuildCounters.ENABLED) {
+			ChunkRebuildCounters.startSmooth();
+		}
+
 		final Helper help = helpers.get();
 		final BlockPos.Mutable smoothPos = help.smoothPos;
-		final int[] sky = help.a;
-		final int[] block = help.b;
+		final long[] light = help.light;
 
 		final int minX = region.originX() - MARGIN;
 		final int minY = region.originY() - MARGIN;
 		final int minZ = region.originZ() - MARGIN;
 
-		for (int x = 0; x < POS_DIAMETER; x++) {
+		long uniformValue = NO_VALUE;
+		boolean isUniform = true;
+
+		for (int z = 0; z < POS_DIAMETER; z++) {
 			for (int y = 0; y < POS_DIAMETER; y++) {
-				for (int z = 0; z < POS_DIAMETER; z++) {
+				for (int x = 0; x < POS_DIAMETER; x++) {
 					final int bx = x + minX;
 					final int by = y + minY;
 					final int bz = z + minZ;
 					smoothPos.set(bx, by, bz);
 
-					final BlockState state = region.getBlockState(bx, by, bz);
-					// don't use cache here because we are populating the cache
-					final int packedLight = region.directBrightness(smoothPos);
+					final int regionIndex = RenderRegionStateIndexer.regionIndex(x - MARGIN, y - MARGIN, z - MARGIN);
+					final BlockState state;
+					final int packedLight;
 
-					final boolean opaque = state.isOpaqueFullCube(region, smoothPos);
+					if (regionIndex == -1) {
+						// outside of region padding so not cached
+						state = region.getBlockState(bx, by, bz);
+						packedLight = region.directBrightness(smoothPos);
+					} else {
+						state = region.getRegionBlockState(regionIndex);
+						// will be overwritten with smoothed value for output positions
+						packedLight = region.cachedBrightness(regionIndex);
+					}
 
-					final int i = index(x, y, z);
+					final long value = state.isOpaqueFullCube(region, smoothPos) ? OPAQUE
+						: (packedLight & 0xFF) | ((long) ((packedLight >>> 16) & 0xFF) << 32);
 
-					if (opaque) {
-						block[i] = OPAQUE;
-						sky[i] = OPAQUE;
-					} else if (packedLight == 0) {
-						block[i] = 0;
-						sky[i] = 0;
-					} else {
-						block[i] = (packedLight & 0xFF);
-						sky[i] = ((packedLight >>> 16) & 0xFF);
+					light[index(x, y, z)] = value;
+
+					if (value != OPAQUE && value != uniformValue) {
+						isUniform &= uniformValue == NO_VALUE;
+						uniformValue = value;
 					}
 				}
 			}
 		}
 
-		final int[] work = help.c;
-		smooth(BLUR_RADIUS + 1, block, work);
-		smooth(BLUR_RADIUS, work, block);
-		//        smooth(1, block, work);
-		//        float[] swap = block;
-		//        block = work;
-		//        work = swap;
-
-		smooth(BLUR_RADIUS + 1, sky, work);
-		smooth(BLUR_RADIUS, work, sky);
-		//        smooth(1, sky, work);
-		//        swap = sky;
-		//        sky = work;
-		//        work = swap;
-
-		final int limit = 16 + MARGIN + 1;
-
-		for (int x = MARGIN - 1; x < limit; x++) {
-			for (int y = MARGIN - 1; y < limit; y++) {
-				for (int z = MARGIN - 1; z < limit; z++) {
-					final int i = index(x, y, z);
-					final int b = MathHelper.clamp(((block[i]) * 104 + 51) / 100, 0, 240);
-					final int k = MathHelper.clamp(((sky[i]) * 104 + 51) / 100, 0, 240);
-					region.setLightCache(x + minX, y + minY, z + minZ, ((b + 2) & 0b11111100) | (((k + 2) & 0b11111100) << 16));
+		// Blurring a single value produces the same value, even next to opaque positions,
+		// so regions with uniform light - open sky, sealed caves, solid stone - skip the blur.
+		if (!isUniform) {
+			final long[] work = help.work;
+			smooth(BLUR_RADIUS + 1, light, work);
+			smooth(BLUR_RADIUS, work, light);
+		}
+
+		for (int z = OUTPUT_MIN; z < OUTPUT_LIMIT; z++) {
+			for (int y = OUTPUT_MIN; y < OUTPUT_LIMIT; y++) {
+				for (int x = OUTPUT_MIN; x < OUTPUT_LIMIT; x++) {
+					final long value = light[index(x, y, z)];
+					region.setLightCache(x + minX, y + minY, z + minZ, value == OPAQUE ? 0 : output(value));
 				}
 			}
 		}
+
+		if (ChunkRebuildCounters.ENABLED) {
+			ChunkRebuildCounters.completeSmooth(isUniform);
+		}
+	}
+
+	private static int output(long value) {
+		final int b = MathHelper.clamp(((int) (value & 0xFFFF) * 104 + 51) / 100, 0, 240);
+		final int k = MathHelper.clamp(((int) (value >>> 32) * 104 + 51) / 100, 0, 240);
+		return ((b + 2) & 0b11111100) | (((k + 2) & 0b11111100) << 16);
 	}
 
 	private static int index(int x, int y, int z) {
 		return x + y * Y_INC + z * Z_INC;
 	}
 
-	private static void smooth(int margin, int[] src, int[] dest) {
-		final int xBase = MARGIN - margin;
-		final int xLimit = POS_DIAMETER - MARGIN + margin;
+	/**
+	 * Three-tap blur along X, Y and Z. Result ends up in dest. Src is used as scratch.
+	 */
+	private static void smooth(int margin, long[] src, long[] dest) {
+		final int base = MARGIN - margin;
+		final int limit = POS_DIAMETER - MARGIN + margin;
 
-		final int yBase = xBase * Y_INC;
-		final int yLimit = xLimit * Y_INC;
-		final int zBase = xBase * Z_INC;
-		final int zLimit = xLimit * Z_INC;
+		blurAxis(src, dest, base, limit, 1);
+		blurAxis(dest, src, base, limit, Y_INC);
+		blurAxis(src, dest, base, limit, Z_INC);
+	}
 
-		// X PASS
-		for (int x = xBase; x < xLimit; x++) {
-			for (int y = yBase; y < yLimit; y += Y_INC) {
-				for (int z = zBase; z < zLimit; z += Z_INC) {
-					final int i = x + y + z;
+	private static void blurAxis(long[] src, long[] dest, int base, int limit, int inc) {
+		final int rowLength = limit - base;
 
-					final int c = src[i];
+		for (int z = base; z < limit; z++) {
+			for (int y = base; y < limit; y++) {
+				final int rowStart = index(base, y, z);
+				final int rowLimit = rowStart + rowLength;
+
+				for (int i = rowStart; i < rowLimit; i++) {
+					final long c = src[i];
 
 					if (c == OPAQUE) {
 						dest[i] = OPAQUE;
 						continue;
 					}
 
-					//                    int a = src[index(x + 1, y, z)];
-					//                    int b = src[index(x - 1, y, z)];
-					final int a = src[i + 1];
-					final int b = src[i - 1];
+					final long a = src[i + inc];
+					final long b = src[i - inc];
+					final long sum;
 
 					if (a == OPAQUE) {
 						if (b == OPAQUE) {
 							dest[i] = c;
-						} else {
-							dest[i] = (b * OUTER_DIST + c * INNER_PLUS + 0x7FFF) >> 16;
+							continue;
 						}
-					} else if (b == OPAQUE) {
-						dest[i] = (a * OUTER_DIST + c * INNER_PLUS + 0x7FFF) >> 16;
-					} else {
-						dest[i] = (a * OUTER_DIST + b * OUTER_DIST + c * INNER_DIST + 0x7FFF) >> 16;
-					}
-				}
-			}
-		}
-
-		// Y PASS
-		for (int x = xBase; x < xLimit; x++) {
-			for (int y = yBase; y < yLimit; y += Y_INC) {
-				for (int z = zBase; z < zLimit; z += Z_INC) {
-					final int i = x + y + z;
-
-					// Note arrays are swapped here
-					final int c = dest[i];
 
-					if (c == OPAQUE) {
-						src[i] = OPAQUE;
-						continue;
-					}
-
-					//                    int a = dest[index(x, y - 1, z)];
-					//                    int b = dest[index(x, y + 1, z)];
-					final int a = dest[i + Y_INC];
-					final int b = dest[i - Y_INC];
-
-					if (a == OPAQUE) {
-						if (b == OPAQUE) {
-							src[i] = c;
-						} else {
-							src[i] = (b * OUTER_DIST + c * INNER_PLUS + 0x7FFF) >> 16;
-						}
+						sum = b * OUTER_DIST + c * INNER_PLUS;
 					} else if (b == OPAQUE) {
-						src[i] = (a * OUTER_DIST + c * INNER_PLUS + 0x7FFF) >> 16;
+						sum = a * OUTER_DIST + c * INNER_PLUS;
 					} else {
-						src[i] = (a * OUTER_DIST + b * OUTER_DIST + c * INNER_DIST + 0x7FFF) >> 16;
-					}
-				}
-			}
-		}
-
-		// Z PASS
-		for (int x = xBase; x < xLimit; x++) {
-			for (int y = yBase; y < yLimit; y += Y_INC) {
-				for (int z = zBase; z < zLimit; z += Z_INC) {
-					final int i = x + y + z;
-
-					// Arrays are swapped back to original roles here
-					final int c = src[i];
-
-					if (c == OPAQUE) {
-						dest[i] = OPAQUE;
-						continue;
+						sum = (a + b) * OUTER_DIST + c * INNER_DIST;
 					}
 
-					//                    int a = src[index(x, y, z - 1)];
-					//                    int b = src[index(x, y, z + 1)];
-					final int a = src[i + Z_INC];
-					final int b = src[i - Z_INC];
-
-					if (a == OPAQUE) {
-						if (b == OPAQUE) {
-							dest[i] = c;
-						} else {
-							dest[i] = (b * OUTER_DIST + c * INNER_PLUS + 0x7FFF) >> 16;
-						}
-					} else if (b == OPAQUE) {
-						dest[i] = (a * OUTER_DIST + c * INNER_PLUS + 0x7FFF) >> 16;
-					} else {
-						dest[i] = (a * OUTER_DIST + b * OUTER_DIST + c * INNER_DIST + 0x7FFF) >> 16;
-					}
+					final long rounded = sum + ROUNDING;
+					dest[i] = ((rounded >>> 16) & 0xFFFF) | ((rounded >>> 48) << 32);
 				}
 			}
 		}
@@ -224,8 +193,7 @@ public class LightSmoother {
 
 	private static class Helper {
 		private final BlockPos.Mutable smoothPos = new BlockPos.Mutable();
-		private final int[] a = new int[POS_COUNT];
-		private final int[] b = new int[POS_COUNT];
-		private final int[] c = new int[POS_COUNT];
+		private final long[] light = new long[POS_COUNT];
+		private final long[] work = new long[POS_COUNT];
 	}
 }
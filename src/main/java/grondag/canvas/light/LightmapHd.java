@@ -16,73 +16,108 @@
 
 package grondag.canvas.light;
 
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
-import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import org.jetbrains.annotations.Nullable;
 
 import net.minecraft.client.resource.language.I18n;
-import net.minecraft.util.math.MathHelper;
 
 import grondag.canvas.CanvasMod;
 import grondag.canvas.apiimpl.mesh.MutableQuadViewImpl;
 
-class LightmapHd {
-	// MAYBE: use Fermion cache
-	static final Object2ObjectOpenHashMap<AoFaceData, LightmapHd> MAP = new Object2ObjectOpenHashMap<>(MathHelper.smallestEncompassingPowerOfTwo(LightmapSizer.maxCount), LightmapSizer.maxCount / (float) MathHelper.smallestEncompassingPowerOfTwo(LightmapSizer.maxCount));
+/**
+ * Shared HD lightmap for all faces with equivalent {@link AoFaceData}.
+ *
+ * <p>Face data that are rotations or mirror images of each other produce lightmaps that are
+ * rotations or mirror images of each other, so only a canonical orientation is rendered to the
+ * texture and each instance maps quad coordinates into it.  This cuts texture use up to 8X.
+ *
+ * <p>Texture slots are not freed until reload. Once the texture is full, lookups that miss return null
+ * without copying the key or trying to allocate, so a full texture costs one map lookup per face.
+ */
+public class LightmapHd {
+	private static final int SWAP_UV = 1;
+	private static final int FLIP_U = 2;
+	private static final int FLIP_V = 4;
+	private static final int ORIENTATION_COUNT = 8;
+
+	/** Light values followed by AO values, each in a 3x3 grid with row zero at top. */
+	private static final int GRID_VALUES = 18;
+
+	/** For each orientation, the face data index that ends up at each canonical index. */
+	private static final int[][] PERMUTATIONS = new int[ORIENTATION_COUNT][GRID_VALUES];
+
+	private static final ConcurrentHashMap<AoFaceData, Slot> MAP = new ConcurrentHashMap<>(4096, 0.75f, Runtime.getRuntime().availableProcessors());
 	private static final AtomicInteger nextIndex = new AtomicInteger();
-	private static boolean errorNoticeNeeded = true;
+	private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+	private static final LongAdder hitCount = new LongAdder();
+	private static final LongAdder missCount = new LongAdder();
+	private static volatile boolean errorNoticeNeeded = true;
+	/** Set once every slot is handed out; cleared on reload. */
+	private static volatile boolean isFull = false;
+
+	static {
+		for (int o = 0; o < ORIENTATION_COUNT; ++o) {
+			for (int v = 0; v < 3; ++v) {
+				for (int u = 0; u < 3; ++u) {
+					final int from = (int) transformV(o, u, v, 2) * 3 + (int) transformU(o, u, v, 2);
+					PERMUTATIONS[o][v * 3 + u] = from;
+					PERMUTATIONS[o][v * 3 + u + 9] = from + 9;
+				}
+			}
+		}
+	}
+
 	public final int uMinImg;
 	public final int vMinImg;
-	private final int[] light;
 
-	private LightmapHd(AoFaceData faceData) {
-		final int index = nextIndex.getAndIncrement();
-		final int s = index % LightmapSizer.mapsPerAxis;
-		final int t = index / LightmapSizer.mapsPerAxis;
+	/** Maps quad coordinates to canonical orientation. */
+	private final int uvTransform;
+
+	private LightmapHd(Slot slot, int orientation) {
+		final int s = slot.index % LightmapSizer.mapsPerAxis;
+		final int t = slot.index / LightmapSizer.mapsPerAxis;
 		uMinImg = s * LightmapSizer.paddedSize;
 		vMinImg = t * LightmapSizer.paddedSize;
-		light = new int[LightmapSizer.lightmapPixels];
+		uvTransform = inverse(orientation);
+	}
 
-		if (index >= LightmapSizer.maxCount) {
-			if (errorNoticeNeeded) {
-				CanvasMod.LOG.warn(I18n.translate("error.canvas.fail_create_lightmap"));
-				errorNoticeNeeded = false;
-			}
-		} else {
-			// MAYBE: pool these and the main array - not needed after upload
-
-			final int[] aoLight = new int[LightmapSizer.lightmapPixels];
-			final int[] skyLight = new int[LightmapSizer.lightmapPixels];
-			final int[] blockLight = new int[LightmapSizer.lightmapPixels];
-
-			// MAYBE: make this an option for AO debugging
-			//			Arrays.fill(skyLight, 255);
-			//			Arrays.fill(blockLight, 255);
-
-			// MAYBE: skips steps when all unit value or same  value
-			LightmapHdCalc.computeAo(aoLight, faceData);
-			LightmapHdCalc.computeLight(blockLight, faceData, false);
-			LightmapHdCalc.computeLight(skyLight, faceData, true);
-
-			for (int i = 0; i < LightmapSizer.lightmapPixels; ++i) {
-				final int ao = aoLight[i];
-				final int sky = skyLight[i]; // * ao / 255;
-				final int block = blockLight[i]; // * ao / 255;
-				light[i] = (sky << 24) | (ao << 16) | (block << 8) | ao;
-			}
+	static float transformU(int orientation, float u, float v, float max) {
+		final float a = (orientation & SWAP_UV) == 0 ? u : v;
+		return (orientation & FLIP_U) == 0 ? a : max - a;
+	}
 
-			LightmapHdTexture.instance().enque(this);
+	static float transformV(int orientation, float u, float v, float max) {
+		final float b = (orientation & SWAP_UV) == 0 ? v : u;
+		return (orientation & FLIP_V) == 0 ? b : max - b;
+	}
+
+	static int inverse(int orientation) {
+		if ((orientation & SWAP_UV) == 0) {
+			return orientation;
 		}
+
+		return SWAP_UV | ((orientation & FLIP_U) == 0 ? 0 : FLIP_V) | ((orientation & FLIP_V) == 0 ? 0 : FLIP_U);
 	}
 
 	public static String occupancyReport() {
-		final int i = nextIndex.get();
-		return String.format("%d of %d ( %d percent )", i, LightmapSizer.maxCount, i * 100 / LightmapSizer.maxCount);
+		final int used = nextIndex.get();
+		final long hits = hitCount.sum();
+		final long lookups = hits + missCount.sum();
+
+		return String.format("HD lightmaps: %d of %d (%d%%) hit rate %d%%",
+				used, LightmapSizer.maxCount, used * 100 / LightmapSizer.maxCount,
+				lookups == 0 ? 0 : hits * 100 / lookups);
 	}
 
 	public static void reload() {
-		nextIndex.set(0);
 		MAP.clear();
+		nextIndex.set(0);
+		isFull = false;
+		hitCount.reset();
+		missCount.reset();
 		errorNoticeNeeded = true;
 	}
 
@@ -90,37 +125,181 @@ class LightmapHd {
 		return v * LightmapSizer.paddedSize + u;
 	}
 
-	// MAYBE: can reduce texture consumption 8X by reusing rotations/inversions
-	public static LightmapHd find(AoFaceData faceData) {
-		LightmapHd result = MAP.get(faceData);
+	/**
+	 * Returns the lightmap for the given face data, or null if the lightmap texture is full.
+	 */
+	public static @Nullable LightmapHd find(AoFaceData faceData) {
+		final Scratch scratch = SCRATCH.get();
+		final int orientation = canonicalize(faceData, scratch.values, scratch.key);
+		Slot slot = MAP.get(scratch.key);
 
-		if (result == null) {
-			synchronized (MAP) {
-				result = MAP.get(faceData);
+		if (slot == null) {
+			if (isFull) {
+				return null;
+			}
 
-				if (result == null) {
-					result = new LightmapHd(faceData);
-					MAP.put(faceData.clone(), result);
-				}
+			// key is only copied on a miss; the bin lock keeps two threads from rendering the same lightmap
+			slot = MAP.computeIfAbsent(scratch.key.clone(), k -> createSlot(k, scratch));
+
+			if (slot == null) {
+				return null;
+			}
+		} else {
+			hitCount.increment();
+		}
+
+		return slot.views[orientation];
+	}
+
+	private static @Nullable Slot createSlot(AoFaceData key, Scratch scratch) {
+		final int index = nextIndex.getAndUpdate(i -> i < LightmapSizer.maxCount ? i + 1 : i);
+
+		if (index >= LightmapSizer.maxCount) {
+			isFull = true;
+
+			if (errorNoticeNeeded) {
+				CanvasMod.LOG.warn(I18n.translate("error.canvas.fail_create_lightmap"));
+				errorNoticeNeeded = false;
 			}
+
+			return null;
 		}
 
+		missCount.increment();
+		final Slot result = new Slot(index);
+		computePixels(key, scratch);
+		LightmapHdTexture.instance().enque(result.views[0], scratch.light);
 		return result;
 	}
 
 	/**
-	 * Handles padding.
+	 * Writes the orientation of face data that sorts lowest to key and returns
+	 * the orientation that transforms the key back to the input.
+	 *
+	 * @param values scratch array of length {@link #GRID_VALUES}
+	 */
+	static int canonicalize(AoFaceData faceData, int[] values, AoFaceData key) {
+		values[0] = faceData.topLeft;
+		values[1] = faceData.top;
+		values[2] = faceData.topRight;
+		values[3] = faceData.left;
+		values[4] = faceData.center;
+		values[5] = faceData.right;
+		values[6] = faceData.bottomLeft;
+		values[7] = faceData.bottom;
+		values[8] = faceData.bottomRight;
+		values[9] = faceData.aoTopLeft;
+		values[10] = faceData.aoTop;
+		values[11] = faceData.aoTopRight;
+		values[12] = faceData.aoLeft;
+		values[13] = faceData.aoCenter;
+		values[14] = faceData.aoRight;
+		values[15] = faceData.aoBottomLeft;
+		values[16] = faceData.aoBottom;
+		values[17] = faceData.aoBottomRight;
+
+		int best = 0;
+
+		for (int o = 1; o < ORIENTATION_COUNT; ++o) {
+			final int[] candidate = PERMUTATIONS[o];
+			final int[] current = PERMUTATIONS[best];
+
+			for (int i = 0; i < GRID_VALUES; ++i) {
+				final int c = values[candidate[i]];
+				final int b = values[current[i]];
+
+				if (c != b) {
+					if (c < b) {
+						best = o;
+					}
+
+					break;
+				}
+			}
+		}
+
+		final int[] p = PERMUTATIONS[best];
+		key.topLeft = values[p[0]];
+		key.top = values[p[1]];
+		key.topRight = values[p[2]];
+		key.left = values[p[3]];
+		key.center = values[p[4]];
+		key.right = values[p[5]];
+		key.bottomLeft = values[p[6]];
+		key.bottom = values[p[7]];
+		key.bottomRight = values[p[8]];
+		key.aoTopLeft = values[p[9]];
+		key.aoTop = values[p[10]];
+		key.aoTopRight = values[p[11]];
+		key.aoLeft = values[p[12]];
+		key.aoCenter = values[p[13]];
+		key.aoRight = values[p[14]];
+		key.aoBottomLeft = values[p[15]];
+		key.aoBottom = values[p[16]];
+		key.aoBottomRight = values[p[17]];
+		key.updateHash();
+
+		return best;
+	}
+
+	/**
+	 * Renders lightmap pixels for the face data to {@link Scratch#light}.
 	 */
-	public int pixel(int u, int v) {
-		return light[v * LightmapSizer.paddedSize + u];
+	static void computePixels(AoFaceData faceData, Scratch scratch) {
+		final int[] aoLight = scratch.aoLight;
+		final int[] skyLight = scratch.skyLight;
+		final int[] blockLight = scratch.blockLight;
+		final int[] light = scratch.light;
+
+		// MAYBE: make this an option for AO debugging
+		//			Arrays.fill(skyLight, 255);
+		//			Arrays.fill(blockLight, 255);
+
+		// MAYBE: skips steps when all unit value or same  value
+		LightmapHdCalc.computeAo(aoLight, faceData);
+		LightmapHdCalc.computeLight(blockLight, faceData, false);
+		LightmapHdCalc.computeLight(skyLight, faceData, true);
+
+		for (int i = 0; i < LightmapSizer.lightmapPixels; ++i) {
+			final int ao = aoLight[i];
+			final int sky = skyLight[i]; // * ao / 255;
+			final int block = blockLight[i]; // * ao / 255;
+			light[i] = (sky << 24) | (ao << 16) | (block << 8) | ao;
+		}
 	}
 
 	public int coord(MutableQuadViewImpl q, int i) {
+		final float qu = transformU(uvTransform, q.u[i], q.v[i], 1f);
+		final float qv = transformV(uvTransform, q.u[i], q.v[i], 1f);
 		final int u, v;
 
-		u = Math.round((uMinImg + 0.5f + q.u[i] * LightmapSizer.centerToCenterPixelDistance) * LightmapSizer.textureToBuffer);
-		v = Math.round((vMinImg + 0.5f + q.v[i] * LightmapSizer.centerToCenterPixelDistance) * LightmapSizer.textureToBuffer);
+		u = Math.round((uMinImg + 0.5f + qu * LightmapSizer.centerToCenterPixelDistance) * LightmapSizer.textureToBuffer);
+		v = Math.round((vMinImg + 0.5f + qv * LightmapSizer.centerToCenterPixelDistance) * LightmapSizer.textureToBuffer);
 
 		return u | (v << 16);
 	}
+
+	/** A texture location with one lightmap instance per orientation. */
+	private static final class Slot {
+		private final int index;
+		private final LightmapHd[] views = new LightmapHd[ORIENTATION_COUNT];
+
+		private Slot(int index) {
+			this.index = index;
+
+			for (int o = 0; o < ORIENTATION_COUNT; ++o) {
+				views[o] = new LightmapHd(this, o);
+			}
+		}
+	}
+
+	/** Per-thread working memory so lookups and misses don't allocate. */
+	static final class Scratch {
+		final int[] values = new int[GRID_VALUES];
+		final AoFaceData key = new AoFaceData();
+		final int[] aoLight = new int[LightmapSizer.lightmapPixels];
+		final int[] skyLight = new int[LightmapSizer.lightmapPixels];
+		final int[] blockLight = new int[LightmapSizer.lightmapPixels];
+		final int[] light = new int[LightmapSizer.lightmapPixels];
+	}
 }
@@ -71,14 +71,19 @@ class LightmapHdTexture implements AutoCloseable {
 		texture.upload();
 	}
 
-	public void enque(LightmapHd lightmap) {
+	/**
+	 * Copies lightmap pixels to the image and schedules upload.
+	 *
+	 * @param light padded lightmap pixels, only read during this call
+	 */
+	public void enque(LightmapHd lightmap, int[] light) {
 		final SimpleImage image = this.image;
 		final int uMap = lightmap.uMinImg;
 		final int vMap = lightmap.vMinImg;
 
 		for (int u = 0; u < LightmapSizer.paddedSize; u++) {
 			for (int v = 0; v < LightmapSizer.paddedSize; v++) {
-				image.setPixelRGBA(uMap + u, vMap + v, lightmap.pixel(u, v));
+				image.setPixelRGBA(uMap + u, vMap + v, light[LightmapHd.lightIndex(u, v)]);
 			}
 		}
 
@@ -30,6 +30,7 @@ import grondag.canvas.material.property.MaterialWriteMask;
 import grondag.canvas.shader.MaterialShaderId;
 import grondag.canvas.shader.MaterialShaderImpl;
 import grondag.canvas.shader.data.ShaderStrings;
+import grondag.canvas.texture.MaterialIndexer;
 import grondag.fermion.bits.BitPacker64;
 import grondag.frex.api.material.MaterialFinder;
 
@@ -227,6 +228,8 @@ abstract class AbstractRenderStateView {
 
 	static {
 		assert PACKER.bitLength() <= 64;
+		// first unused shader flag bit is reserved for sprite repeat
+		assert MaterialIndexer.REPEAT_UV_SHADER_FLAG == 1 << (PACKER.bitLength() - FLAG_SHIFT);
 
 		long defaultBits = 0; //PRIMITIVE.setValue(GL11.GL_QUADS, 0);
 
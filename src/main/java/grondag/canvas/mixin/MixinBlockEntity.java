@@ -0,0 +1,47 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.nbt.NbtCompound;
+
+import grondag.canvas.mixinterface.BlockEntityExt;
+
+@Mixin(BlockEntity.class)
+public class MixinBlockEntity implements BlockEntityExt {
+	private int canvas_changeCount;
+
+	@Inject(at = @At("RETURN"), method = "readNbt")
+	private void afterReadNbt(NbtCompound nbt, CallbackInfo ci) {
+		++canvas_changeCount;
+	}
+
+	@Inject(at = @At("HEAD"), method = "markDirty()V")
+	private void onMarkDirty(CallbackInfo ci) {
+		++canvas_changeCount;
+	}
+
+	@Override
+	public int canvas_changeCount() {
+		return canvas_changeCount;
+	}
+}
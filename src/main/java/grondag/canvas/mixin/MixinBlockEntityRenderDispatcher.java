@@ -0,0 +1,42 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.client.render.block.entity.BlockEntityRenderDispatcher;
+import net.minecraft.client.render.block.entity.BlockEntityRenderer;
+
+import grondag.canvas.render.world.ParallelEntityRenderer;
+
+@Mixin(BlockEntityRenderDispatcher.class)
+public abstract class MixinBlockEntityRenderDispatcher {
+	@SuppressWarnings("unchecked")
+	@Inject(method = "get", at = @At("HEAD"), cancellable = true, require = 1)
+	private <E extends BlockEntity> void onGet(E blockEntity, CallbackInfoReturnable<BlockEntityRenderer<E>> cir) {
+		// entity workers use their own renderers so model state is never shared between threads
+		final BlockEntityRenderer<?> renderer = ParallelEntityRenderer.workerRenderer(blockEntity);
+
+		if (renderer != null) {
+			cir.setReturnValue((BlockEntityRenderer<E>) renderer);
+		}
+	}
+}
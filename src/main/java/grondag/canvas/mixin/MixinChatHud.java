@@ -0,0 +1,40 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.gui.hud.ChatHud;
+
+import grondag.canvas.mixinterface.TextRendererExt;
+
+@Mixin(ChatHud.class)
+public class MixinChatHud {
+	@Inject(method = "render", at = @At("HEAD"), cancellable = false, require = 1)
+	private void beforeRender(CallbackInfo ci) {
+		((TextRendererExt) MinecraftClient.getInstance().textRenderer).canvas_beginBatchDraw();
+	}
+
+	@Inject(method = "render", at = @At("RETURN"), cancellable = false, require = 1)
+	private void afterRender(CallbackInfo ci) {
+		((TextRendererExt) MinecraftClient.getInstance().textRenderer).canvas_endBatchDraw();
+	}
+}
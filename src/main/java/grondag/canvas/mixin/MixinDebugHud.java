@@ -42,12 +42,15 @@ import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.util.math.Matrix4f;
 
 import grondag.canvas.CanvasMod;
+import grondag.canvas.apiimpl.rendercontext.ItemRenderContext;
 import grondag.canvas.buffer.input.ArrayVertexCollector;
 import grondag.canvas.buffer.render.TransferBuffers;
 import grondag.canvas.buffer.util.DirectBufferAllocator;
 import grondag.canvas.buffer.util.GlBufferAllocator;
 import grondag.canvas.config.Configurator;
+import grondag.canvas.light.LightmapHd;
 import grondag.canvas.mixinterface.BufferBuilderExt;
+import grondag.canvas.mixinterface.TextRendererExt;
 import grondag.canvas.render.terrain.cluster.SlabAllocator;
 import grondag.canvas.render.world.CanvasWorldRenderer;
 import grondag.canvas.terrain.util.TerrainExecutor;
@@ -203,8 +206,25 @@ public class MixinDebugHud extends DrawableHelper {
 		final var worldRenderState = CanvasWorldRenderer.instance().worldRenderState;
 		result.add("Solid " + worldRenderState.solidClusterRealm.debugSummary());
 		result.add("Translucent " + worldRenderState.translucentClusterRealm.debugSummary());
+		result.add("LOD " + worldRenderState.lodClusterRealm.debugSummary());
+
+		result.add(worldRenderState.terrainIterator.cameraVisibility.occluderDebugSummary());
+		result.add(worldRenderState.cwr.entityOcclusionDebugSummary());
+		result.add(worldRenderState.cwr.entityFrameSkipDebugSummary());
+		result.add(worldRenderState.cwr.blockEntityBakeDebugSummary());
+		result.add(ItemRenderContext.get().guiItemCacheDebugSummary());
+		result.add(((TextRendererExt) textRenderer).canvas_batchDebugSummary());
+
+		if (worldRenderState.shadowsEnabled()) {
+			result.add(worldRenderState.shadowCullingDebugSummary());
+		}
+
 		result.add(SlabAllocator.debugSummary());
 
+		if (Configurator.hdLightmaps()) {
+			result.add(LightmapHd.occupancyReport());
+		}
+
 		return result;
 	}
 }
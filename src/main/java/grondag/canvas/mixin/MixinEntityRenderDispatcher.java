@@ -18,11 +18,17 @@ package grondag.canvas.mixin;
 
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 import net.minecraft.client.render.RenderLayer;
 import net.minecraft.client.render.entity.EntityRenderDispatcher;
+import net.minecraft.client.render.entity.EntityRenderer;
+import net.minecraft.entity.Entity;
 
 import grondag.canvas.mixinterface.EntityRenderDispatcherExt;
+import grondag.canvas.render.world.ParallelEntityRenderer;
 
 @Mixin(EntityRenderDispatcher.class)
 public abstract class MixinEntityRenderDispatcher implements EntityRenderDispatcherExt {
@@ -33,4 +39,15 @@ public abstract class MixinEntityRenderDispatcher implements EntityRenderDispatc
 	public RenderLayer canvas_shadowLayer() {
 		return SHADOW_LAYER;
 	}
+
+	@SuppressWarnings("unchecked")
+	@Inject(method = "getRenderer", at = @At("HEAD"), cancellable = true, require = 1)
+	private <T extends Entity> void onGetRenderer(T entity, CallbackInfoReturnable<EntityRenderer<? super T>> cir) {
+		// entity workers use their own renderers so model state is never shared between threads
+		final EntityRenderer<?> renderer = ParallelEntityRenderer.workerRenderer(entity);
+
+		if (renderer != null) {
+			cir.setReturnValue((EntityRenderer<? super T>) renderer);
+		}
+	}
 }
@@ -45,8 +45,6 @@ public abstract class MixinGlyphRenderer {
 	// NB: size in bytes is size of integer array for whole quad
 	private static final int[] quadData = new int[VertexFormats.POSITION_COLOR_TEXTURE_LIGHT.getVertexSize()];
 
-	// PERF: consider handling drawRectangle also
-
 	/**
 	 * @author grondag
 	 * @reason performance; calls are too frequent and parameter stack too large for inject to perform well
@@ -67,48 +65,13 @@ public abstract class MixinGlyphRenderer {
 				&& RenderSystem.isOnRenderThread() // This last is because we are using static vars
 		) {
 			final Matrix4fExt matrix = Matrix4fExt.cast(matrix4f);
-			final int color = (int) (red * 255.0F) | ((int) (green * 255.0F) << 8) | ((int) (blue * 255.0F) << 16) | ((int) (alpha * 255.0F) << 24);
+			final int color = packColor(red, green, blue, alpha);
 			int i = 0;
 
-			pos.set(x0 + obqTop, top, 0.0F);
-			matrix.fastTransform(pos);
-			quadData[i++] = Float.floatToRawIntBits(pos.getX());
-			quadData[i++] = Float.floatToRawIntBits(pos.getY());
-			quadData[i++] = Float.floatToRawIntBits(pos.getZ());
-			quadData[i++] = color;
-			quadData[i++] = Float.floatToRawIntBits(minU);
-			quadData[i++] = Float.floatToRawIntBits(minV);
-			quadData[i++] = lightmap;
-
-			pos.set(x0 + obqBotom, bottom, 0.0F);
-			matrix.fastTransform(pos);
-			quadData[i++] = Float.floatToRawIntBits(pos.getX());
-			quadData[i++] = Float.floatToRawIntBits(pos.getY());
-			quadData[i++] = Float.floatToRawIntBits(pos.getZ());
-			quadData[i++] = color;
-			quadData[i++] = Float.floatToRawIntBits(minU);
-			quadData[i++] = Float.floatToRawIntBits(maxV);
-			quadData[i++] = lightmap;
-
-			pos.set(x1 + obqBotom, bottom, 0.0F);
-			matrix.fastTransform(pos);
-			quadData[i++] = Float.floatToRawIntBits(pos.getX());
-			quadData[i++] = Float.floatToRawIntBits(pos.getY());
-			quadData[i++] = Float.floatToRawIntBits(pos.getZ());
-			quadData[i++] = color;
-			quadData[i++] = Float.floatToRawIntBits(maxU);
-			quadData[i++] = Float.floatToRawIntBits(maxV);
-			quadData[i++] = lightmap;
-
-			pos.set(x1 + obqTop, top, 0.0F);
-			matrix.fastTransform(pos);
-			quadData[i++] = Float.floatToRawIntBits(pos.getX());
-			quadData[i++] = Float.floatToRawIntBits(pos.getY());
-			quadData[i++] = Float.floatToRawIntBits(pos.getZ());
-			quadData[i++] = color;
-			quadData[i++] = Float.floatToRawIntBits(maxU);
-			quadData[i++] = Float.floatToRawIntBits(minV);
-			quadData[i++] = lightmap;
+			i = putVertex(i, matrix, x0 + obqTop, top, 0.0F, color, minU, minV, lightmap);
+			i = putVertex(i, matrix, x0 + obqBotom, bottom, 0.0F, color, minU, maxV, lightmap);
+			i = putVertex(i, matrix, x1 + obqBotom, bottom, 0.0F, color, maxU, maxV, lightmap);
+			i = putVertex(i, matrix, x1 + obqTop, top, 0.0F, color, maxU, minV, lightmap);
 
 			assert i == quadData.length;
 			extBuilder.canvas_putQuadDirect(quadData);
@@ -119,4 +82,62 @@ public abstract class MixinGlyphRenderer {
 			vertexConsumer.vertex(matrix4f, x1 + obqTop, top, 0.0F).color(red, green, blue, alpha).texture(maxU, minV).light(lightmap).next();
 		}
 	}
+
+	/**
+	 * @author grondag
+	 * @reason performance; used for text backgrounds, underline and strikethrough
+	 */
+	@Overwrite
+	public void drawRectangle(GlyphRenderer.Rectangle rectangle, Matrix4f matrix4f, VertexConsumer vertexConsumer, int light) {
+		final AccessGlyphRectangle rect = (AccessGlyphRectangle) rectangle;
+		final float x0 = rect.getMinX();
+		final float y0 = rect.getMinY();
+		final float x1 = rect.getMaxX();
+		final float y1 = rect.getMaxY();
+		final float z = rect.getZIndex();
+
+		if (vertexConsumer instanceof BufferBuilderExt extBuilder
+				&& extBuilder.canvas_canSupportDirect(VertexFormats.POSITION_COLOR_TEXTURE_LIGHT)
+				&& RenderSystem.isOnRenderThread()
+		) {
+			final Matrix4fExt matrix = Matrix4fExt.cast(matrix4f);
+			final int color = packColor(rect.getRed(), rect.getGreen(), rect.getBlue(), rect.getAlpha());
+			int i = 0;
+
+			i = putVertex(i, matrix, x0, y0, z, color, minU, minV, light);
+			i = putVertex(i, matrix, x1, y0, z, color, minU, maxV, light);
+			i = putVertex(i, matrix, x1, y1, z, color, maxU, maxV, light);
+			i = putVertex(i, matrix, x0, y1, z, color, maxU, minV, light);
+
+			assert i == quadData.length;
+			extBuilder.canvas_putQuadDirect(quadData);
+		} else {
+			final float red = rect.getRed();
+			final float green = rect.getGreen();
+			final float blue = rect.getBlue();
+			final float alpha = rect.getAlpha();
+			vertexConsumer.vertex(matrix4f, x0, y0, z).color(red, green, blue, alpha).texture(minU, minV).light(light).next();
+			vertexConsumer.vertex(matrix4f, x1, y0, z).color(red, green, blue, alpha).texture(minU, maxV).light(light).next();
+			vertexConsumer.vertex(matrix4f, x1, y1, z).color(red, green, blue, alpha).texture(maxU, maxV).light(light).next();
+			vertexConsumer.vertex(matrix4f, x0, y1, z).color(red, green, blue, alpha).texture(maxU, minV).light(light).next();
+		}
+	}
+
+	private static int packColor(float red, float green, float blue, float alpha) {
+		return (int) (red * 255.0F) | ((int) (green * 255.0F) << 8) | ((int) (blue * 255.0F) << 16) | ((int) (alpha * 255.0F) << 24);
+	}
+
+	/** Writes one vertex to the static quad array and returns the next index. */
+	private static int putVertex(int i, Matrix4fExt matrix, float x, float y, float z, int color, float u, float v, int lightmap) {
+		pos.set(x, y, z);
+		matrix.fastTransform(pos);
+		quadData[i++] = Float.floatToRawIntBits(pos.getX());
+		quadData[i++] = Float.floatToRawIntBits(pos.getY());
+		quadData[i++] = Float.floatToRawIntBits(pos.getZ());
+		quadData[i++] = color;
+		quadData[i++] = Float.floatToRawIntBits(u);
+		quadData[i++] = Float.floatToRawIntBits(v);
+		quadData[i++] = lightmap;
+		return i;
+	}
 }
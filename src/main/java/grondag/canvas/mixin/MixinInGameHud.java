@@ -26,6 +26,7 @@ import net.minecraft.client.gui.hud.InGameHud;
 import net.minecraft.client.util.math.MatrixStack;
 
 import grondag.canvas.config.Configurator;
+import grondag.canvas.mixinterface.TextRendererExt;
 import grondag.canvas.perf.Timekeeper;
 import grondag.canvas.pipeline.BufferDebug;
 
@@ -37,6 +38,16 @@ public class MixinInGameHud {
 		Timekeeper.renderOverlay(matrices, ((InGameHud) (Object) this).getTextRenderer());
 	}
 
+	@Inject(method = "renderScoreboardSidebar", at = @At("HEAD"), cancellable = false, require = 1)
+	private void beforeRenderScoreboardSidebar(CallbackInfo ci) {
+		((TextRendererExt) ((InGameHud) (Object) this).getTextRenderer()).canvas_beginBatchDraw();
+	}
+
+	@Inject(method = "renderScoreboardSidebar", at = @At("RETURN"), cancellable = false, require = 1)
+	private void afterRenderScoreboardSidebar(CallbackInfo ci) {
+		((TextRendererExt) ((InGameHud) (Object) this).getTextRenderer()).canvas_endBatchDraw();
+	}
+
 	@Redirect(method = "render", at = @At(value = "INVOKE", target = "Lnet/minecraft/client/MinecraftClient;isFancyGraphicsOrBetter()Z"))
 	private boolean controlVignette() {
 		return !Configurator.disableVignette;
@@ -195,7 +195,12 @@ public abstract class MixinSpriteAtlasTexture extends AbstractTexture implements
 
 	@Override
 	public IntConsumer canvas_frameAnimationConsumer() {
-		return i -> perFrameBits.set(i);
+		// may be called from entity worker threads
+		return i -> {
+			synchronized (perFrameBits) {
+				perFrameBits.set(i);
+			}
+		};
 	}
 
 	@SuppressWarnings("resource")
@@ -207,8 +212,11 @@ public abstract class MixinSpriteAtlasTexture extends AbstractTexture implements
 
 		if (Configurator.disableUnseenSpriteAnimation && (SpriteAtlasTexture) (Object) this == TerrainRenderStates.SOLID.texture.atlasInfo().atlas()) {
 			animationBits.clear();
-			animationBits.or(perFrameBits);
-			perFrameBits.clear();
+
+			synchronized (perFrameBits) {
+				animationBits.or(perFrameBits);
+				perFrameBits.clear();
+			}
 
 			final var itemBits = ItemRenderContext.get().animationBits;
 			animationBits.or(itemBits);
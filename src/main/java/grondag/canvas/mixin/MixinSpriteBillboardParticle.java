@@ -40,9 +40,10 @@ public abstract class MixinSpriteBillboardParticle extends BillboardParticle {
 		super(clientWorld, d, e, f);
 	}
 
-	private static final Quaternion quat = new Quaternion(0, 0, 0, 0);
-	private static final Quaternion auxQuat = new Quaternion(0, 0, 0, 0);
-	private static final Vec3f vec = new Vec3f();
+	// thread-local because particles can be built on worker threads
+	private static final ThreadLocal<Quaternion> QUAT = ThreadLocal.withInitial(() -> new Quaternion(0, 0, 0, 0));
+	private static final ThreadLocal<Quaternion> AUX_QUAT = ThreadLocal.withInitial(() -> new Quaternion(0, 0, 0, 0));
+	private static final ThreadLocal<Vec3f> VEC = ThreadLocal.withInitial(Vec3f::new);
 
 	// slightly faster math and less allocation
 	@Override
@@ -58,15 +59,15 @@ public abstract class MixinSpriteBillboardParticle extends BillboardParticle {
 			rotation = camera.getRotation();
 		} else {
 			final Quaternion cr = camera.getRotation();
-			rotation = quat;
+			rotation = QUAT.get();
 			rotation.set(cr.getX(), cr.getY(), cr.getZ(), cr.getW());
 			final float adjustedAngle = MathHelper.lerp(tickDelta, prevAngle, angle);
-			final Quaternion radialRotation = auxQuat;
+			final Quaternion radialRotation = AUX_QUAT.get();
 			CanvasMath.setRadialRotation(radialRotation, Vec3f.POSITIVE_Z, adjustedAngle);
 			rotation.hamiltonProduct(radialRotation);
 		}
 
-		final Vec3f pos = vec;
+		final Vec3f pos = VEC.get();
 		final float scale = getSize(tickDelta);
 		final int light = getBrightness(tickDelta);
 
@@ -75,19 +76,19 @@ public abstract class MixinSpriteBillboardParticle extends BillboardParticle {
 		final float n = getMinV();
 		final float o = getMaxV();
 
-		vec.set(-1.0F, -1.0F, 0.0F);
+		pos.set(-1.0F, -1.0F, 0.0F);
 		CanvasMath.applyBillboardRotation(pos, rotation);
 		vertexConsumer.vertex(cx + pos.getX() * scale, cy + pos.getY() * scale, cz + pos.getZ() * scale).texture(m, o).color(colorRed, colorGreen, colorBlue, colorAlpha).light(light).next();
 
-		vec.set(-1.0F, 1.0F, 0.0F);
+		pos.set(-1.0F, 1.0F, 0.0F);
 		CanvasMath.applyBillboardRotation(pos, rotation);
 		vertexConsumer.vertex(cx + pos.getX() * scale, cy + pos.getY() * scale, cz + pos.getZ() * scale).texture(m, n).color(colorRed, colorGreen, colorBlue, colorAlpha).light(light).next();
 
-		vec.set(1.0F, 1.0F, 0.0F);
+		pos.set(1.0F, 1.0F, 0.0F);
 		CanvasMath.applyBillboardRotation(pos, rotation);
 		vertexConsumer.vertex(cx + pos.getX() * scale, cy + pos.getY() * scale, cz + pos.getZ() * scale).texture(l, n).color(colorRed, colorGreen, colorBlue, colorAlpha).light(light).next();
 
-		vec.set(1.0F, -1.0F, 0.0F);
+		pos.set(1.0F, -1.0F, 0.0F);
 		CanvasMath.applyBillboardRotation(pos, rotation);
 		vertexConsumer.vertex(cx + pos.getX() * scale, cy + pos.getY() * scale, cz + pos.getZ() * scale).texture(l, o).color(colorRed, colorGreen, colorBlue, colorAlpha).light(light).next();
 		//		}
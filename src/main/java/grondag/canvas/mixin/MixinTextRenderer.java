@@ -0,0 +1,101 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.Redirect;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import net.minecraft.client.font.TextRenderer;
+import net.minecraft.client.render.BufferBuilder;
+import net.minecraft.client.render.VertexConsumerProvider;
+import net.minecraft.client.render.VertexConsumerProvider.Immediate;
+import net.minecraft.text.OrderedText;
+import net.minecraft.util.math.Matrix4f;
+
+import grondag.canvas.buffer.input.CanvasImmediate;
+import grondag.canvas.mixinterface.TextRendererExt;
+import grondag.canvas.varia.AutoImmediate;
+
+@Mixin(TextRenderer.class)
+public class MixinTextRenderer implements TextRendererExt {
+	private final AutoImmediate canvas_batchImmediate = new AutoImmediate();
+	private int canvas_batchDepth;
+	private int canvas_batchedStringCount;
+	private int canvas_batchDrawCount;
+	private int canvas_worldStringCount;
+
+	@Override
+	public void canvas_beginBatchDraw() {
+		++canvas_batchDepth;
+	}
+
+	@Override
+	public void canvas_endBatchDraw() {
+		if (--canvas_batchDepth == 0) {
+			canvas_batchDrawCount += canvas_batchImmediate.activeLayerCount();
+			canvas_batchImmediate.draw();
+		}
+	}
+
+	@Override
+	public String canvas_batchDebugSummary() {
+		final String result = String.format("Batched text: HUD %d strings in %d draws, world %d strings to collectors",
+				canvas_batchedStringCount, canvas_batchDrawCount, canvas_worldStringCount);
+		canvas_batchedStringCount = 0;
+		canvas_batchDrawCount = 0;
+		canvas_worldStringCount = 0;
+		return result;
+	}
+
+	@Redirect(method = {"draw(Ljava/lang/String;FFILnet/minecraft/util/math/Matrix4f;ZZ)I", "draw(Lnet/minecraft/text/OrderedText;FFILnet/minecraft/util/math/Matrix4f;Z)I"},
+			at = @At(value = "INVOKE", target = "Lnet/minecraft/client/render/VertexConsumerProvider;immediate(Lnet/minecraft/client/render/BufferBuilder;)Lnet/minecraft/client/render/VertexConsumerProvider$Immediate;"))
+	private Immediate onGetImmediate(BufferBuilder buffer) {
+		if (canvas_batchDepth > 0) {
+			++canvas_batchedStringCount;
+			return canvas_batchImmediate;
+		} else {
+			return VertexConsumerProvider.immediate(buffer);
+		}
+	}
+
+	@Redirect(method = {"draw(Ljava/lang/String;FFILnet/minecraft/util/math/Matrix4f;ZZ)I", "draw(Lnet/minecraft/text/OrderedText;FFILnet/minecraft/util/math/Matrix4f;Z)I"},
+			at = @At(value = "INVOKE", target = "Lnet/minecraft/client/render/VertexConsumerProvider$Immediate;draw()V"))
+	private void onDrawImmediate(Immediate immediate) {
+		// batched text is drawn when the batch ends
+		if (immediate != canvas_batchImmediate) {
+			immediate.draw();
+		}
+	}
+
+	// world text (signs, name tags, scores below names) goes to the world immediate and is drawn once per layer with the entity stream
+	@Inject(method = "drawInternal(Ljava/lang/String;FFIZLnet/minecraft/util/math/Matrix4f;Lnet/minecraft/client/render/VertexConsumerProvider;ZIIZ)I", at = @At("HEAD"), cancellable = false, require = 1)
+	private void onDrawString(String text, float x, float y, int color, boolean shadow, Matrix4f matrix, VertexConsumerProvider vertexConsumers, boolean seeThrough, int backgroundColor, int light, boolean mirror, CallbackInfoReturnable<Integer> cir) {
+		if (vertexConsumers instanceof CanvasImmediate) {
+			++canvas_worldStringCount;
+		}
+	}
+
+	@Inject(method = "drawInternal(Lnet/minecraft/text/OrderedText;FFIZLnet/minecraft/util/math/Matrix4f;Lnet/minecraft/client/render/VertexConsumerProvider;ZII)I", at = @At("HEAD"), cancellable = false, require = 1)
+	private void onDrawOrderedText(OrderedText text, float x, float y, int color, boolean shadow, Matrix4f matrix, VertexConsumerProvider vertexConsumers, boolean seeThrough, int backgroundColor, int light, CallbackInfoReturnable<Integer> cir) {
+		if (vertexConsumers instanceof CanvasImmediate) {
+			++canvas_worldStringCount;
+		}
+	}
+}
@@ -16,10 +16,23 @@
 
 package grondag.canvas.mixinterface;
 
-import net.minecraft.util.math.Matrix4f;
-
+/**
+ * Batches text drawn with the convenience methods of the text renderer that otherwise
+ * draw each string as soon as it is buffered. Between begin and end, buffered text
+ * accumulates by render layer, which means by font atlas and text type, and is drawn
+ * once per layer when the outermost batch ends.
+ *
+ * <p>Only use where later text is never meant to be covered by non-text drawn
+ * in between, because batched text draws after everything else in the batch.
+ *
+ * <p>World text needs no batch. It is drawn into the world immediate, whose collectors
+ * already accumulate it by material for the whole frame.
+ */
 public interface TextRendererExt {
-	void canvas_beginBatchDraw(Matrix4f fillMatrix4fIn);
+	void canvas_beginBatchDraw();
 
 	void canvas_endBatchDraw();
+
+	/** Counts are reset after each call. */
+	String canvas_batchDebugSummary();
 }
@@ -16,6 +16,8 @@
 
 package grondag.canvas.perf;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import grondag.canvas.CanvasMod;
 import grondag.canvas.config.Configurator;
 import grondag.fermion.sc.concurrency.ConcurrentPerformanceCounter;
@@ -25,9 +27,23 @@ public abstract class ChunkRebuildCounters {
 	private static final ConcurrentPerformanceCounter buildCounter = new ConcurrentPerformanceCounter();
 	private static final ConcurrentPerformanceCounter copyCounter = new ConcurrentPerformanceCounter();
 	private static final ConcurrentPerformanceCounter uploadCounter = new ConcurrentPerformanceCounter();
+	private static final ConcurrentPerformanceCounter smoothCounter = new ConcurrentPerformanceCounter();
+	private static final AtomicInteger uniformSmoothCount = new AtomicInteger();
+	private static final ConcurrentPerformanceCounter aoPrecomputeCounter = new ConcurrentPerformanceCounter();
+	private static final AtomicInteger aoPrecomputedFaceCount = new AtomicInteger();
+	private static final AtomicInteger aoPrecomputedHitCount = new AtomicInteger();
+	private static final AtomicInteger aoLazyFaceCount = new AtomicInteger();
+	private static final AtomicInteger fluidSurfaceRegionCount = new AtomicInteger();
+	private static final AtomicInteger fluidSurfaceCellCount = new AtomicInteger();
+	private static final AtomicInteger fluidSurfaceQuadCount = new AtomicInteger();
+	private static final AtomicInteger mergedFaceRegionCount = new AtomicInteger();
+	private static final AtomicInteger mergedFaceCellCount = new AtomicInteger();
+	private static final AtomicInteger mergedFaceQuadCount = new AtomicInteger();
 	private static final ThreadLocal<Long> chunkStart = ThreadLocal.withInitial(() -> 0L);
 	private static final ThreadLocal<Long> copyStart = ThreadLocal.withInitial(() -> 0L);
 	private static final ThreadLocal<Long> uploadStart = ThreadLocal.withInitial(() -> 0L);
+	private static final ThreadLocal<Long> smoothStart = ThreadLocal.withInitial(() -> 0L);
+	private static final ThreadLocal<Long> aoPrecomputeStart = ThreadLocal.withInitial(() -> 0L);
 
 	private ChunkRebuildCounters() {
 	}
@@ -36,6 +52,18 @@ public abstract class ChunkRebuildCounters {
 		buildCounter.clearStats();
 		copyCounter.clearStats();
 		uploadCounter.clearStats();
+		smoothCounter.clearStats();
+		uniformSmoothCount.set(0);
+		aoPrecomputeCounter.clearStats();
+		aoPrecomputedFaceCount.set(0);
+		aoPrecomputedHitCount.set(0);
+		aoLazyFaceCount.set(0);
+		fluidSurfaceRegionCount.set(0);
+		fluidSurfaceCellCount.set(0);
+		fluidSurfaceQuadCount.set(0);
+		mergedFaceRegionCount.set(0);
+		mergedFaceCellCount.set(0);
+		mergedFaceQuadCount.set(0);
 	}
 
 	public static void startChunk() {
@@ -54,6 +82,37 @@ public abstract class ChunkRebuildCounters {
 
 			final int uploadCount = uploadCounter.runCount();
 			CanvasMod.LOG.info(String.format("Upload time per region for last %d regions = %,dns  total time: %fs", uploadCount, uploadCount == 0 ? 0 : uploadCounter.runTime() / uploadCount, uploadCounter.runTime() / 1000000000d));
+
+			final int smoothCount = smoothCounter.runCount();
+
+			if (smoothCount > 0) {
+				CanvasMod.LOG.info(String.format("Light smoothing time per region for last %d regions = %,dns  total time: %fs  uniform (blur skipped): %d", smoothCount, smoothCounter.runTime() / smoothCount, smoothCounter.runTime() / 1000000000d, uniformSmoothCount.get()));
+			}
+
+			final int aoPrecomputeCount = aoPrecomputeCounter.runCount();
+
+			if (aoPrecomputeCount > 0) {
+				CanvasMod.LOG.info(String.format("AO precompute time per region for last %d regions = %,dns  total time: %fs  faces computed: %,d", aoPrecomputeCount, aoPrecomputeCounter.runTime() / aoPrecomputeCount, aoPrecomputeCounter.runTime() / 1000000000d, aoPrecomputedFaceCount.get()));
+			}
+
+			CanvasMod.LOG.info(String.format("AO faces lit from precompute: %,d  computed during meshing: %,d", aoPrecomputedHitCount.get(), aoLazyFaceCount.get()));
+
+			final int fluidRegionCount = fluidSurfaceRegionCount.get();
+
+			if (fluidRegionCount > 0) {
+				final int cells = fluidSurfaceCellCount.get();
+				final int quads = fluidSurfaceQuadCount.get();
+				CanvasMod.LOG.info(String.format("Fluid surface quads merged: %,d into %,d in %d regions  saved per region: %,d", cells, quads, fluidRegionCount, (cells - quads) / fluidRegionCount));
+			}
+
+			final int mergedRegionCount = mergedFaceRegionCount.get();
+
+			if (mergedRegionCount > 0) {
+				final int vertices = mergedFaceCellCount.get() * 4;
+				final int merged = mergedFaceQuadCount.get() * 4;
+				CanvasMod.LOG.info(String.format("Far region face merge vertices: %,d reduced to %,d in %d regions  saved per region: %,d", vertices, merged, mergedRegionCount, (vertices - merged) / mergedRegionCount));
+			}
+
 			reset();
 
 			CanvasMod.LOG.info("");
@@ -69,6 +128,66 @@ public abstract class ChunkRebuildCounters {
 		copyCounter.addCount(1);
 	}
 
+	public static void startSmooth() {
+		smoothStart.set(System.nanoTime());
+	}
+
+	public static void completeSmooth(boolean isUniform) {
+		smoothCounter.endRun(smoothStart.get());
+		smoothCounter.addCount(1);
+
+		if (isUniform) {
+			uniformSmoothCount.incrementAndGet();
+		}
+	}
+
+	public static void startAoPrecompute() {
+		aoPrecomputeStart.set(System.nanoTime());
+	}
+
+	public static void completeAoPrecompute(int faceCount) {
+		aoPrecomputeCounter.endRun(aoPrecomputeStart.get());
+		aoPrecomputeCounter.addCount(1);
+		aoPrecomputedFaceCount.addAndGet(faceCount);
+	}
+
+	/**
+	 * Call when outer face lighting is needed during meshing.
+	 *
+	 * @param isPrecomputed true if the result came from region precomputation
+	 */
+	public static void countAoFace(boolean isPrecomputed) {
+		if (isPrecomputed) {
+			aoPrecomputedHitCount.incrementAndGet();
+		} else {
+			aoLazyFaceCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Call once per region with merged fluid surfaces.
+	 *
+	 * @param cellCount single-block surface quads held for merging
+	 * @param quadCount quads emitted after merging
+	 */
+	public static void countFluidSurfaces(int cellCount, int quadCount) {
+		fluidSurfaceRegionCount.incrementAndGet();
+		fluidSurfaceCellCount.addAndGet(cellCount);
+		fluidSurfaceQuadCount.addAndGet(quadCount);
+	}
+
+	/**
+	 * Call once per distant region with merged block faces.
+	 *
+	 * @param cellCount single-block face quads held for merging
+	 * @param quadCount quads emitted after merging
+	 */
+	public static void countMergedFaces(int cellCount, int quadCount) {
+		mergedFaceRegionCount.incrementAndGet();
+		mergedFaceCellCount.addAndGet(cellCount);
+		mergedFaceQuadCount.addAndGet(quadCount);
+	}
+
 	public static void startUpload() {
 		uploadStart.set(System.nanoTime());
 	}
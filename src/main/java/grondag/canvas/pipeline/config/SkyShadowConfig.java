@@ -39,6 +39,8 @@ public class SkyShadowConfig extends AbstractConfig {
 	public final float offsetSlopeFactor;
 	public final float offsetBiasUnits;
 	public final int[] cascadeRadii = {32, 16, 8};
+	public final int[] cascadeUpdateInterval = {1, 1, 1, 1};
+	public final float sunAngleThreshold;
 	public final String[] samplerNames;
 
 	SkyShadowConfig (ConfigContext ctx, JsonObject config) {
@@ -52,6 +54,7 @@ public class SkyShadowConfig extends AbstractConfig {
 		offsetSlopeFactor = config.getFloat("offsetSlopeFactor", DEFAULT_SHADOW_SLOPE_FACTOR);
 		offsetBiasUnits = config.getFloat("offsetBiasUnits", DEFAULT_SHADOW_BIAS_UNITS);
 		samplerNames = readerSamplerNames(ctx, config, "shy shadows");
+		sunAngleThreshold = Math.max(0f, config.getFloat("sunAngleThreshold", 0f));
 
 		final JsonArray radii = JanksonHelper.getJsonArrayOrNull(config, "cascadeRadius", "Invalid pipeline skyShadow config: cascadeRadius must be an array.");
 
@@ -71,6 +74,25 @@ public class SkyShadowConfig extends AbstractConfig {
 				cascadeRadii[i] = r;
 			}
 		}
+
+		final JsonArray intervals = JanksonHelper.getJsonArrayOrNull(config, "cascadeUpdateInterval", "Invalid pipeline skyShadow config: cascadeUpdateInterval must be an array.");
+
+		if (intervals != null) {
+			if (intervals.size() != 4) {
+				CanvasMod.LOG.warn("Invalid pipeline skyShadow config: cascadeUpdateInterval array must have length 4.");
+			}
+
+			for (int i = 0; i < 4; ++i) {
+				final int n = intervals.getInt(i, -1);
+
+				if (n < 1) {
+					CanvasMod.LOG.warn("Invalid pipeline skyShadow config: cascadeUpdateInterval array must contain integers >= 1.");
+					break;
+				}
+
+				cascadeUpdateInterval[i] = n;
+			}
+		}
 	}
 
 	@Override
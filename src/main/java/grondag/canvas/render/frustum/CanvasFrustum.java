@@ -112,6 +112,33 @@ public abstract class CanvasFrustum extends Frustum {
 		return !(cx * bottomX + cy * bottomY + cz * bottomZ + bottomW - (hdx * bottomXe + hdy * bottomYe + hdz * bottomZe) > 0);
 	}
 
+	/**
+	 * Cheaper than a box test for small objects. Center is in world coordinates.
+	 */
+	public boolean isSphereVisible(double x, double y, double z, float radius) {
+		final float cx = (float) (x - lastCameraX);
+		final float cy = (float) (y - lastCameraY);
+		final float cz = (float) (z - lastCameraZ);
+
+		if (cx * leftX + cy * leftY + cz * leftZ + leftW - radius > 0) {
+			return false;
+		}
+
+		if (cx * rightX + cy * rightY + cz * rightZ + rightW - radius > 0) {
+			return false;
+		}
+
+		if (cx * nearX + cy * nearY + cz * nearZ + nearW - radius > 0) {
+			return false;
+		}
+
+		if (cx * topX + cy * topY + cz * topZ + topW - radius > 0) {
+			return false;
+		}
+
+		return !(cx * bottomX + cy * bottomY + cz * bottomZ + bottomW - radius > 0);
+	}
+
 	protected final void extractPlanes() {
 		final Matrix4fExt matrix = mvpMatrixExt;
 		final float a00 = matrix.a00();
@@ -18,10 +18,12 @@ package grondag.canvas.render.frustum;
 
 import net.minecraft.client.render.Camera;
 import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.Matrix4f;
 
 import grondag.canvas.render.world.WorldRenderState;
+import grondag.canvas.terrain.occlusion.TerrainIterator;
 import grondag.canvas.terrain.region.RenderRegionStorage;
 
 public class RegionCullingFrustum extends FastFrustum {
@@ -29,6 +31,12 @@ public class RegionCullingFrustum extends FastFrustum {
 
 	public boolean enableRegionCulling = false;
 
+	/** Set by {@link #beginOcclusionCulling(boolean)}. */
+	private boolean enableOcclusionCulling = false;
+	private int occludedEntityCount;
+	private int occludedBlockEntityCount;
+	private String occlusionDebugSummary = "";
+
 	/** Exclusive world height upper limit. */
 	private int worldTopY;
 
@@ -48,8 +56,96 @@ public class RegionCullingFrustum extends FastFrustum {
 		worldTopY = world.getTopY();
 	}
 
+	/**
+	 * Call before entities are tested.  Enables occlusion testing against the camera raster for
+	 * entity boxes and for {@link #isBlockEntityVisible(BlockPos)} until {@link #endOcclusionCulling()}.
+	 *
+	 * <p>The raster is only used when terrain iteration isn't running and the raster was drawn for the
+	 * current view. Otherwise everything is treated as visible. Entities can cast shadows when hidden from
+	 * the camera, so occlusion testing is also skipped when shadows are enabled.
+	 */
+	public void beginOcclusionCulling(boolean enable) {
+		final TerrainIterator terrainIterator = worldRenderState.terrainIterator;
+		enableOcclusionCulling = enable && !worldRenderState.shadowsEnabled()
+				&& terrainIterator.cameraVisibility.isRasterCurrent(terrainIterator.state(), worldRenderState.terrainFrustum.viewVersion());
+		occludedEntityCount = 0;
+		occludedBlockEntityCount = 0;
+	}
+
+	public void endOcclusionCulling() {
+		if (enableOcclusionCulling) {
+			enableOcclusionCulling = false;
+			occlusionDebugSummary = String.format("Occluded entities: %d  block entities: %d", occludedEntityCount, occludedBlockEntityCount);
+		} else {
+			occlusionDebugSummary = "Occluded entities: not tested";
+		}
+	}
+
+	public String occlusionDebugSummary() {
+		return occlusionDebugSummary;
+	}
+
+	/**
+	 * False if the block entity is known to be hidden from the camera. Tests the block expanded by one
+	 * in every direction because signs, banners, bells and similar renderers draw outside their block.
+	 */
+	public boolean isBlockEntityVisible(BlockPos pos) {
+		if (!enableOcclusionCulling) {
+			return true;
+		}
+
+		final int x = pos.getX();
+		final int y = pos.getY();
+		final int z = pos.getZ();
+
+		if (worldRenderState.terrainIterator.cameraVisibility.isWorldBoxVisible(x - 1, y - 1, z - 1, x + 2, y + 2, z + 2)) {
+			return true;
+		}
+
+		++occludedBlockEntityCount;
+		return false;
+	}
+
 	@Override
 	public boolean isVisible(double x0, double y0, double z0, double x1, double y1, double z1) {
+		if (!isVisibleInRegions(x0, y0, z0, x1, y1, z1)) {
+			return false;
+		}
+
+		if (enableOcclusionCulling && !worldRenderState.terrainIterator.cameraVisibility.isWorldBoxVisible(x0, y0, z0, x1, y1, z1)) {
+			++occludedEntityCount;
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Sphere version of {@link #isVisible(double, double, double, double, double, double)} for particles and other small objects.
+	 * Checks a single region when the sphere fits in one, which is nearly always.
+	 * Never tests occlusion against the camera raster.
+	 */
+	public boolean isSphereVisibleInRegions(double x, double y, double z, float radius) {
+		if (!isSphereVisible(x, y, z, radius)) {
+			return false;
+		}
+
+		if (!enableRegionCulling || y + radius >= worldTopY || y - radius < worldBottomY) {
+			return true;
+		}
+
+		final int rx = MathHelper.floor(x - radius) & 0xFFFFFFF0;
+		final int ry = MathHelper.floor(y - radius) & 0xFFFFFFF0;
+		final int rz = MathHelper.floor(z - radius) & 0xFFFFFFF0;
+
+		if (rx == (MathHelper.floor(x + radius) & 0xFFFFFFF0) && ry == (MathHelper.floor(y + radius) & 0xFFFFFFF0) && rz == (MathHelper.floor(z + radius) & 0xFFFFFFF0)) {
+			return worldRenderState.renderRegionStorage.isPotentiallyVisible(rx, ry, rz);
+		}
+
+		return isVisibleInRegions(x - radius, y - radius, z - radius, x + radius, y + radius, z + radius);
+	}
+
+	private boolean isVisibleInRegions(double x0, double y0, double z0, double x1, double y1, double z1) {
 		if (super.isVisible(x0, y0, z0, x1, y1, z1)) {
 			if (enableRegionCulling) {
 				// Always assume entities outside world vertical range are visible
@@ -39,12 +39,16 @@ import net.minecraft.util.math.MathHelper;
 
 import net.fabricmc.fabric.api.renderer.v1.material.BlendMode;
 
+import grondag.canvas.apiimpl.mesh.MutableQuadViewImpl;
 import grondag.canvas.buffer.format.CanvasVertexFormat;
 import grondag.canvas.buffer.format.CanvasVertexFormatElement;
+import grondag.canvas.buffer.format.EncodingContext;
 import grondag.canvas.buffer.format.QuadEncoder;
+import grondag.canvas.buffer.input.VertexCollector;
 import grondag.canvas.material.state.RenderMaterialImpl;
 import grondag.canvas.mixinterface.Matrix3fExt;
 import grondag.canvas.mixinterface.Matrix4fExt;
+import grondag.canvas.texture.MaterialIndexer;
 
 public class TerrainFormat {
 	private TerrainFormat() { }
@@ -65,7 +69,15 @@ public class TerrainFormat {
 	static final int TERRAIN_QUAD_STRIDE = TERRAIN_MATERIAL.quadStrideInts;
 	static final int TERRAIN_VERTEX_STRIDE = TERRAIN_MATERIAL.vertexStrideInts;
 
-	public static final QuadEncoder TERRAIN_ENCODER = (quad, context, buff) -> {
+	public static final QuadEncoder TERRAIN_ENCODER = (quad, context, buff) -> encode(quad, context, buff, quad.material().dongle().index(quad.spriteId()));
+
+	/**
+	 * For quads with normalized texture coordinates spanning
+	 * {@link MaterialIndexer#REPEAT_UV_TILES} repetitions of the sprite.
+	 */
+	public static final QuadEncoder REPEATING_TERRAIN_ENCODER = (quad, context, buff) -> encode(quad, context, buff, quad.material().dongle().repeatingIndex(quad.spriteId()));
+
+	private static void encode(MutableQuadViewImpl quad, EncodingContext context, VertexCollector buff, int materialIndex) {
 		final Matrix4fExt matrix = (Matrix4fExt) context.matrix();
 		final Matrix3fExt normalMatrix = context.normalMatrix();
 		final boolean isNormalMatrixUseful = !normalMatrix.canvas_isIdentity();
@@ -95,7 +107,7 @@ public class TerrainFormat {
 		int packedTangent = 0;
 		int transformedTangent = 0;
 
-		final int material = mat.dongle().index(quad.spriteId()) << 16;
+		final int material = materialIndex << 16;
 
 		final int baseTargetIndex = buff.allocate(TERRAIN_QUAD_STRIDE, quad.cullFaceId());
 		final int[] target = buff.data();
@@ -172,5 +184,5 @@ public class TerrainFormat {
 
 			target[toIndex + 6] = transformedNormal | transformedTangent;
 		}
-	};
+	}
 }
@@ -32,6 +32,9 @@ public interface DrawableRegionList {
 
 	void draw(WorldRenderState worldRenderState);
 
+	/** Count of vertices in face buckets excluded from draw calls by face culling. For debug output. */
+	int culledVertexCount();
+
 	DrawableRegionList EMPTY = new DrawableRegionList() {
 		@Override
 		public void close() {
@@ -47,6 +50,11 @@ public interface DrawableRegionList {
 		public void draw(WorldRenderState worldRenderState) {
 			// NOOP
 		}
+
+		@Override
+		public int culledVertexCount() {
+			return 0;
+		}
 	};
 
 	static DrawableRegionList build(
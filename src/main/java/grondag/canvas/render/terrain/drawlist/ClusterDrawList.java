@@ -89,7 +89,7 @@ public class ClusterDrawList {
 		final var builder = Configurator.cullBackfacingTerrain ? DrawSpecBuilder.SOLID : DrawSpecBuilder.SOLID_NO_CULL;
 
 		for (final var list: map.values()) {
-			builder.build(list, drawSpecs, owner.isShadowMap);
+			owner.culledVertexCount += builder.build(list, drawSpecs, owner.isShadowMap);
 		}
 	}
 
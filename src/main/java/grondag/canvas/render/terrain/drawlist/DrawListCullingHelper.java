@@ -17,6 +17,7 @@
 package grondag.canvas.render.terrain.drawlist;
 
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
 
 import grondag.canvas.apiimpl.util.FaceConstants;
 import grondag.canvas.render.world.WorldRenderState;
@@ -49,10 +50,26 @@ public class DrawListCullingHelper {
 		southMaxZ = z + 1;
 		northMinZ = z - 1;
 
+		final float lightX = ShaderDataManager.skyLightVector.getX();
+		final float lightY = ShaderDataManager.skyLightVector.getY();
+		final float lightZ = ShaderDataManager.skyLightVector.getZ();
+
+		// Faces on an axis perpendicular to the light are edge-on in the orthographic
+		// shadow projection and can't cover any texels, so neither side is drawn.
+		// With the default zenith angle this is always true for north/south faces.
 		shadowFlags = FaceConstants.UNASSIGNED_FLAG;
-		shadowFlags |= ShaderDataManager.skyLightVector.getX() > 0 ? FaceConstants.EAST_FLAG : FaceConstants.WEST_FLAG;
-		shadowFlags |= ShaderDataManager.skyLightVector.getY() > 0 ? FaceConstants.UP_FLAG : FaceConstants.DOWN_FLAG;
-		shadowFlags |= ShaderDataManager.skyLightVector.getZ() > 0 ? FaceConstants.SOUTH_FLAG : FaceConstants.NORTH_FLAG;
+
+		if (!MathHelper.approximatelyEquals(lightX, 0)) {
+			shadowFlags |= lightX > 0 ? FaceConstants.EAST_FLAG : FaceConstants.WEST_FLAG;
+		}
+
+		if (!MathHelper.approximatelyEquals(lightY, 0)) {
+			shadowFlags |= lightY > 0 ? FaceConstants.UP_FLAG : FaceConstants.DOWN_FLAG;
+		}
+
+		if (!MathHelper.approximatelyEquals(lightZ, 0)) {
+			shadowFlags |= lightZ > 0 ? FaceConstants.SOUTH_FLAG : FaceConstants.NORTH_FLAG;
+		}
 	}
 
 	/** Flag 6 (unassigned) will always be set. */
@@ -26,14 +26,21 @@ abstract class DrawSpecBuilder {
 	protected abstract void acceptAlloc(SlabAllocation alloc);
 	protected boolean isShadowMap = false;
 
-	final void build(ObjectArrayList<SlabAllocation> inputs, ObjectArrayList<DrawSpec> output, boolean isShadowMap) {
+	/** Vertices in face buckets skipped by culling during the current build. */
+	protected int culledVertexCount;
+
+	/**
+	 * Returns count of vertices that were excluded by face culling.
+	 */
+	final int build(ObjectArrayList<SlabAllocation> inputs, ObjectArrayList<DrawSpec> output, boolean isShadowMap) {
 		assert RenderSystem.isOnRenderThread();
 
 		if (inputs.isEmpty()) {
-			return;
+			return 0;
 		}
 
 		this.isShadowMap = isShadowMap;
+		culledVertexCount = 0;
 
 		final var slab = inputs.get(0).slab;
 		final int limit = inputs.size();
@@ -48,6 +55,7 @@ abstract class DrawSpecBuilder {
 
 		output.add(new DrawSpec(slab, triVertexCount.size(), triVertexCount.elements(), baseQuadVertexOffset.elements()));
 		inputs.clear();
+		return culledVertexCount;
 	}
 
 	static final IntArrayList triVertexCount = new IntArrayList();
@@ -61,12 +69,13 @@ abstract class DrawSpecBuilder {
 			final var buckets = alloc.region().cullBuckets;
 
 			for (int i = 0; i < 7; ++i) {
+				final var bucket = buckets[i];
+
 				if (((1 << i) & bucketFlags) == 0) {
+					culledVertexCount += bucket.vertexCount();
 					continue;
 				}
 
-				final var bucket = buckets[i];
-
 				if (bucket.vertexCount() > 0) {
 					if (bucket.vertexCount() <= 65536) {
 						triVertexCount.add(bucket.vertexCount() / 4 * 6);
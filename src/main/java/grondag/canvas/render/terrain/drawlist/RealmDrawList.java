@@ -16,8 +16,8 @@
 
 package grondag.canvas.render.terrain.drawlist;
 
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
 
 import grondag.canvas.material.state.RenderState;
 import grondag.canvas.render.terrain.base.AbstractDrawableRegionList;
@@ -25,6 +25,7 @@ import grondag.canvas.render.terrain.base.DrawableRegion;
 import grondag.canvas.render.terrain.base.DrawableRegionList;
 import grondag.canvas.render.terrain.cluster.ClusteredDrawableRegion;
 import grondag.canvas.render.terrain.cluster.ClusteredDrawableStorage;
+import grondag.canvas.render.terrain.cluster.VertexCluster;
 import grondag.canvas.render.world.WorldRenderState;
 import grondag.canvas.varia.GFX;
 
@@ -34,6 +35,9 @@ public class RealmDrawList extends AbstractDrawableRegionList {
 
 	boolean isInvalid = false;
 
+	/** Vertices excluded by face culling across all clusters in this list. */
+	int culledVertexCount;
+
 	private RealmDrawList(final ObjectArrayList<DrawableRegion> regions, RenderState renderState, boolean isShadowMap) {
 		super(regions, renderState);
 		this.isShadowMap = isShadowMap;
@@ -41,18 +45,21 @@ public class RealmDrawList extends AbstractDrawableRegionList {
 	}
 
 	private void build() {
-		final Long2ObjectOpenHashMap<ClusterDrawList> map = new Long2ObjectOpenHashMap<>();
+		culledVertexCount = 0;
+		// keyed by cluster because regions in the same position can belong to different realms
+		final Reference2ObjectOpenHashMap<VertexCluster, ClusterDrawList> map = new Reference2ObjectOpenHashMap<>();
 		final int limit = regions.size();
 
 		for (int regionIndex = 0; regionIndex < limit; ++regionIndex) {
 			final ClusteredDrawableStorage storage = ((ClusteredDrawableRegion) regions.get(regionIndex)).storage();
+			final VertexCluster cluster = storage.allocation().cluster();
 
-			ClusterDrawList clusterList = map.get(storage.clusterPos);
+			ClusterDrawList clusterList = map.get(cluster);
 
 			if (clusterList == null) {
-				clusterList = new ClusterDrawList(storage.allocation().cluster(), this);
+				clusterList = new ClusterDrawList(cluster, this);
 				clusterLists.add(clusterList);
-				map.put(storage.clusterPos, clusterList);
+				map.put(cluster, clusterList);
 			}
 
 			clusterList.add(storage);
@@ -93,6 +100,11 @@ public class RealmDrawList extends AbstractDrawableRegionList {
 		RenderState.disable();
 	}
 
+	@Override
+	public int culledVertexCount() {
+		return culledVertexCount;
+	}
+
 	@Override
 	protected void closeInner() {
 		clusterLists.forEach(ClusterDrawList::release);
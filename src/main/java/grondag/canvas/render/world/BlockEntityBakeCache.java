@@ -0,0 +1,175 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.render.world;
+
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.block.entity.BlockEntityType;
+import net.minecraft.block.entity.ShulkerBoxBlockEntity;
+import net.minecraft.block.entity.SkullBlockEntity;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.block.ChestAnimationProgress;
+import net.minecraft.client.gui.screen.ingame.SignEditScreen;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.registry.Registry;
+
+import grondag.canvas.buffer.input.CollectorReplay;
+import grondag.canvas.config.Configurator;
+import grondag.canvas.config.RegistryTypeList;
+import grondag.canvas.mixinterface.BlockEntityExt;
+import grondag.canvas.terrain.region.RegionBuildState;
+
+/**
+ * Retains vertex output of allow-listed block entities and replays it instead of rendering them.
+ *
+ * <p>Output is captured from the collectors the first time a block entity renders and reused until
+ * the block entity reads new data or is marked dirty, its block state changes, its region is rebuilt,
+ * which also happens when light changes, or the mouth of a powered dragon head moves. Only list types with renderers that depend on nothing else,
+ * because anything animated will be frozen. The exception is chest and shulker box lids, which render
+ * normally while they move and reuse the closed output again afterwards.  Block entities with output that
+ * goes to vanilla buffers render every frame.
+ */
+class BlockEntityBakeCache {
+	/** Frames between checks for entries of block entities no longer rendered. */
+	private static final int SWEEP_INTERVAL = 64;
+
+	private final CollectorReplay collectorReplay;
+	private final Reference2ObjectOpenHashMap<BlockEntity, Entry> entries = new Reference2ObjectOpenHashMap<>();
+	private final RegistryTypeList<BlockEntityType<?>> types = new RegistryTypeList<>(Registry.BLOCK_ENTITY_TYPE);
+	private int frame;
+	private boolean isEnabled;
+	private float tickDelta;
+	private double cameraX, cameraY, cameraZ;
+
+	private int replayCount;
+	private int renderCount;
+	private String debugSummary = "";
+
+	BlockEntityBakeCache(CollectorReplay collectorReplay) {
+		this.collectorReplay = collectorReplay;
+	}
+
+	/**
+	 * Call once per frame before block entities are rendered.
+	 */
+	void prepare(float tickDelta, double cameraX, double cameraY, double cameraZ) {
+		++frame;
+		replayCount = 0;
+		renderCount = 0;
+
+		// Sign text changes locally while edited and the server update comes later
+		isEnabled = Configurator.bakeBlockEntities && !(MinecraftClient.getInstance().currentScreen instanceof SignEditScreen);
+
+		if (!isEnabled) {
+			entries.clear();
+			return;
+		}
+
+		if (types.update(Configurator.bakedBlockEntityTypes)) {
+			entries.clear();
+		}
+
+		this.tickDelta = tickDelta;
+		this.cameraX = cameraX;
+		this.cameraY = cameraY;
+		this.cameraZ = cameraZ;
+
+		if (frame % SWEEP_INTERVAL == 0) {
+			final int minFrame = frame - SWEEP_INTERVAL;
+			entries.values().removeIf(e -> e.lastFrame < minFrame);
+		}
+	}
+
+	/**
+	 * Call for block entities that will render into the immediate of the replay helper without a breaking
+	 * overlay. If retained output is current it is appended to the immediate and the result is true, and the
+	 * block entity should not be rendered.  Otherwise, if the type is allow-listed and no other capture is open,
+	 * capture starts and must be completed with {@link CollectorReplay#endCapture()} after the block entity renders.
+	 */
+	boolean replay(BlockEntity blockEntity, RegionBuildState buildState) {
+		if (!isEnabled || !types.contains(blockEntity.getType()) || isAnimating(blockEntity)) {
+			return false;
+		}
+
+		final int changeCount = ((BlockEntityExt) blockEntity).canvas_changeCount();
+		// powered dragon heads animate from tick state without marking the block entity dirty
+		final float ticksPowered = blockEntity instanceof SkullBlockEntity skull ? skull.getTicksPowered(tickDelta) : 0;
+		final BlockState blockState = blockEntity.getCachedState();
+		final BlockPos pos = blockEntity.getPos();
+		final double originX = pos.getX() - cameraX;
+		final double originY = pos.getY() - cameraY;
+		final double originZ = pos.getZ() - cameraZ;
+		Entry entry = entries.get(blockEntity);
+
+		if (entry == null) {
+			entry = new Entry();
+			entries.put(blockEntity, entry);
+		} else if (entry.isValid() && entry.buildState == buildState && entry.blockState == blockState && entry.changeCount == changeCount && entry.ticksPowered == ticksPowered) {
+			collectorReplay.replay(entry, originX, originY, originZ);
+			entry.lastFrame = frame;
+			++replayCount;
+			return true;
+		}
+
+		entry.lastFrame = frame;
+
+		if (collectorReplay.beginCapture(entry, originX, originY, originZ)) {
+			entry.buildState = buildState;
+			entry.blockState = blockState;
+			entry.changeCount = changeCount;
+			entry.ticksPowered = ticksPowered;
+			++renderCount;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Call after all block entities have rendered.
+	 */
+	void finish() {
+		debugSummary = isEnabled ? String.format("Baked block entities: %d replayed, %d rendered", replayCount, renderCount) : "Baked block entities: off";
+	}
+
+	void clear() {
+		entries.clear();
+	}
+
+	String debugSummary() {
+		return debugSummary;
+	}
+
+	private boolean isAnimating(BlockEntity blockEntity) {
+		if (blockEntity instanceof ChestAnimationProgress chest) {
+			return chest.getAnimationProgress(tickDelta) != 0;
+		} else if (blockEntity instanceof ShulkerBoxBlockEntity shulker) {
+			return shulker.getAnimationStage() != ShulkerBoxBlockEntity.AnimationStage.CLOSED;
+		}
+
+		return false;
+	}
+
+	private static class Entry extends CollectorReplay.Entry {
+		private RegionBuildState buildState;
+		private BlockState blockState;
+		private int changeCount;
+		private float ticksPowered;
+		private int lastFrame;
+	}
+}
@@ -17,9 +17,11 @@
 package grondag.canvas.render.world;
 
 import java.util.Iterator;
+import java.util.Queue;
 
-import com.google.common.util.concurrent.Runnables;
 import com.mojang.blaze3d.systems.RenderSystem;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2BooleanOpenHashMap;
 
 import net.minecraft.client.particle.Particle;
 import net.minecraft.client.particle.ParticleManager;
@@ -32,11 +34,16 @@ import net.minecraft.client.render.Tessellator;
 import net.minecraft.client.render.VertexConsumer;
 import net.minecraft.client.texture.SpriteAtlasTexture;
 import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.particle.ParticleType;
 import net.minecraft.util.crash.CrashException;
 import net.minecraft.util.crash.CrashReport;
 import net.minecraft.util.crash.CrashReportSection;
+import net.minecraft.util.math.Box;
 
+import grondag.canvas.buffer.input.ArrayVertexCollector;
 import grondag.canvas.buffer.input.VertexCollectorList;
+import grondag.canvas.config.Configurator;
+import grondag.canvas.material.property.MaterialTarget;
 import grondag.canvas.material.state.MaterialFinderImpl;
 import grondag.canvas.material.state.RenderMaterialImpl;
 import grondag.canvas.mixinterface.ParticleExt;
@@ -47,22 +54,35 @@ import grondag.frex.api.material.MaterialFinder;
 import grondag.frex.api.material.MaterialMap;
 import grondag.frex.api.material.RenderMaterial;
 
+/**
+ * Particles on sheets Canvas handles are buffered across all sheets and drawn
+ * together in a single stream. Output is only flushed early when a sheet that
+ * vanilla renders comes next, so draw order relative to those is unchanged.
+ * Geometry of large sheets can be built on worker threads by {@link ParallelParticleBuilder}.
+ */
 public class CanvasParticleRenderer {
+	private static final double SQRT_3 = Math.sqrt(3);
+
 	private Tessellator tessellator;
 	private BufferBuilder bufferBuilder;
 	private LightmapTextureManager lightmapTextureManager;
 	private ParticleManagerExt ext;
-	private Runnable drawHandler = Runnables.doNothing();
 	private RenderMaterialImpl baseMat;
 	private RenderMaterialImpl emissiveMat;
 	private final RegionCullingFrustum cullingFrustum;
+	private final ParallelParticleBuilder parallelBuilder = new ParallelParticleBuilder();
+
+	/** Emissive flag of mapped material by particle type. Cleared on reload because material maps can change. */
+	private final Reference2BooleanOpenHashMap<ParticleType<?>> emissiveTypes = new Reference2BooleanOpenHashMap<>();
+	private ParticleType<?> lastType;
+	private boolean lastTypeEmissive;
 
 	public CanvasParticleRenderer(RegionCullingFrustum cullingFrustum) {
 		this.cullingFrustum = cullingFrustum;
 	}
 
 	public void renderParticles(ParticleManager pm, MatrixStack matrixStack, VertexCollectorList collectors, LightmapTextureManager lightmapTextureManager, Camera camera, float tickDelta) {
-		cullingFrustum.enableRegionCulling = false;
+		cullingFrustum.enableRegionCulling = Configurator.cullParticles;
 		final MatrixStack renderMatrix = RenderSystem.getModelViewStack();
 		renderMatrix.push();
 		renderMatrix.method_34425(matrixStack.peek().getModel());
@@ -73,35 +93,58 @@ public class CanvasParticleRenderer {
 		bufferBuilder = tessellator.getBuffer();
 		ext = (ParticleManagerExt) pm;
 		final Iterator<ParticleTextureSheet> sheets = ext.canvas_textureSheets().iterator();
+		boolean hasCanvasOutput = false;
+		parallelBuilder.prepare(camera, tickDelta);
 
 		while (sheets.hasNext()) {
 			final ParticleTextureSheet particleTextureSheet = sheets.next();
-			final Iterable<Particle> iterable = ext.canvas_particles().get(particleTextureSheet);
+			final Queue<Particle> sheetParticles = ext.canvas_particles().get(particleTextureSheet);
 
-			if (iterable == null) {
+			if (sheetParticles == null) {
 				continue;
 			}
 
-			final Iterator<Particle> particles = iterable.iterator();
+			final Iterator<Particle> particles = sheetParticles.iterator();
 
 			if (!particles.hasNext()) continue;
 
-			final VertexConsumer consumer = beginSheet(particleTextureSheet, collectors);
+			final VertexConsumer consumer;
+			final boolean isCanvasSheet = selectMaterials(particleTextureSheet);
+
+			if (isCanvasSheet) {
+				consumer = collectors.consumer.prepare(baseMat);
+				hasCanvasOutput = true;
+			} else {
+				if (hasCanvasOutput) {
+					drawCanvasParticles(collectors);
+					hasCanvasOutput = false;
+				}
+
+				consumer = beginVanillaSheet(particleTextureSheet);
+			}
+
+			final boolean isParallel = isCanvasSheet && parallelBuilder.acceptsSheet(particleTextureSheet, sheetParticles.size());
 
 			while (particles.hasNext()) {
 				final Particle particle = particles.next();
 
-				if (!cullingFrustum.isVisible(particle.getBoundingBox())) {
+				if (!isVisible(particle.getBoundingBox())) {
 					continue;
 				}
 
-				try {
-					if (baseMat != null) {
-						// FEAT: enhanced material maps for particles - shaders for animation in particular
-						final RenderMaterial mat = (RenderMaterial) MaterialMap.getForParticle(((ParticleExt) particle).canvas_particleType()).getMapped(null);
-						collectors.consumer.defaultMaterial(mat == null || !mat.emissive() ? baseMat : emissiveMat);
+				if (isCanvasSheet) {
+					// FEAT: enhanced material maps for particles - shaders for animation in particular
+					final RenderMaterialImpl mat = isEmissive(((ParticleExt) particle).canvas_particleType()) ? emissiveMat : baseMat;
+
+					if (isParallel && parallelBuilder.acceptsParticle(particle)) {
+						parallelBuilder.add(particle, mat);
+						continue;
 					}
 
+					collectors.consumer.defaultMaterial(mat);
+				}
+
+				try {
 					particle.buildGeometry(consumer, camera, tickDelta);
 				} catch (final Throwable exception) {
 					final CrashReport crashReport = CrashReport.create(exception, "Rendering Particle");
@@ -112,7 +155,15 @@ public class CanvasParticleRenderer {
 				}
 			}
 
-			drawHandler.run();
+			if (isParallel) {
+				parallelBuilder.build(collectors);
+			} else if (!isCanvasSheet) {
+				particleTextureSheet.draw(tessellator);
+			}
+		}
+
+		if (hasCanvasOutput) {
+			drawCanvasParticles(collectors);
 		}
 
 		renderMatrix.pop();
@@ -120,6 +171,49 @@ public class CanvasParticleRenderer {
 		teardownVanillaParticleRender();
 	}
 
+	/**
+	 * Particle boxes are small, so a bounding sphere and usually a single region are tested
+	 * instead of the full box test used for entities.
+	 */
+	private boolean isVisible(Box box) {
+		final double hdx = 0.5 * (box.maxX - box.minX);
+		final double hdy = 0.5 * (box.maxY - box.minY);
+		final double hdz = 0.5 * (box.maxZ - box.minZ);
+		final float radius = (float) (Math.max(hdx, Math.max(hdy, hdz)) * SQRT_3);
+		return cullingFrustum.isSphereVisibleInRegions(box.minX + hdx, box.minY + hdy, box.minZ + hdz, radius);
+	}
+
+	private boolean isEmissive(ParticleType<?> type) {
+		if (type != lastType) {
+			lastType = type;
+
+			if (emissiveTypes.containsKey(type)) {
+				lastTypeEmissive = emissiveTypes.getBoolean(type);
+			} else {
+				final RenderMaterial mat = type == null ? null : (RenderMaterial) MaterialMap.getForParticle(type).getMapped(null);
+				lastTypeEmissive = mat != null && mat.emissive();
+				emissiveTypes.put(type, lastTypeEmissive);
+			}
+		}
+
+		return lastTypeEmissive;
+	}
+
+	/** Call on renderer reload. */
+	public void clearMaterialCache() {
+		emissiveTypes.clear();
+		lastType = null;
+	}
+
+	/** Draws everything buffered for Canvas-handled sheets in one stream and clears it. */
+	private static void drawCanvasParticles(VertexCollectorList collectors) {
+		final ObjectArrayList<ArrayVertexCollector> drawList = collectors.sortedDrawList(MaterialTarget.PARTICLES);
+
+		if (!drawList.isEmpty()) {
+			ArrayVertexCollector.draw(drawList);
+		}
+	}
+
 	private void setupVanillaParticleRender() {
 		lightmapTextureManager.enable();
 		RenderSystem.enableDepthTest();
@@ -132,33 +226,35 @@ public class CanvasParticleRenderer {
 		lightmapTextureManager.disable();
 	}
 
-	private VertexConsumer beginSheet(ParticleTextureSheet particleTextureSheet, VertexCollectorList collectors) {
-		RenderSystem.setShader(GameRenderer::getParticleShader);
-		RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, 1.0F);
-
-		// PERF: consolidate these draws
+	/**
+	 * Sets base and emissive materials for the sheet.
+	 * False if the sheet isn't handled by Canvas and must be rendered the vanilla way.
+	 */
+	private boolean selectMaterials(ParticleTextureSheet particleTextureSheet) {
 		if (particleTextureSheet == ParticleTextureSheet.TERRAIN_SHEET) {
 			baseMat = RENDER_STATE_TERRAIN;
 			emissiveMat = RENDER_STATE_TERRAIN_EMISSIVE;
-			drawHandler = () -> collectors.get(baseMat).draw(true);
-			return collectors.consumer.prepare(baseMat);
+			return true;
 		} else if (particleTextureSheet == ParticleTextureSheet.PARTICLE_SHEET_LIT || particleTextureSheet == ParticleTextureSheet.PARTICLE_SHEET_OPAQUE) {
 			baseMat = RENDER_STATE_OPAQUE_OR_LIT;
 			emissiveMat = RENDER_STATE_OPAQUE_OR_LIT_EMISSIVE;
-			drawHandler = () -> collectors.get(baseMat).draw(true);
-			return collectors.consumer.prepare(baseMat);
+			return true;
 		} else if (particleTextureSheet == ParticleTextureSheet.PARTICLE_SHEET_TRANSLUCENT) {
 			baseMat = RENDER_STATE_TRANSLUCENT;
 			emissiveMat = RENDER_STATE_TRANSLUCENT_EMISSIVE;
-			drawHandler = () -> collectors.get(baseMat).draw(true);
-			return collectors.consumer.prepare(baseMat);
+			return true;
 		}
 
-		setupVanillaParticleRender();
-		particleTextureSheet.begin(bufferBuilder, ext.canvas_textureManager());
-		drawHandler = () -> particleTextureSheet.draw(tessellator);
 		baseMat = null;
 		emissiveMat = null;
+		return false;
+	}
+
+	private VertexConsumer beginVanillaSheet(ParticleTextureSheet particleTextureSheet) {
+		RenderSystem.setShader(GameRenderer::getParticleShader);
+		RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, 1.0F);
+		setupVanillaParticleRender();
+		particleTextureSheet.begin(bufferBuilder, ext.canvas_textureManager());
 		return bufferBuilder;
 	}
 
@@ -25,7 +25,6 @@ import com.mojang.blaze3d.systems.RenderSystem;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap.Entry;
 import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
-import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import org.jetbrains.annotations.Nullable;
 
 import net.minecraft.block.BlockState;
@@ -74,7 +73,10 @@ import grondag.canvas.CanvasMod;
 import grondag.canvas.apiimpl.MaterialConditionImpl;
 import grondag.canvas.apiimpl.rendercontext.BlockRenderContext;
 import grondag.canvas.apiimpl.rendercontext.EntityBlockRenderContext;
+import grondag.canvas.apiimpl.rendercontext.ItemRenderContext;
+import grondag.canvas.apiimpl.rendercontext.StaticBlockModelCache;
 import grondag.canvas.buffer.input.CanvasImmediate;
+import grondag.canvas.buffer.input.CollectorReplay;
 import grondag.canvas.buffer.render.StreamBufferAllocator;
 import grondag.canvas.buffer.render.TransferBuffers;
 import grondag.canvas.buffer.util.BufferSynchronizer;
@@ -102,8 +104,10 @@ import grondag.canvas.shader.data.ScreenRenderState;
 import grondag.canvas.shader.data.ShaderDataManager;
 import grondag.canvas.terrain.occlusion.SortableVisibleRegionList;
 import grondag.canvas.terrain.occlusion.TerrainIterator;
+import grondag.canvas.terrain.region.RegionBuildState;
 import grondag.canvas.terrain.region.RegionRebuildManager;
 import grondag.canvas.terrain.region.RenderRegionStorage;
+import grondag.canvas.terrain.util.FaceCullTable;
 import grondag.canvas.terrain.util.TerrainExecutor;
 import grondag.canvas.varia.GFX;
 import grondag.frex.api.config.FlawlessFrames;
@@ -127,6 +131,10 @@ public class CanvasWorldRenderer extends WorldRenderer {
 	private final MatrixStack identityStack = new MatrixStack();
 
 	private final WorldRendererExt vanillaWorldRenderer;
+	private final ParallelEntityRenderer parallelEntityRenderer;
+	private final CollectorReplay collectorReplay = new CollectorReplay(worldRenderImmediate);
+	private final EntityGeometryCache entityGeometryCache = new EntityGeometryCache(collectorReplay);
+	private final BlockEntityBakeCache blockEntityBakeCache = new BlockEntityBakeCache(collectorReplay);
 
 	public CanvasWorldRenderer(MinecraftClient client, BufferBuilderStorage bufferBuilders) {
 		super(client, bufferBuilders);
@@ -136,6 +144,7 @@ public class CanvasWorldRenderer extends WorldRenderer {
 		}
 
 		vanillaWorldRenderer = (WorldRendererExt) this;
+		parallelEntityRenderer = new ParallelEntityRenderer(vanillaWorldRenderer, worldRenderImmediate);
 		instance = this;
 		worldRenderState.computeDistances();
 	}
@@ -144,6 +153,18 @@ public class CanvasWorldRenderer extends WorldRenderer {
 		return instance;
 	}
 
+	public String entityOcclusionDebugSummary() {
+		return entityCullingFrustum.occlusionDebugSummary();
+	}
+
+	public String entityFrameSkipDebugSummary() {
+		return entityGeometryCache.debugSummary();
+	}
+
+	public String blockEntityBakeDebugSummary() {
+		return blockEntityBakeCache.debugSummary();
+	}
+
 	public void updateProjection(Camera camera, float tickDelta, double fov) {
 		worldRenderState.terrainFrustum.updateProjection(camera, tickDelta, fov);
 	}
@@ -151,6 +172,9 @@ public class CanvasWorldRenderer extends WorldRenderer {
 	@Override
 	public void setWorld(@Nullable ClientWorld clientWorld) {
 		worldRenderState.setWorld(clientWorld);
+		collectorReplay.clear();
+		entityGeometryCache.clear();
+		blockEntityBakeCache.clear();
 
 		// we don't want to use our collector unless we are in a world
 		((BufferBuilderStorageExt) vanillaWorldRenderer.canvas_bufferBuilders()).canvas_setEntityConsumers(clientWorld == null ? null : worldRenderImmediate);
@@ -372,6 +396,9 @@ public class CanvasWorldRenderer extends WorldRenderer {
 		RenderSystem.applyModelViewMatrix();
 
 		entityCullingFrustum.enableRegionCulling = Configurator.cullEntityRender;
+		entityCullingFrustum.beginOcclusionCulling(Configurator.cullOccludedEntities);
+		parallelEntityRenderer.prepare(tickDelta, frameCameraX, frameCameraY, frameCameraZ);
+		entityGeometryCache.prepare(tickDelta, frameCameraX, frameCameraY, frameCameraZ);
 
 		while (entities.hasNext()) {
 			final Entity entity = entities.next();
@@ -394,14 +421,27 @@ public class CanvasWorldRenderer extends WorldRenderer {
 
 			++entityCount;
 
-			contextState.setCurrentEntity(entity);
-
 			if (entity.age == 0) {
 				entity.lastRenderX = entity.getX();
 				entity.lastRenderY = entity.getY();
 				entity.lastRenderZ = entity.getZ();
 			}
 
+			final boolean hasOutline = canDrawEntityOutlines && mc.hasOutline(entity);
+
+			if (!isFirstPersonPlayer && !hasOutline) {
+				if (parallelEntityRenderer.acceptsEntity(entity)) {
+					parallelEntityRenderer.add(entity);
+					continue;
+				}
+
+				if (entityGeometryCache.replay(entity)) {
+					continue;
+				}
+			}
+
+			contextState.setCurrentEntity(entity);
+
 			VertexConsumerProvider renderProvider;
 
 			if (isFirstPersonPlayer) {
@@ -412,7 +452,7 @@ public class CanvasWorldRenderer extends WorldRenderer {
 					// only render as shadow
 					renderProvider = shadowExtrasImmediate;
 				}
-			} else if (canDrawEntityOutlines && mc.hasOutline(entity)) {
+			} else if (hasOutline) {
 				didRenderOutlines = true;
 				final OutlineVertexConsumerProvider outlineVertexConsumerProvider = bufferBuilders.getOutlineVertexConsumers();
 				renderProvider = outlineVertexConsumerProvider;
@@ -431,6 +471,7 @@ public class CanvasWorldRenderer extends WorldRenderer {
 
 			// Item entity translucent typically gets drawn here in vanilla because there's no dedicated buffer for it
 			wr.canvas_renderEntity(entity, frameCameraX, frameCameraY, frameCameraZ, tickDelta, identityStack, renderProvider);
+			collectorReplay.endCapture();
 
 			FirstPersonModelHolder.renderHandler.setIsRenderingPlayer(false);
 
@@ -441,14 +482,18 @@ public class CanvasWorldRenderer extends WorldRenderer {
 		}
 
 		contextState.setCurrentEntity(null);
+		entityGeometryCache.finish();
+		parallelEntityRenderer.render();
 		SkyShadowRenderer.restoreEntityShadows(mc);
 
 		WorldRenderDraws.profileSwap(profiler, ProfilerGroup.StartWorld, "blockentities");
 		final int visibleRegionCount = visibleRegions.size();
 		final Set<BlockEntity> noCullingBlockEntities = wr.canvas_noCullingBlockEntities();
+		blockEntityBakeCache.prepare(tickDelta, frameCameraX, frameCameraY, frameCameraZ);
 
 		for (int regionIndex = 0; regionIndex < visibleRegionCount; ++regionIndex) {
-			final List<BlockEntity> list = visibleRegions.get(regionIndex).getBuildState().getBlockEntities();
+			final RegionBuildState buildState = visibleRegions.get(regionIndex).getBuildState();
+			final List<BlockEntity> list = buildState.getBlockEntities();
 
 			final Iterator<BlockEntity> itBER = list.iterator();
 
@@ -467,6 +512,23 @@ public class CanvasWorldRenderer extends WorldRenderer {
 					continue;
 				}
 
+				if (!entityCullingFrustum.isBlockEntityVisible(blockPos)) {
+					continue;
+				}
+
+				++blockEntityCount;
+
+				if (stage < 0) {
+					if (parallelEntityRenderer.acceptsBlockEntity(blockEntity)) {
+						parallelEntityRenderer.add(blockEntity);
+						continue;
+					}
+
+					if (blockEntityBakeCache.replay(blockEntity, buildState)) {
+						continue;
+					}
+				}
+
 				VertexConsumerProvider outputConsumer = immediate;
 				contextState.setCurrentBlockEntity(blockEntity);
 
@@ -483,28 +545,38 @@ public class CanvasWorldRenderer extends WorldRenderer {
 					};
 				}
 
-				++blockEntityCount;
 				WorldRenderDraws.renderBlockEntitySafely(blockEntity, tickDelta, identityStack, outputConsumer);
+				collectorReplay.endCapture();
 				identityStack.pop();
 			}
 		}
 
+		blockEntityBakeCache.finish();
+
 		synchronized (noCullingBlockEntities) {
 			final Iterator<BlockEntity> globalBERs = noCullingBlockEntities.iterator();
 
 			while (globalBERs.hasNext()) {
 				final BlockEntity blockEntity2 = globalBERs.next();
+				++blockEntityCount;
+
+				if (parallelEntityRenderer.acceptsBlockEntity(blockEntity2)) {
+					parallelEntityRenderer.add(blockEntity2);
+					continue;
+				}
+
 				final BlockPos blockPos2 = blockEntity2.getPos();
 				contextState.setCurrentBlockEntity(blockEntity2);
 				identityStack.push();
 				identityStack.translate(blockPos2.getX() - frameCameraX, blockPos2.getY() - frameCameraY, blockPos2.getZ() - frameCameraZ);
-				++blockEntityCount;
 				WorldRenderDraws.renderBlockEntitySafely(blockEntity2, tickDelta, identityStack, immediate);
 				identityStack.pop();
 			}
 		}
 
+		parallelEntityRenderer.render();
 		contextState.setCurrentBlockEntity(null);
+		entityCullingFrustum.endOcclusionCulling();
 
 		RenderState.disable();
 
@@ -763,8 +835,20 @@ public class CanvasWorldRenderer extends WorldRenderer {
 		}
 	}
 
-	public void updateNoCullingBlockEntities(ObjectOpenHashSet<BlockEntity> removedBlockEntities, ObjectOpenHashSet<BlockEntity> addedBlockEntities) {
-		((WorldRenderer) vanillaWorldRenderer).updateNoCullingBlockEntities(removedBlockEntities, addedBlockEntities);
+	/**
+	 * Same as the vanilla method but removes one at a time, because vanilla removeAll
+	 * can search the removed list for every global block entity.
+	 */
+	public void updateNoCullingBlockEntities(List<BlockEntity> removedBlockEntities, List<BlockEntity> addedBlockEntities) {
+		final Set<BlockEntity> noCullingBlockEntities = vanillaWorldRenderer.canvas_noCullingBlockEntities();
+
+		synchronized (noCullingBlockEntities) {
+			for (int i = removedBlockEntities.size() - 1; i >= 0; --i) {
+				noCullingBlockEntities.remove(removedBlockEntities.get(i));
+			}
+
+			noCullingBlockEntities.addAll(addedBlockEntities);
+		}
 	}
 
 	public void scheduleRegionRender(int x, int y, int z, boolean urgent) {
@@ -834,6 +918,14 @@ public class CanvasWorldRenderer extends WorldRenderer {
 		vanillaWorldRenderer.canvas_reload();
 
 		worldRenderState.clear();
+		collectorReplay.clear();
+		entityGeometryCache.clear();
+		blockEntityBakeCache.clear();
+		parallelEntityRenderer.clear();
+		particleRenderer.clearMaterialCache();
+		ItemRenderContext.get().clearGuiItemCache();
+		StaticBlockModelCache.clear();
+		FaceCullTable.clear();
 		TransferBuffers.forceReload();
 		StreamBufferAllocator.forceReload();
 		//ClassInspector.inspect();
@@ -857,12 +949,11 @@ public class CanvasWorldRenderer extends WorldRenderer {
 		String shadowRegionString = "";
 
 		if (worldRenderState.shadowsEnabled()) {
-			final int shadowCount = worldRenderState.shadowVisibleRegions[0].getActiveCount()
-					+ worldRenderState.shadowVisibleRegions[1].getActiveCount()
-					+ worldRenderState.shadowVisibleRegions[2].getActiveCount()
-					+ worldRenderState.shadowVisibleRegions[3].getActiveCount();
-
-			shadowRegionString = String.format("S: %d,", shadowCount);
+			shadowRegionString = String.format("S: %d/%d/%d/%d,",
+					worldRenderState.shadowVisibleRegions[0].getActiveCount(),
+					worldRenderState.shadowVisibleRegions[1].getActiveCount(),
+					worldRenderState.shadowVisibleRegions[2].getActiveCount(),
+					worldRenderState.shadowVisibleRegions[3].getActiveCount());
 		}
 
 		return String.format("C: %d/%d %sD: %d, %s", count, len, MinecraftClient.getInstance().chunkCullingEnabled ? "(s) " : "", worldRenderState.chunkRenderDistance(), shadowRegionString);
@@ -0,0 +1,162 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.render.world;
+
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.util.math.MathHelper;
+
+import grondag.canvas.buffer.input.CollectorReplay;
+import grondag.canvas.config.Configurator;
+
+/**
+ * Replays vertex output of distant entities instead of rendering them every frame.
+ *
+ * <p>Output of an entity is captured from the collectors when it renders, and on following
+ * frames is appended again, offset by how far the entity moved relative to the camera.
+ * Entities render normally every few frames, more often when near or large on screen.
+ * Output that goes to vanilla buffers can't be captured, so entities with any such output
+ * render every frame.
+ */
+class EntityGeometryCache {
+	/** Entities that appear larger than this, in approximate radians, always render. */
+	static final float MAX_CACHED_ANGULAR_SIZE = 0.1f;
+
+	/** Frames between checks for entries of entities no longer rendered. */
+	private static final int SWEEP_INTERVAL = 64;
+
+	private final CollectorReplay collectorReplay;
+	private final Reference2ObjectOpenHashMap<Entity, Entry> entries = new Reference2ObjectOpenHashMap<>();
+	private int frame;
+	private boolean isEnabled;
+	private float tickDelta;
+	private double cameraX, cameraY, cameraZ;
+
+	private int replayCount;
+	private int renderCount;
+	private String debugSummary = "";
+
+	EntityGeometryCache(CollectorReplay collectorReplay) {
+		this.collectorReplay = collectorReplay;
+	}
+
+	/**
+	 * Call once per frame before entities are rendered.
+	 */
+	void prepare(float tickDelta, double cameraX, double cameraY, double cameraZ) {
+		++frame;
+		isEnabled = Configurator.entityFrameSkipDistance > 0;
+		replayCount = 0;
+		renderCount = 0;
+
+		if (!isEnabled) {
+			entries.clear();
+			return;
+		}
+
+		this.tickDelta = tickDelta;
+		this.cameraX = cameraX;
+		this.cameraY = cameraY;
+		this.cameraZ = cameraZ;
+
+		if (frame % SWEEP_INTERVAL == 0) {
+			final int minFrame = frame - SWEEP_INTERVAL;
+			entries.values().removeIf(e -> e.lastFrame < minFrame);
+		}
+	}
+
+	/**
+	 * Call for entities that will render into the immediate of the replay helper. If cached output is current
+	 * enough it is appended to the immediate and the result is true, and the entity should not be rendered.
+	 * Otherwise, if the entity is eligible, capture starts and must be completed with {@link CollectorReplay#endCapture()}
+	 * after the entity renders.
+	 */
+	boolean replay(Entity entity) {
+		if (!isEnabled) {
+			return false;
+		}
+
+		final double dx = MathHelper.lerp(tickDelta, entity.lastRenderX, entity.getX()) - cameraX;
+		final double dy = MathHelper.lerp(tickDelta, entity.lastRenderY, entity.getY()) - cameraY;
+		final double dz = MathHelper.lerp(tickDelta, entity.lastRenderZ, entity.getZ()) - cameraZ;
+		final float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+		final int interval = frameInterval(distance, Math.max(entity.getWidth(), entity.getHeight()), Configurator.entityFrameSkipDistance, Configurator.entityFrameSkipInterval);
+
+		if (interval <= 1) {
+			return false;
+		}
+
+		Entry entry = entries.get(entity);
+
+		if (entry == null) {
+			entry = new Entry();
+			entries.put(entity, entry);
+		} else if (entry.isValid() && entry.lastFrame == frame - 1 && frame - entry.captureFrame < interval) {
+			collectorReplay.replay(entry, dx, dy, dz);
+			entry.lastFrame = frame;
+			++replayCount;
+			return true;
+		}
+
+		entry.lastFrame = frame;
+
+		if (collectorReplay.beginCapture(entry, dx, dy, dz)) {
+			entry.captureFrame = frame;
+			++renderCount;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Call after all entities have rendered.
+	 */
+	void finish() {
+		debugSummary = isEnabled ? String.format("Entity frame skip: %d replayed, %d rendered", replayCount, renderCount) : "Entity frame skip: off";
+	}
+
+	void clear() {
+		entries.clear();
+	}
+
+	String debugSummary() {
+		return debugSummary;
+	}
+
+	/**
+	 * Number of frames cached output of an entity is used before it renders again.
+	 * One means it renders every frame.
+	 *
+	 * @param distance      distance from camera
+	 * @param size          largest dimension of the entity
+	 * @param startDistance distance at which caching starts
+	 * @param maxInterval   interval limit
+	 */
+	static int frameInterval(float distance, float size, int startDistance, int maxInterval) {
+		if (startDistance <= 0 || distance < startDistance || size > distance * MAX_CACHED_ANGULAR_SIZE) {
+			return 1;
+		}
+
+		return Math.min(maxInterval, 2 + (int) ((distance - startDistance) / startDistance));
+	}
+
+	private static class Entry extends CollectorReplay.Entry {
+		private int captureFrame;
+		private int lastFrame;
+	}
+}
@@ -0,0 +1,385 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.render.world;
+
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import org.jetbrains.annotations.Nullable;
+
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.block.entity.BlockEntityType;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.render.BufferBuilder;
+import net.minecraft.client.render.RenderLayer;
+import net.minecraft.client.render.VertexConsumer;
+import net.minecraft.client.render.block.entity.BlockEntityRenderer;
+import net.minecraft.client.render.block.entity.BlockEntityRendererFactories;
+import net.minecraft.client.render.block.entity.BlockEntityRendererFactory;
+import net.minecraft.client.render.entity.EntityRenderer;
+import net.minecraft.client.render.entity.EntityRendererFactory;
+import net.minecraft.client.render.entity.EntityRenderers;
+import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityType;
+import net.minecraft.util.crash.CrashException;
+import net.minecraft.util.crash.CrashReport;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.registry.Registry;
+
+import grondag.canvas.apiimpl.rendercontext.BlockRenderContext;
+import grondag.canvas.apiimpl.rendercontext.EntityBlockRenderContext;
+import grondag.canvas.buffer.input.CanvasImmediate;
+import grondag.canvas.config.Configurator;
+import grondag.canvas.config.RegistryTypeList;
+import grondag.canvas.material.state.RenderContextState;
+import grondag.canvas.mixinterface.WorldRendererExt;
+import grondag.canvas.varia.AutoImmediate;
+
+/**
+ * Renders allow-listed entity and block entity types on worker threads.
+ *
+ * <p>Each worker has its own {@link CanvasImmediate}, context state and matrix stack, and uses
+ * thread-local render contexts.  Renderers typically hold mutable model state, so each worker
+ * also has its own instance of every entity and block entity renderer, which the render
+ * dispatchers return on that worker's thread.  Instances are therefore spread over all workers
+ * one at a time, even when a frame has many of the same type.  Types without a private renderer,
+ * such as players, use the shared renderer and all their instances go to one worker.
+ * Assignment is to the least loaded worker in the order added, and workers are merged into
+ * the world immediate in worker order, so output is deterministic for the same inputs.
+ *
+ * <p>Renderers not on the allow-lists are rendered normally on the render thread.
+ * Workers never draw. Output for layers Canvas doesn't handle goes to one buffer per layer,
+ * and explicit draw calls are ignored, so those buffers are drawn on the render thread right after
+ * the merge.
+ */
+public class ParallelEntityRenderer {
+	private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+	private final WorldRendererExt wr;
+	private final CanvasImmediate target;
+
+	private Worker[] workers;
+	private Future<?>[] futures;
+	private ExecutorService executor;
+	private final Reference2IntOpenHashMap<Object> typeWorkers = new Reference2IntOpenHashMap<>();
+	private int queuedCount;
+
+	private final RegistryTypeList<EntityType<?>> entityTypes = new RegistryTypeList<>(Registry.ENTITY_TYPE);
+	private final RegistryTypeList<BlockEntityType<?>> blockEntityTypes = new RegistryTypeList<>(Registry.BLOCK_ENTITY_TYPE);
+
+	private boolean isEnabled;
+	private float tickDelta;
+	private double cameraX, cameraY, cameraZ;
+
+	ParallelEntityRenderer(WorldRendererExt wr, CanvasImmediate target) {
+		this.wr = wr;
+		this.target = target;
+	}
+
+	/**
+	 * Call once per frame before entities are rendered.
+	 */
+	void prepare(float tickDelta, double cameraX, double cameraY, double cameraZ) {
+		isEnabled = Configurator.parallelEntityRendering;
+
+		if (!isEnabled) {
+			return;
+		}
+
+		if (workers == null) {
+			createWorkers();
+		}
+
+		if (workers[0].entityRenderers == null) {
+			createRenderers();
+		}
+
+		entityTypes.update(Configurator.parallelEntityTypes);
+		blockEntityTypes.update(Configurator.parallelBlockEntityTypes);
+
+		this.tickDelta = tickDelta;
+		this.cameraX = cameraX;
+		this.cameraY = cameraY;
+		this.cameraZ = cameraZ;
+	}
+
+	private void createWorkers() {
+		final int count = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+		workers = new Worker[count];
+		futures = new Future<?>[count];
+
+		for (int i = 0; i < count; ++i) {
+			workers[i] = new Worker();
+		}
+
+		executor = Executors.newFixedThreadPool(count, r -> {
+			final Thread thread = new WorkerThread(r, "Canvas Entity Worker - " + THREAD_COUNTER.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/** Renderers read models and other resources at creation. Call on the render thread. */
+	private void createRenderers() {
+		final MinecraftClient client = MinecraftClient.getInstance();
+
+		for (final Worker worker : workers) {
+			worker.entityRenderers = EntityRenderers.reloadEntityRenderers(new EntityRendererFactory.Context(client.getEntityRenderDispatcher(),
+					client.getItemRenderer(), client.getResourceManager(), client.getEntityModelLoader(), client.textRenderer));
+			worker.blockEntityRenderers = BlockEntityRendererFactories.reload(new BlockEntityRendererFactory.Context(client.getBlockEntityRenderDispatcher(),
+					client.getBlockRenderManager(), client.getEntityModelLoader(), client.textRenderer));
+		}
+	}
+
+	/**
+	 * Discards worker renderers so they are created again from reloaded resources.
+	 */
+	void clear() {
+		if (workers != null) {
+			for (final Worker worker : workers) {
+				worker.entityRenderers = null;
+				worker.blockEntityRenderers = null;
+			}
+		}
+	}
+
+	/**
+	 * Private renderer of the worker running on the current thread, or null on other
+	 * threads and for types without one, in which case the shared renderer is used.
+	 */
+	public static @Nullable EntityRenderer<?> workerRenderer(Entity entity) {
+		return Thread.currentThread() instanceof WorkerThread thread && thread.worker != null ? thread.worker.entityRenderers.get(entity.getType()) : null;
+	}
+
+	/** Like {@link #workerRenderer(Entity)} for block entities. */
+	public static @Nullable BlockEntityRenderer<?> workerRenderer(BlockEntity blockEntity) {
+		return Thread.currentThread() instanceof WorkerThread thread && thread.worker != null ? thread.worker.blockEntityRenderers.get(blockEntity.getType()) : null;
+	}
+
+	boolean acceptsEntity(Entity entity) {
+		return isEnabled && entityTypes.contains(entity.getType());
+	}
+
+	boolean acceptsBlockEntity(BlockEntity blockEntity) {
+		return isEnabled && blockEntityTypes.contains(blockEntity.getType());
+	}
+
+	/** Entity must be accepted by {@link #acceptsEntity(Entity)}. */
+	void add(Entity entity) {
+		final EntityType<?> type = entity.getType();
+		workers[workerFor(type, workers[0].entityRenderers.containsKey(type))].entities.add(entity);
+	}
+
+	/** Block entity must be accepted by {@link #acceptsBlockEntity(BlockEntity)}. */
+	void add(BlockEntity blockEntity) {
+		final BlockEntityType<?> type = blockEntity.getType();
+		workers[workerFor(type, workers[0].blockEntityRenderers.containsKey(type))].blockEntities.add(blockEntity);
+	}
+
+	/**
+	 * @param hasWorkerRenderers true if every worker has its own renderer for the type,
+	 * otherwise all instances of the type go to the same worker
+	 */
+	private int workerFor(Object type, boolean hasWorkerRenderers) {
+		++queuedCount;
+
+		if (hasWorkerRenderers) {
+			return leastLoadedWorker();
+		}
+
+		int result = typeWorkers.getOrDefault(type, -1);
+
+		if (result == -1) {
+			result = leastLoadedWorker();
+			typeWorkers.put(type, result);
+		}
+
+		return result;
+	}
+
+	private int leastLoadedWorker() {
+		int result = 0;
+
+		for (int i = 1; i < workers.length; ++i) {
+			if (workers[i].load() < workers[result].load()) {
+				result = i;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Renders everything added since the last call, waits for completion and merges
+	 * the output into the target immediate.  Call on the render thread.
+	 */
+	void render() {
+		if (queuedCount == 0) {
+			return;
+		}
+
+		final Worker[] workers = this.workers;
+		final int limit = workers.length;
+
+		for (int i = 0; i < limit; ++i) {
+			futures[i] = workers[i].load() == 0 ? null : executor.submit(workers[i]);
+		}
+
+		Throwable error = null;
+		boolean isInterrupted = false;
+
+		// workers write to their immediates until done, so wait for all of them even if interrupted
+		for (int i = 0; i < limit; ++i) {
+			while (futures[i] != null) {
+				try {
+					futures[i].get();
+					futures[i] = null;
+				} catch (final ExecutionException e) {
+					error = e.getCause();
+					futures[i] = null;
+				} catch (final InterruptedException e) {
+					isInterrupted = true;
+				}
+			}
+		}
+
+		if (isInterrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		for (int i = 0; i < limit; ++i) {
+			final Worker worker = workers[i];
+			worker.entities.clear();
+			worker.blockEntities.clear();
+			target.collectors.append(worker.immediate.collectors);
+			worker.immediate.drawFallback();
+		}
+
+		typeWorkers.clear();
+		queuedCount = 0;
+
+		if (error != null) {
+			throw new CrashException(CrashReport.create(error, "Rendering entities on worker thread - Canvas Renderer"));
+		}
+	}
+
+	private class Worker implements Runnable {
+		private final RenderContextState contextState = new RenderContextState();
+		private final WorkerImmediate immediate = new WorkerImmediate(contextState);
+		private final MatrixStack matrixStack = new MatrixStack();
+		private final ObjectArrayList<Entity> entities = new ObjectArrayList<>();
+		private final ObjectArrayList<BlockEntity> blockEntities = new ObjectArrayList<>();
+		private Map<EntityType<?>, EntityRenderer<?>> entityRenderers;
+		private Map<BlockEntityType<?>, BlockEntityRenderer<?>> blockEntityRenderers;
+
+		private int load() {
+			return entities.size() + blockEntities.size();
+		}
+
+		@Override
+		public void run() {
+			final WorkerThread thread = (WorkerThread) Thread.currentThread();
+			thread.worker = this;
+			final EntityBlockRenderContext entityBlockContext = EntityBlockRenderContext.get();
+			final BlockRenderContext blockContext = BlockRenderContext.get();
+			entityBlockContext.tickDelta(tickDelta);
+			entityBlockContext.collectors = immediate.collectors;
+			blockContext.collectors = immediate.collectors;
+
+			try {
+				for (final Entity entity : entities) {
+					contextState.setCurrentEntity(entity);
+					entityBlockContext.setPosAndWorldFromEntity(entity);
+					wr.canvas_renderEntity(entity, cameraX, cameraY, cameraZ, tickDelta, matrixStack, immediate);
+				}
+
+				contextState.setCurrentEntity(null);
+
+				for (final BlockEntity blockEntity : blockEntities) {
+					final BlockPos blockPos = blockEntity.getPos();
+					contextState.setCurrentBlockEntity(blockEntity);
+					matrixStack.push();
+					matrixStack.translate(blockPos.getX() - cameraX, blockPos.getY() - cameraY, blockPos.getZ() - cameraZ);
+					WorldRenderDraws.renderBlockEntitySafely(blockEntity, tickDelta, matrixStack, immediate);
+					matrixStack.pop();
+				}
+
+				contextState.setCurrentBlockEntity(null);
+			} finally {
+				entityBlockContext.collectors = null;
+				blockContext.collectors = null;
+				thread.worker = null;
+			}
+		}
+	}
+
+	private static class WorkerThread extends Thread {
+		/** Worker running on this thread, null between runs. */
+		private Worker worker;
+
+		private WorkerThread(Runnable runnable, String name) {
+			super(runnable, name);
+		}
+	}
+
+	/**
+	 * Immediate for worker threads that never draws.  Vanilla output is kept per layer so that
+	 * switching layers doesn't force a draw, and all draw requests are deferred to {@link #drawFallback()}.
+	 */
+	private static class WorkerImmediate extends CanvasImmediate {
+		private final AutoImmediate fallback = new AutoImmediate();
+
+		private WorkerImmediate(RenderContextState contextState) {
+			super(new BufferBuilder(256), new Object2ObjectLinkedOpenHashMap<>(), contextState);
+		}
+
+		@Override
+		protected VertexConsumer fallbackBuffer(RenderLayer renderLayer) {
+			return fallback.getBuffer(renderLayer);
+		}
+
+		@Override
+		public void drawCurrentLayer() {
+			// deferred
+		}
+
+		@Override
+		public void draw() {
+			// deferred
+		}
+
+		@Override
+		public void draw(RenderLayer layer) {
+			// deferred; Canvas collector content is merged and drawn with the target
+		}
+
+		/** Draws vanilla output of the last worker pass. Render thread only. */
+		private void drawFallback() {
+			assert RenderSystem.isOnRenderThread();
+			fallback.draw();
+		}
+	}
+}
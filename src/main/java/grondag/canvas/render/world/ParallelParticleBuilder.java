@@ -0,0 +1,243 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.render.world;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2BooleanOpenHashMap;
+
+import net.minecraft.client.particle.Particle;
+import net.minecraft.client.particle.ParticleTextureSheet;
+import net.minecraft.client.render.Camera;
+import net.minecraft.particle.ParticleType;
+import net.minecraft.util.crash.CrashException;
+import net.minecraft.util.crash.CrashReport;
+import net.minecraft.util.crash.CrashReportSection;
+import net.minecraft.util.registry.Registry;
+
+import grondag.canvas.buffer.input.VertexCollectorList;
+import grondag.canvas.config.Configurator;
+import grondag.canvas.config.RegistryTypeList;
+import grondag.canvas.material.state.RenderMaterialImpl;
+import grondag.canvas.mixinterface.ParticleExt;
+
+/**
+ * Builds geometry of large particle sheets on worker threads.
+ *
+ * <p>Particles added for a sheet are split into contiguous chunks. The render thread builds the
+ * first chunk directly into the target and each worker builds one of the others into its own
+ * collector list. Worker output is appended to the target in chunk order, after particles of
+ * the sheet that were built serially, so quad order differs from a serial build. Translucent sheets
+ * are therefore never split because blending depends on that order.
+ *
+ * <p>Only vanilla particle classes and allow-listed particle types are accepted. Others should
+ * be built on the render thread because modded particles may share mutable state.
+ */
+public class ParallelParticleBuilder {
+	/** Sheets with fewer particles than two chunks of this size are built serially. */
+	static final int MIN_CHUNK_SIZE = 1024;
+
+	private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+	private Worker[] workers;
+	/** Builds the first chunk on the render thread, directly into the target. */
+	private final Worker localWorker = new Worker(null);
+	private Future<?>[] futures;
+	private ExecutorService executor;
+
+	private final ObjectArrayList<Particle> particles = new ObjectArrayList<>();
+	private final ObjectArrayList<RenderMaterialImpl> materials = new ObjectArrayList<>();
+	private final Reference2BooleanOpenHashMap<Class<?>> vanillaClasses = new Reference2BooleanOpenHashMap<>();
+	private final RegistryTypeList<ParticleType<?>> types = new RegistryTypeList<>(Registry.PARTICLE_TYPE);
+
+	private boolean isEnabled;
+	private Camera camera;
+	private float tickDelta;
+
+	/**
+	 * Call once per frame before particles are rendered.
+	 */
+	void prepare(Camera camera, float tickDelta) {
+		isEnabled = Configurator.parallelParticleBuild;
+
+		if (!isEnabled) {
+			return;
+		}
+
+		if (workers == null) {
+			createWorkers();
+		}
+
+		types.update(Configurator.parallelParticleTypes);
+
+		this.camera = camera;
+		this.tickDelta = tickDelta;
+	}
+
+	private void createWorkers() {
+		final int count = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+		workers = new Worker[count];
+		futures = new Future<?>[count];
+
+		for (int i = 0; i < count; ++i) {
+			workers[i] = new Worker(new VertexCollectorList(false));
+		}
+
+		executor = Executors.newFixedThreadPool(count, r -> {
+			final Thread thread = new Thread(r, "Canvas Particle Worker - " + THREAD_COUNTER.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/** True if the sheet is opaque or cutout and large enough to be worth splitting. */
+	boolean acceptsSheet(ParticleTextureSheet sheet, int particleCount) {
+		return isEnabled && sheet != ParticleTextureSheet.PARTICLE_SHEET_TRANSLUCENT && particleCount >= MIN_CHUNK_SIZE * 2;
+	}
+
+	boolean acceptsParticle(Particle particle) {
+		final ParticleType<?> type = ((ParticleExt) particle).canvas_particleType();
+
+		if (type != null && types.contains(type)) {
+			return true;
+		}
+
+		final Class<?> particleClass = particle.getClass();
+
+		if (vanillaClasses.containsKey(particleClass)) {
+			return vanillaClasses.getBoolean(particleClass);
+		}
+
+		final boolean result = particleClass.getName().startsWith("net.minecraft.");
+		vanillaClasses.put(particleClass, result);
+		return result;
+	}
+
+	/** Particle must be accepted by {@link #acceptsParticle(Particle)}. */
+	void add(Particle particle, RenderMaterialImpl material) {
+		particles.add(particle);
+		materials.add(material);
+	}
+
+	/**
+	 * Builds everything added since the last call into the target and clears it.
+	 * Call on the render thread.
+	 */
+	void build(VertexCollectorList target) {
+		final int particleCount = particles.size();
+
+		if (particleCount == 0) {
+			return;
+		}
+
+		final int chunkCount = chunkCount(particleCount, workers.length + 1);
+		final int chunkSize = (particleCount + chunkCount - 1) / chunkCount;
+
+		for (int i = 1; i < chunkCount; ++i) {
+			final Worker worker = workers[i - 1];
+			worker.start = i * chunkSize;
+			worker.end = Math.min(particleCount, worker.start + chunkSize);
+			futures[i - 1] = executor.submit(worker);
+		}
+
+		final Worker localWorker = this.localWorker;
+		localWorker.collectors = target;
+		localWorker.start = 0;
+		localWorker.end = Math.min(particleCount, chunkSize);
+		localWorker.run();
+		localWorker.collectors = null;
+
+		Worker failed = localWorker.error == null ? null : localWorker;
+
+		for (int i = 1; i < chunkCount; ++i) {
+			final Worker worker = workers[i - 1];
+
+			try {
+				futures[i - 1].get();
+			} catch (final ExecutionException e) {
+				worker.error = e.getCause();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			futures[i - 1] = null;
+			target.append(worker.collectors);
+
+			if (failed == null && worker.error != null) {
+				failed = worker;
+			}
+		}
+
+		particles.clear();
+		materials.clear();
+
+		if (failed != null) {
+			final CrashReport crashReport = CrashReport.create(failed.error, "Rendering Particle");
+			final CrashReportSection crashReportSection = crashReport.addElement("Particle being rendered");
+			final Particle particle = failed.errorParticle;
+			crashReportSection.add("Particle", () -> String.valueOf(particle));
+			crashReportSection.add("Parallel Build", () -> "true");
+			throw new CrashException(crashReport);
+		}
+	}
+
+	/**
+	 * Number of chunks, including the one built on the render thread. Less than two means the
+	 * particles should all be built on the render thread.
+	 */
+	static int chunkCount(int particleCount, int maxChunks) {
+		return Math.max(1, Math.min(maxChunks, particleCount / MIN_CHUNK_SIZE));
+	}
+
+	private class Worker implements Runnable {
+		private VertexCollectorList collectors;
+		private int start;
+		private int end;
+		private Particle errorParticle;
+		private Throwable error;
+
+		private Worker(VertexCollectorList collectors) {
+			this.collectors = collectors;
+		}
+
+		@Override
+		public void run() {
+			final Camera camera = ParallelParticleBuilder.this.camera;
+			final float tickDelta = ParallelParticleBuilder.this.tickDelta;
+			final VertexCollectorList.Consumer consumer = collectors.consumer;
+			consumer.prepare(materials.get(start));
+
+			for (int i = start; i < end; ++i) {
+				final Particle particle = particles.get(i);
+
+				try {
+					consumer.defaultMaterial(materials.get(i));
+					particle.buildGeometry(consumer, camera, tickDelta);
+				} catch (final Throwable e) {
+					errorParticle = particle;
+					error = e;
+					return;
+				}
+			}
+		}
+	}
+}
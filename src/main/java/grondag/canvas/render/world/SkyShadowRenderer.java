@@ -19,6 +19,7 @@ package grondag.canvas.render.world;
 import com.mojang.blaze3d.systems.RenderSystem;
 
 import net.minecraft.client.MinecraftClient;
+import net.minecraft.util.profiler.Profiler;
 
 import grondag.canvas.buffer.util.DrawableStream;
 import grondag.canvas.pipeline.Pipeline;
@@ -30,6 +31,7 @@ public class SkyShadowRenderer {
 	private static boolean active = false;
 	private static boolean renderEntityShadows = false;
 	private static int cascade;
+	private static final String[] CASCADE_PROFILER_TOKENS = {"cascade_0", "cascade_1", "cascade_2", "cascade_3"};
 
 	private static void begin() {
 		assert !active;
@@ -52,10 +54,24 @@ public class SkyShadowRenderer {
 		if (Pipeline.shadowsEnabled()) {
 			begin();
 
+			final Profiler profiler = MinecraftClient.getInstance().getProfiler();
+			final WorldRenderState worldRenderState = canvasWorldRenderer.worldRenderState;
+
 			for (cascade = 0; cascade < ShadowMatrixData.CASCADE_COUNT; ++cascade) {
-				Pipeline.skyShadowFbo.bind();
-				GFX.framebufferTextureLayer(GFX.GL_FRAMEBUFFER, GFX.GL_DEPTH_ATTACHMENT, Pipeline.shadowMapDepth, 0, cascade);
-				renderInner(canvasWorldRenderer, entityBuffer, shadowExtrasBuffer);
+				// Check terrain for every cascade so changes are consumed even when redrawn for other reasons
+				final boolean terrainChanged = worldRenderState.checkAndClearShadowTerrainChange(cascade);
+
+				// Cascades not redrawn keep their depth content from the last time they were
+				// and the shadow projection for them has been kept consistent with it.
+				if (terrainChanged || ShadowMatrixData.isCascadeRefreshNeeded(cascade)) {
+					// Only redrawn cascades appear in the profiler
+					profiler.push(CASCADE_PROFILER_TOKENS[cascade]);
+					Pipeline.skyShadowFbo.bind();
+					GFX.framebufferTextureLayer(GFX.GL_FRAMEBUFFER, GFX.GL_DEPTH_ATTACHMENT, Pipeline.shadowMapDepth, 0, cascade);
+					renderInner(canvasWorldRenderer, entityBuffer, shadowExtrasBuffer);
+					ShadowMatrixData.onCascadeRefreshed(cascade);
+					profiler.pop();
+				}
 			}
 
 			Pipeline.defaultFbo.bind();
@@ -184,7 +184,13 @@ public class WorldRenderDraws {
 		try {
 			MinecraftClient.getInstance().getBlockEntityRenderDispatcher().render(blockEntity, tickDelta, matrixStack, outputConsumer);
 		} catch (final Exception e) {
-			if (WorldRenderDraws.CAUGHT_BER_ERRORS.add(blockEntity.getType())) {
+			final boolean isFirstError;
+
+			synchronized (CAUGHT_BER_ERRORS) {
+				isFirstError = CAUGHT_BER_ERRORS.add(blockEntity.getType());
+			}
+
+			if (isFirstError) {
 				CanvasMod.LOG.warn(String.format("Unhandled exception rendering while rendering BlockEntity %s @ %s.  Stack trace follows. Subsequent errors will be suppressed.",
 						Registry.BLOCK_ENTITY_TYPE.getId(blockEntity.getType()).toString(), blockEntity.getPos().toShortString()));
 
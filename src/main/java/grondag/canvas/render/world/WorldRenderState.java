@@ -18,6 +18,7 @@ package grondag.canvas.render.world;
 
 import java.util.BitSet;
 
+import it.unimi.dsi.fastutil.HashCommon;
 import org.jetbrains.annotations.Nullable;
 
 import net.minecraft.client.MinecraftClient;
@@ -36,6 +37,7 @@ import grondag.canvas.terrain.occlusion.SortableVisibleRegionList;
 import grondag.canvas.terrain.occlusion.TerrainIterator;
 import grondag.canvas.terrain.occlusion.VisibleRegionList;
 import grondag.canvas.terrain.region.RegionRebuildManager;
+import grondag.canvas.terrain.region.RenderRegion;
 import grondag.canvas.terrain.region.RenderRegionBuilder;
 import grondag.canvas.terrain.region.RenderRegionStorage;
 
@@ -72,6 +74,10 @@ public class WorldRenderState {
 	private DrawableRegionList translucentDrawList = DrawableRegionList.EMPTY;
 	private final DrawableRegionList[] shadowDrawLists = new DrawableRegionList[ShadowMatrixData.CASCADE_COUNT];
 
+	/** Summarizes regions and their build results in each shadow cascade, to detect terrain changes. */
+	private final long[] shadowTerrainSignatures = new long[ShadowMatrixData.CASCADE_COUNT];
+	private int shadowTerrainChangeFlags = -1;
+
 	private RenderRegionBuilder regionBuilder;
 	private ClientWorld world;
 	private boolean hasSkylight;
@@ -84,6 +90,8 @@ public class WorldRenderState {
 	public final DrawListCullingHelper drawListCullingHlper = new DrawListCullingHelper(this);
 	public final VertexClusterRealm solidClusterRealm = new VertexClusterRealm(false);
 	public final VertexClusterRealm translucentClusterRealm = new VertexClusterRealm(true);
+	/** Solid geometry of regions meshed at reduced detail, kept apart so full-detail clusters stay dense. */
+	public final VertexClusterRealm lodClusterRealm = new VertexClusterRealm(false);
 	public final BitSet terrainAnimationBits = new BitSet();
 
 	public WorldRenderState(CanvasWorldRenderer cwr) {
@@ -119,6 +127,7 @@ public class WorldRenderState {
 		hasSkylight = world != null && world.getDimension().hasSkyLight();
 		solidClusterRealm.clear();
 		translucentClusterRealm.clear();
+		lodClusterRealm.clear();
 	}
 
 	public ClientWorld getWorld() {
@@ -191,9 +200,18 @@ public class WorldRenderState {
 				shadowDrawLists[i].close();
 				shadowDrawLists[i] = DrawableRegionList.build(shadowList, false, true);
 				final int shadowLimit = shadowList.size();
+				long signature = shadowLimit;
 
 				for (int j = 0; j < shadowLimit; ++j) {
-					terrainAnimationBits.or(shadowList.get(j).animationBits);
+					final RenderRegion region = shadowList.get(j);
+					terrainAnimationBits.or(region.animationBits);
+					// Order-independent because iteration order can change without any change in content
+					signature += HashCommon.mix(System.identityHashCode(region.solidDrawable()));
+				}
+
+				if (signature != shadowTerrainSignatures[i]) {
+					shadowTerrainSignatures[i] = signature;
+					shadowTerrainChangeFlags |= 1 << i;
 				}
 			}
 		}
@@ -215,6 +233,7 @@ public class WorldRenderState {
 		sectorManager.clear();
 		solidClusterRealm.clear();
 		translucentClusterRealm.clear();
+		lodClusterRealm.clear();
 	}
 
 	void clearDrawSpecs() {
@@ -248,6 +267,25 @@ public class WorldRenderState {
 		prof.pop();
 	}
 
+	/**
+	 * True if terrain in the given cascade has changed since the last call for that cascade.
+	 * Used to redraw cascades that would otherwise reuse their prior depth content.
+	 */
+	boolean checkAndClearShadowTerrainChange(int cascadeIndex) {
+		final int flag = 1 << cascadeIndex;
+		final boolean result = (shadowTerrainChangeFlags & flag) != 0;
+		shadowTerrainChangeFlags &= ~flag;
+		return result;
+	}
+
+	public String shadowCullingDebugSummary() {
+		return String.format("Shadow culled verts: %,d/%,d/%,d/%,d",
+				shadowDrawLists[0].culledVertexCount(),
+				shadowDrawLists[1].culledVertexCount(),
+				shadowDrawLists[2].culledVertexCount(),
+				shadowDrawLists[3].culledVertexCount());
+	}
+
 	void renderShadowLayer(int cascadeIndex) {
 		final Profiler prof = MinecraftClient.getInstance().getProfiler();
 		prof.push("render_shadow");
@@ -36,6 +36,7 @@ import net.minecraft.util.math.Vector4f;
 
 import grondag.canvas.mixinterface.Matrix4fExt;
 import grondag.canvas.pipeline.Pipeline;
+import grondag.canvas.pipeline.config.SkyShadowConfig;
 import grondag.canvas.varia.CelestialObjectFunction.CelestialObjectOutput;
 
 public final class ShadowMatrixData {
@@ -69,11 +70,27 @@ public final class ShadowMatrixData {
 		}
 	}
 
+	private static final Matrix4f skyRotationMatrix = new Matrix4f();
 	private static final Vector4f testVec = new Vector4f();
 	private static float[] lastDx = new float[CASCADE_COUNT];
 	private static float[] lastDy = new float[CASCADE_COUNT];
 	private static double lastCameraX, lastCameraY, lastCameraZ;
 
+	// Light-space center and camera position of each cascade as of the last frame it was redrawn.
+	// Used to keep the projection of cascades that aren't redrawn aligned with their depth content.
+	private static final float[] cachedCenters = new float[CASCADE_COUNT * 3];
+	private static final double[] cachedCameraPos = new double[CASCADE_COUNT * 3];
+	private static final int[] framesSinceRefresh = new int[CASCADE_COUNT];
+	private static int refreshFlags = -1;
+
+	/**
+	 * Camera movement in texels of a cascade, across the light direction, that forces a reused
+	 * cascade to be redrawn.  Otherwise its fixed projection would drift away from the view.
+	 */
+	private static final int MAX_STALE_TEXELS = 64;
+	private static SkyShadowConfig lastSkyShadowConfig;
+	private static int lastRadius;
+
 	private static float regionMaxExtent;
 
 	private static void computeShadowMatrices(Camera camera, float tickDelta, CelestialObjectOutput skyOutput) {
@@ -118,28 +135,39 @@ public final class ShadowMatrixData {
 		final int radius = (int) Math.ceil(Math.sqrt(viewDist * viewDist - halfDist * halfDist));
 
 		// Compute sky light vector transform - points towards the sun
-		shadowViewMatrix.loadIdentity();
+		skyRotationMatrix.loadIdentity();
 		// FEAT: allow this to be configured by dimension - default value has north-south axis of rotation
-		shadowViewMatrix.multiply(Vec3f.POSITIVE_Y.getDegreesQuaternion(-90));
-		shadowViewMatrix.multiply(Vec3f.POSITIVE_Z.getDegreesQuaternion(skyOutput.zenithAngle));
-		shadowViewMatrix.multiply(Vec3f.POSITIVE_X.getDegreesQuaternion(skyOutput.hourAngle));
+		skyRotationMatrix.multiply(Vec3f.POSITIVE_Y.getDegreesQuaternion(-90));
+		skyRotationMatrix.multiply(Vec3f.POSITIVE_Z.getDegreesQuaternion(skyOutput.zenithAngle));
+		skyRotationMatrix.multiply(Vec3f.POSITIVE_X.getDegreesQuaternion(skyOutput.hourAngle));
 		testVec.set(0, 1, 0, 0);
-		testVec.transform(shadowViewMatrix);
-		skyLightVector.set(testVec.getX(), testVec.getY(), testVec.getZ());
-
-		// Use the unit vector we just computed to create a view matrix from perspective of the sky light.
-		// Distance here isn't too picky, we need to ensure it is far enough away to contain any shadow-casting
-		// geometry but not far enough to lose much precision in the depth (Z) dimension.
-		shadowViewMatrixExt.lookAt(
-			skyLightVector.getX() * radius, skyLightVector.getY() * radius, skyLightVector.getZ() * radius,
-			0, 0, 0,
-			0.0f, 0.0f, 1.0f);
-
-		// Compute inverse while we're here
-		shadowViewMatrixInvExt.set(shadowViewMatrixExt);
-		shadowViewMatrixInv.invert();
+		testVec.transform(skyRotationMatrix);
+
+		final SkyShadowConfig skyShadow = Pipeline.config().skyShadow;
+		refreshFlags = 0;
+
+		// Cached shadow maps can't be reused across pipeline changes and are
+		// only valid for the light view they were drawn with.
+		if (skyShadow != lastSkyShadowConfig || radius != lastRadius || shouldUpdateLightVector(skyShadow)) {
+			lastSkyShadowConfig = skyShadow;
+			lastRadius = radius;
+			refreshFlags = -1;
+			skyLightVector.set(testVec.getX(), testVec.getY(), testVec.getZ());
+
+			// Use the unit vector we just computed to create a view matrix from perspective of the sky light.
+			// Distance here isn't too picky, we need to ensure it is far enough away to contain any shadow-casting
+			// geometry but not far enough to lose much precision in the depth (Z) dimension.
+			shadowViewMatrixExt.lookAt(
+				skyLightVector.getX() * radius, skyLightVector.getY() * radius, skyLightVector.getZ() * radius,
+				0, 0, 0,
+				0.0f, 0.0f, 1.0f);
+
+			// Compute inverse while we're here
+			shadowViewMatrixInvExt.set(shadowViewMatrixExt);
+			shadowViewMatrixInv.invert();
+		}
 
-		if (Pipeline.config().skyShadow != null) {
+		if (skyShadow != null) {
 			// Compute how much camera has moved in view x/y space.
 			testVec.set((float) (cameraXd - lastCameraX), (float) (cameraYd - lastCameraY), (float) (cameraZd - lastCameraZ), 0.0f);
 			testVec.transform(shadowViewMatrix);
@@ -147,7 +175,15 @@ public final class ShadowMatrixData {
 			final float cdx = testVec.getX();
 			final float cdy = testVec.getY();
 
-			final int[] radii = Pipeline.config().skyShadow.cascadeRadii;
+			for (int i = 0; i < CASCADE_COUNT; ++i) {
+				final int interval = skyShadow.cascadeUpdateInterval[i];
+
+				if (++framesSinceRefresh[i] >= interval) {
+					refreshFlags |= 1 << i;
+				}
+			}
+
+			final int[] radii = skyShadow.cascadeRadii;
 
 			updateCascadeInfo(0, radius, halfDist, radius, cdx, cdy);
 			updateCascadeInfo(1, radii[0], radii[0], radius, cdx, cdy);
@@ -178,6 +214,19 @@ public final class ShadowMatrixData {
 		regionMaxExtent = (float) Math.sqrt(rme);
 	}
 
+	/**
+	 * True if the sky light has moved far enough from the direction used
+	 * for the current shadow view, which is in {@link #testVec}.
+	 */
+	private static boolean shouldUpdateLightVector(SkyShadowConfig skyShadow) {
+		if (skyShadow == null || skyShadow.sunAngleThreshold <= 0) {
+			return true;
+		}
+
+		final float dot = testVec.getX() * skyLightVector.getX() + testVec.getY() * skyLightVector.getY() + testVec.getZ() * skyLightVector.getZ();
+		return dot < Math.cos(Math.toRadians(skyShadow.sunAngleThreshold));
+	}
+
 	/**
 	 *
 	 * @param cascade  cascade index, 0 is largest (least detail) and 3 is smalled (most detail)
@@ -221,6 +270,36 @@ public final class ShadowMatrixData {
 		cy = (float) (Math.floor(cy / worldPerPixel) * worldPerPixel) - dy;
 		cz = (float) (Math.ceil(cz / worldPerPixel) * worldPerPixel);
 
+		final int cachedOffset = cascade * 3;
+		final int cascadeFlag = 1 << cascade;
+
+		if ((refreshFlags & cascadeFlag) == 0) {
+			// Not redrawn this frame, so keep the projection fixed in world space where
+			// it was last drawn by offsetting for camera movement since then.
+			testVec.set((float) (cameraXd - cachedCameraPos[cachedOffset]), (float) (cameraYd - cachedCameraPos[cachedOffset + 1]), (float) (cameraZd - cachedCameraPos[cachedOffset + 2]), 0.0f);
+			testVec.transform(shadowViewMatrix);
+			final float mx = testVec.getX();
+			final float my = testVec.getY();
+			final double maxStale = MAX_STALE_TEXELS * worldPerPixel;
+
+			if (mx * mx + my * my > maxStale * maxStale) {
+				refreshFlags |= cascadeFlag;
+			} else {
+				cx = cachedCenters[cachedOffset] - mx;
+				cy = cachedCenters[cachedOffset + 1] - my;
+				cz = cachedCenters[cachedOffset + 2] - testVec.getZ();
+			}
+		}
+
+		if ((refreshFlags & cascadeFlag) != 0) {
+			cachedCenters[cachedOffset] = cx;
+			cachedCenters[cachedOffset + 1] = cy;
+			cachedCenters[cachedOffset + 2] = cz;
+			cachedCameraPos[cachedOffset] = cameraXd;
+			cachedCameraPos[cachedOffset + 1] = cameraYd;
+			cachedCameraPos[cachedOffset + 2] = cameraZd;
+		}
+
 		// We previously use actual geometry depth to give better precision on Z.
 		// However, scenes are so variable that this causes problems for optimizing polygonOffset
 		// Z axis bounds are inverted because Z axis points towards negative end in OpenGL
@@ -273,4 +352,18 @@ public final class ShadowMatrixData {
 	public static float regionMaxExtent() {
 		return regionMaxExtent;
 	}
+
+	/**
+	 * True if the cascade must be redrawn this frame because its projection changed,
+	 * its update interval has elapsed or the camera moved too far.  Otherwise the projection
+	 * matches the depth content from the last time it was drawn.
+	 */
+	public static boolean isCascadeRefreshNeeded(int cascade) {
+		return (refreshFlags & (1 << cascade)) != 0;
+	}
+
+	/** Call when a cascade is redrawn for any reason to restart its update interval. */
+	public static void onCascadeRefreshed(int cascade) {
+		framesSinceRefresh[cascade] = 0;
+	}
 }
@@ -19,6 +19,8 @@ package grondag.canvas.terrain.occlusion;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.mojang.blaze3d.systems.RenderSystem;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.render.Camera;
@@ -38,6 +40,7 @@ import grondag.canvas.terrain.occlusion.camera.CameraRegionVisibility;
 import grondag.canvas.terrain.occlusion.camera.CameraVisibility;
 import grondag.canvas.terrain.occlusion.geometry.RegionOcclusionCalculator;
 import grondag.canvas.terrain.occlusion.shadow.RegionBoundingSphere;
+import grondag.canvas.terrain.occlusion.shadow.ShadowOccluder;
 import grondag.canvas.terrain.occlusion.shadow.ShadowRegionVisibility;
 import grondag.canvas.terrain.occlusion.shadow.ShadowVisibility;
 import grondag.canvas.terrain.region.RegionBuildState;
@@ -61,6 +64,11 @@ public class TerrainIterator implements TerrainExecutorTask {
 	public final SimpleUnorderedArrayList<RenderRegion> updateRegions = new SimpleUnorderedArrayList<>();
 	public final VisibleRegionList visibleRegions = new VisibleRegionList();
 	public final VisibleRegionList[] shadowVisibleRegions = new VisibleRegionList[ShadowMatrixData.CASCADE_COUNT];
+	/** Shadow casters left out of some cascades because they couldn't reach any receiver there. */
+	private final ObjectArrayList<RenderRegion> excludedCasters = new ObjectArrayList<>();
+	/** Bit flags of the cascades each entry in {@link #excludedCasters} was left out of. */
+	private final IntArrayList excludedCascadeFlags = new IntArrayList();
+
 	private final AtomicInteger state = new AtomicInteger(IDLE);
 	private final WorldRenderState worldRenderState;
 
@@ -151,6 +159,7 @@ public class TerrainIterator implements TerrainExecutorTask {
 					if (r.isClosed()) continue;
 
 					final RegionBuildState buildState = r.getBuildState();
+					shadowVisibility.targetOccluder.addReceiver(r.origin);
 
 					if (buildState.canOcclude()) {
 						shadowVisibility.targetOccluder.prepareRegion(r.origin);
@@ -219,9 +228,14 @@ public class TerrainIterator implements TerrainExecutorTask {
 		}
 
 		if (worldRenderState.shadowsEnabled()) {
+			// If receivers grew, casters already classified may now be needed in more cascades.
+			final boolean receiversExpanded = shadowVisibility.targetOccluder.checkAndClearReceiverBoundsExpanded();
+
 			if (resetShadowOccluder) {
 				clearShadowRegions();
 				primeShadowRegions();
+			} else if (receiversExpanded) {
+				retestExcludedCasters();
 			}
 
 			iterateShadows();
@@ -243,6 +257,18 @@ public class TerrainIterator implements TerrainExecutorTask {
 		}
 	}
 
+	/**
+	 * Adds a region with geometry to the camera-visible set.  When shadows are enabled
+	 * it is also a shadow receiver, whether or not it occludes anything.
+	 */
+	private void addVisibleRegion(RenderRegion region) {
+		visibleRegions.add(region);
+
+		if (worldRenderState.shadowsEnabled()) {
+			shadowVisibility.targetOccluder.addReceiver(region.origin);
+		}
+	}
+
 	private void primeCameraRegions() {
 		if (cameraRegion == null) {
 			// prime visible when above or below world and camera region is null
@@ -350,7 +376,7 @@ public class TerrainIterator implements TerrainExecutorTask {
 			if (!chunkCullingEnabled || region.origin.isNear()) {
 				// We are aren't culling, just add it.
 				region.neighbors.enqueueUnvistedCameraNeighbors();
-				visibleRegions.add(region);
+				addVisibleRegion(region);
 				state.setOcclusionStatus(OcclusionStatus.REGION_VISIBLE);
 				cameraVisibility.prepareRegion(region.origin);
 				cameraVisibility.occlude(buildState.getOcclusionResult().occlusionData());
@@ -362,7 +388,7 @@ public class TerrainIterator implements TerrainExecutorTask {
 					// Renderable portion is visible
 					// Continue search, mark visible, add to render list and draw to occluder
 					region.neighbors.enqueueUnvistedCameraNeighbors();
-					visibleRegions.add(region);
+					addVisibleRegion(region);
 					state.setOcclusionStatus(OcclusionStatus.REGION_VISIBLE);
 					cameraVisibility.occlude(occlusionData);
 				} else {
@@ -437,7 +463,7 @@ public class TerrainIterator implements TerrainExecutorTask {
 
 			// If we get to here, region is not empty
 			region.neighbors.enqueueUnvistedCameraNeighbors(chunkCullingEnabled ? buildState.getOcclusionResult().mutalFaceMask() : -1L);
-			visibleRegions.add(region);
+			addVisibleRegion(region);
 			state.setOcclusionStatus(OcclusionStatus.REGION_VISIBLE);
 		}
 	}
@@ -567,38 +593,73 @@ public class TerrainIterator implements TerrainExecutorTask {
 	}
 
 	private void clearShadowRegions() {
-		shadowVisibleRegions[0].clear();
-		shadowVisibleRegions[1].clear();
-		shadowVisibleRegions[2].clear();
-		shadowVisibleRegions[3].clear();
+		for (final VisibleRegionList list : shadowVisibleRegions) {
+			list.clear();
+		}
+
+		excludedCasters.clear();
+		excludedCascadeFlags.clear();
 	}
 
+	/**
+	 * Adds region to the list for every cascade it can cast onto, skipping
+	 * cascades where it can't shadow any camera-visible receiver.  Skipped
+	 * cascades are remembered so they can be retested if receivers grow.
+	 */
 	private void addShadowRegion(RenderRegion r) {
 		final VisibleRegionList[] shadowVisibleRegions = this.shadowVisibleRegions;
+		final ShadowOccluder targetOccluder = shadowVisibility.targetOccluder;
+		final int cascade = r.origin.shadowCascade();
+		int excludedFlags = 0;
 
-		switch (r.origin.shadowCascade()) {
-			case 0:
-				shadowVisibleRegions[0].add(r);
-				break;
-			case 1:
-				shadowVisibleRegions[0].add(r);
-				shadowVisibleRegions[1].add(r);
-				break;
-			case 2:
-				shadowVisibleRegions[0].add(r);
-				shadowVisibleRegions[1].add(r);
-				shadowVisibleRegions[2].add(r);
-				break;
-			case 3:
-				shadowVisibleRegions[0].add(r);
-				shadowVisibleRegions[1].add(r);
-				shadowVisibleRegions[2].add(r);
-				shadowVisibleRegions[3].add(r);
-				break;
-			case -1:
-			default:
-				// NOOP
+		for (int i = 0; i <= cascade; ++i) {
+			if (targetOccluder.canShadowReceivers(r.origin, i)) {
+				shadowVisibleRegions[i].add(r);
+			} else {
+				excludedFlags |= 1 << i;
+			}
 		}
+
+		if (excludedFlags != 0) {
+			excludedCasters.add(r);
+			excludedCascadeFlags.add(excludedFlags);
+		}
+	}
+
+	/**
+	 * Adds casters to cascades they were excluded from if they can now shadow a receiver.
+	 * Casters still excluded from some cascade are kept for the next retest.
+	 */
+	private void retestExcludedCasters() {
+		final VisibleRegionList[] shadowVisibleRegions = this.shadowVisibleRegions;
+		final ShadowOccluder targetOccluder = shadowVisibility.targetOccluder;
+		final int limit = excludedCasters.size();
+		int keep = 0;
+
+		for (int n = 0; n < limit; ++n) {
+			final RenderRegion r = excludedCasters.get(n);
+			int excludedFlags = excludedCascadeFlags.getInt(n);
+
+			if (r.isClosed()) {
+				continue;
+			}
+
+			for (int i = 0; i < ShadowMatrixData.CASCADE_COUNT; ++i) {
+				if ((excludedFlags & (1 << i)) != 0 && targetOccluder.canShadowReceivers(r.origin, i)) {
+					shadowVisibleRegions[i].add(r);
+					excludedFlags &= ~(1 << i);
+				}
+			}
+
+			if (excludedFlags != 0) {
+				excludedCasters.set(keep, r);
+				excludedCascadeFlags.set(keep, excludedFlags);
+				++keep;
+			}
+		}
+
+		excludedCasters.size(keep);
+		excludedCascadeFlags.size(keep);
 	}
 
 	@Override
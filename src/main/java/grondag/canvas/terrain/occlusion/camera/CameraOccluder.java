@@ -16,8 +16,10 @@
 
 package grondag.canvas.terrain.occlusion.camera;
 
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.Vec3d;
 
+import grondag.bitraster.PackedBox;
 import grondag.bitraster.PerspectiveRasterizer;
 import grondag.canvas.mixinterface.Matrix4fExt;
 import grondag.canvas.render.frustum.TerrainFrustum;
@@ -80,6 +82,51 @@ public class CameraOccluder extends AbstractOccluder {
 		return isBoxVisibleFromPerspective(packedBox, fuzz);
 	}
 
+	/**
+	 * Tests a world-space box against the raster. Boxes that cross region boundaries are tested
+	 * as one clipped box per region, and boxes that span more than two regions on an axis are
+	 * always visible. Must not be called while the raster is being drawn.
+	 */
+	public boolean isWorldBoxVisible(double x0, double y0, double z0, double x1, double y1, double z1, int fuzz) {
+		final int bx0 = MathHelper.floor(x0);
+		final int by0 = MathHelper.floor(y0);
+		final int bz0 = MathHelper.floor(z0);
+		final int bx1 = Math.max(bx0 + 1, MathHelper.ceil(x1));
+		final int by1 = Math.max(by0 + 1, MathHelper.ceil(y1));
+		final int bz1 = Math.max(bz0 + 1, MathHelper.ceil(z1));
+
+		final int rx0 = bx0 & 0xFFFFFFF0;
+		final int ry0 = by0 & 0xFFFFFFF0;
+		final int rz0 = bz0 & 0xFFFFFFF0;
+		final int rx1 = (bx1 - 1) & 0xFFFFFFF0;
+		final int ry1 = (by1 - 1) & 0xFFFFFFF0;
+		final int rz1 = (bz1 - 1) & 0xFFFFFFF0;
+
+		if (rx1 - rx0 > 16 || ry1 - ry0 > 16 || rz1 - rz0 > 16) {
+			return true;
+		}
+
+		for (int rx = rx0; rx <= rx1; rx += 16) {
+			for (int ry = ry0; ry <= ry1; ry += 16) {
+				for (int rz = rz0; rz <= rz1; rz += 16) {
+					// distance only tracks iteration order for backtrack detection, so zero leaves it unchanged
+					super.prepareRegion(rx, ry, rz, PackedBox.RANGE_EXTREME, 0);
+
+					final int packedBox = PackedBox.pack(
+							Math.max(0, bx0 - rx), Math.max(0, by0 - ry), Math.max(0, bz0 - rz),
+							Math.min(16, bx1 - rx), Math.min(16, by1 - ry), Math.min(16, bz1 - rz),
+							PackedBox.RANGE_EXTREME);
+
+					if (isBoxVisibleFromPerspective(packedBox, fuzz)) {
+						return true;
+					}
+				}
+			}
+		}
+
+		return false;
+	}
+
 	@Override
 	public void occludeBox(int packedBox) {
 		occludeFromPerspective(packedBox);
@@ -21,6 +21,7 @@ import net.minecraft.util.math.Vec3d;
 import grondag.canvas.config.Configurator;
 import grondag.canvas.render.frustum.TerrainFrustum;
 import grondag.canvas.render.world.WorldRenderState;
+import grondag.canvas.terrain.occlusion.TerrainIterator;
 import grondag.canvas.terrain.occlusion.base.AbstractVisbility;
 import grondag.canvas.terrain.occlusion.geometry.RegionOcclusionCalculator;
 import grondag.canvas.terrain.occlusion.shadow.ShadowOccluder;
@@ -34,6 +35,11 @@ public class CameraVisibility extends AbstractVisbility<CameraVisibility, Camera
 	/** Stashed during prepare in case we need it to draw to target occluder. */
 	private RegionPosition lastOrigin;
 
+	private final OccluderSelector occluderSelector = new OccluderSelector();
+
+	/** Captured at the start of each raster pass so it can't change mid-pass. */
+	private int occluderBudget;
+
 	public CameraVisibility(WorldRenderState worldRenderState, ShadowOccluder targetOccluder) {
 		super(worldRenderState, new CameraPotentiallyVisibleRegionSet(), new CameraOccluder());
 		this.targetOccluder = targetOccluder;
@@ -70,6 +76,18 @@ public class CameraVisibility extends AbstractVisbility<CameraVisibility, Camera
 		super.updateView(frustum, cameraRegionOrigin);
 	}
 
+	@Override
+	protected boolean prepareOccluder() {
+		final boolean result = super.prepareOccluder();
+
+		if (result) {
+			occluderBudget = Configurator.occluderBudget * 100;
+			occluderSelector.startPass(occluderBudget);
+		}
+
+		return result;
+	}
+
 	@Override
 	public void prepareRegion(RegionPosition origin) {
 		// Check for backtracking and invalidate if we detect it.
@@ -84,15 +102,48 @@ public class CameraVisibility extends AbstractVisbility<CameraVisibility, Camera
 		occluder.prepareRegion(origin);
 	}
 
+	public String occluderDebugSummary() {
+		return occluderBudget == 0 ? "Occluders: unlimited" : occluderSelector.debugSummary();
+	}
+
 	@Override
 	public boolean isBoxVisible(int packedBox, int fuzz) {
 		return occluder.isBoxVisible(packedBox, fuzz);
 	}
 
+	/**
+	 * True when the raster is complete and was drawn for the given frustum version.
+	 * Results of {@link #isWorldBoxVisible(double, double, double, double, double, double)}
+	 * are only meaningful in that case.
+	 */
+	public boolean isRasterCurrent(int iteratorState, int viewVersion) {
+		return (iteratorState == TerrainIterator.IDLE || iteratorState == TerrainIterator.COMPLETE)
+				&& occluder.frustumViewVersion() == viewVersion;
+	}
+
+	/**
+	 * See {@link CameraOccluder#isWorldBoxVisible(double, double, double, double, double, double, int)}.
+	 * Always uses fuzz because the camera may have moved a little since the raster was drawn.
+	 */
+	public boolean isWorldBoxVisible(double x0, double y0, double z0, double x1, double y1, double z1) {
+		return occluder.isWorldBoxVisible(x0, y0, z0, x1, y1, z1, 1);
+	}
+
 	@Override
 	public void occlude(int[] occlusionData) {
-		// Note some occluders may not be drawn if near occluders are disabled.
-		occluder.occlude(occlusionData);
+		if (occluderBudget == 0 || lastOrigin.isNear()) {
+			// Note some occluders may not be drawn if near occluders are disabled.
+			occluder.occlude(occlusionData);
+		} else {
+			occluderSelector.select(occlusionData, lastOrigin.occlusionRange(),
+					lastOrigin.cameraRelativeCenterX() - 8, lastOrigin.cameraRelativeCenterY() - 8, lastOrigin.cameraRelativeCenterZ() - 8);
+
+			final int limit = occluderSelector.selectedCount();
+
+			for (int i = 0; i < limit; ++i) {
+				occluder.occludeBox(occluderSelector.selected(i));
+			}
+		}
 
 		if (worldRenderState.shadowsEnabled()) {
 			targetOccluder.prepareRegion(lastOrigin);
@@ -0,0 +1,155 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.occlusion.camera;
+
+import java.util.Arrays;
+
+import grondag.bitraster.PackedBox;
+import grondag.canvas.terrain.occlusion.geometry.RegionOcclusionCalculator;
+
+/**
+ * Chooses which occluder boxes of a region are drawn to the camera raster.
+ *
+ * <p>Boxes are ranked by approximate projected screen area and only the largest
+ * are drawn, up to a budget of boxes per raster pass. Regions are visited near-to-far,
+ * so the budget is mostly spent on near boxes, which cover the most screen. Boxes that
+ * aren't selected do not affect visibility testing of the region itself.
+ */
+class OccluderSelector {
+	/**
+	 * Boxes with a smaller approximate solid angle (steradians) are never drawn.
+	 * Roughly four raster pixels at typical field of view.
+	 */
+	static final float MIN_PROJECTED_AREA = 1.0e-5f;
+
+	private long[] ranked = new long[64];
+	private int[] selected = new int[64];
+	private int selectedCount;
+
+	private int budget;
+	private int candidateCount;
+	private int drawnCount;
+	private int areaSkipCount;
+	private int budgetSkipCount;
+
+	/**
+	 * Call when the raster is cleared for a new pass.
+	 *
+	 * @param budget maximum boxes to draw in the pass, zero if unlimited
+	 */
+	void startPass(int budget) {
+		this.budget = budget;
+		candidateCount = 0;
+		drawnCount = 0;
+		areaSkipCount = 0;
+		budgetSkipCount = 0;
+	}
+
+	/**
+	 * Ranks occluder boxes of a region and retains the ones that should be drawn,
+	 * largest first.  Access results with {@link #selectedCount()} and {@link #selected(int)}.
+	 *
+	 * @param occlusionData occlusion result for the region
+	 * @param minRange      boxes with a smaller packed range are ignored, same as the unselected draw path
+	 * @param originX       region origin relative to camera
+	 * @param originY       region origin relative to camera
+	 * @param originZ       region origin relative to camera
+	 */
+	void select(int[] occlusionData, int minRange, float originX, float originY, float originZ) {
+		final int limit = occlusionData.length;
+		int rankedCount = 0;
+		selectedCount = 0;
+
+		if (ranked.length < limit) {
+			ranked = new long[limit];
+			selected = new int[limit];
+		}
+
+		for (int i = RegionOcclusionCalculator.OCCLUSION_RESULT_FIRST_BOX_INDEX; i < limit; ++i) {
+			final int box = occlusionData[i];
+
+			if (PackedBox.range(box) < minRange) {
+				continue;
+			}
+
+			++candidateCount;
+			final float area = projectedArea(box, originX, originY, originZ);
+
+			if (area < MIN_PROJECTED_AREA) {
+				++areaSkipCount;
+			} else {
+				// Bits of positive floats sort in the same order as the values
+				ranked[rankedCount++] = ((long) Float.floatToRawIntBits(area) << 32) | i;
+			}
+		}
+
+		if (rankedCount == 0) {
+			return;
+		}
+
+		Arrays.sort(ranked, 0, rankedCount);
+
+		int drawCount = rankedCount;
+
+		if (budget > 0) {
+			drawCount = Math.max(0, Math.min(rankedCount, budget - drawnCount));
+			budgetSkipCount += rankedCount - drawCount;
+		}
+
+		for (int i = 0; i < drawCount; ++i) {
+			selected[i] = occlusionData[(int) ranked[rankedCount - 1 - i]];
+		}
+
+		selectedCount = drawCount;
+		drawnCount += drawCount;
+	}
+
+	int selectedCount() {
+		return selectedCount;
+	}
+
+	int selected(int index) {
+		return selected[index];
+	}
+
+	/**
+	 * Approximate solid angle of a packed box as seen from the camera, in steradians.
+	 * Sums the area of the three potentially visible faces, each scaled by the cosine
+	 * to the view ray through the box center, and divides by squared distance.
+	 */
+	static float projectedArea(int packedBox, float originX, float originY, float originZ) {
+		final int x0 = PackedBox.x0(packedBox);
+		final int y0 = PackedBox.y0(packedBox);
+		final int z0 = PackedBox.z0(packedBox);
+		final int dx = PackedBox.x1(packedBox) - x0;
+		final int dy = PackedBox.y1(packedBox) - y0;
+		final int dz = PackedBox.z1(packedBox) - z0;
+
+		final float cx = originX + x0 + dx * 0.5f;
+		final float cy = originY + y0 + dy * 0.5f;
+		final float cz = originZ + z0 + dz * 0.5f;
+
+		// Clamp so boxes touching the camera rank highest without blowing up
+		final float distSq = Math.max(1f, cx * cx + cy * cy + cz * cz);
+
+		return (dy * dz * Math.abs(cx) + dx * dz * Math.abs(cy) + dx * dy * Math.abs(cz)) / (distSq * (float) Math.sqrt(distSq));
+	}
+
+	String debugSummary() {
+		return String.format("Occluders: %d/%d drawn, %d small, %d over budget", drawnCount, candidateCount, areaSkipCount, budgetSkipCount);
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.occlusion.geometry;
+
+/**
+ * Word-parallel flood fill and dilation over the 16x16x16 interior of a render region.
+ *
+ * <p>Uses the same bit layout as {@link RegionOcclusionCalculator}: index = x | (y << 4) | (z << 8).
+ * Each 64-bit word holds four 16-bit X rows, so Y neighbors are 16 bits apart within a word
+ * (or in the adjacent word) and Z neighbors are four words apart.
+ */
+public abstract class RegionFloodFill {
+	/** Words needed to hold one bit for every interior position. */
+	public static final int WORD_COUNT = 64;
+
+	/** Bits where x == 0 in each of the four rows of a word. */
+	static final long X0_MASK = 0x0001000100010001L;
+
+	/** Bits where x == 15 in each of the four rows of a word. */
+	static final long X15_MASK = 0x8000800080008000L;
+
+	/** Bits where y == 0 when word is the first of a Z slice. */
+	static final long Y0_ROW_MASK = 0x000000000000FFFFL;
+
+	/** Bits where y == 15 when word is the last of a Z slice. */
+	static final long Y15_ROW_MASK = 0xFFFF000000000000L;
+
+	/**
+	 * Expands fill through open positions along +X, stopping at closed positions and row ends.
+	 * Kogge-Stone style, so four shifts cover the full 16-position row.
+	 */
+	private static long smearEast(long fill, long open) {
+		long p = open & ~X0_MASK;
+		fill |= p & (fill << 1);
+		p &= p << 1;
+		fill |= p & (fill << 2);
+		p &= p << 2;
+		fill |= p & (fill << 4);
+		p &= p << 4;
+		return fill | (p & (fill << 8));
+	}
+
+	/**
+	 * Expands fill through open positions along -X, stopping at closed positions and row ends.
+	 */
+	private static long smearWest(long fill, long open) {
+		long p = open & ~X15_MASK;
+		fill |= p & (fill >>> 1);
+		p &= p >>> 1;
+		fill |= p & (fill >>> 2);
+		p &= p >>> 2;
+		fill |= p & (fill >>> 4);
+		p &= p >>> 4;
+		return fill | (p & (fill >>> 8));
+	}
+
+	/**
+	 * Bits for Y and Z neighbors of word at the given index.  Does not include X neighbors.
+	 */
+	private static long yzNeighbors(long[] words, int wordIndex) {
+		final long w = words[wordIndex];
+		long result = (w << 16) | (w >>> 16);
+
+		if ((wordIndex & 3) != 0) {
+			result |= words[wordIndex - 1] >>> 48;
+		}
+
+		if ((wordIndex & 3) != 3) {
+			result |= words[wordIndex + 1] << 48;
+		}
+
+		if (wordIndex >= 4) {
+			result |= words[wordIndex - 4];
+		}
+
+		if (wordIndex < WORD_COUNT - 4) {
+			result |= words[wordIndex + 4];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Expands fill in place to include every open position 6-connected to it through open positions.
+	 * Fill must already be a subset of open.  X runs are expanded to completion on every pass and
+	 * Y/Z expansion is applied in place, so typical terrain converges in only a few passes.
+	 *
+	 * @param fill  seed positions on entry, the connected set on exit
+	 * @param open  positions the fill may travel through
+	 */
+	public static void fill(long[] fill, long[] open) {
+		boolean changed;
+
+		do {
+			changed = false;
+
+			for (int i = 0; i < WORD_COUNT; ++i) {
+				final long o = open[i];
+				final long f = fill[i];
+				long next = f | (yzNeighbors(fill, i) & o);
+
+				if (next != 0) {
+					next = smearWest(smearEast(next, o), o);
+
+					if (next != f) {
+						fill[i] = next;
+						changed = true;
+					}
+				}
+			}
+		} while (changed);
+	}
+
+	/**
+	 * Writes source positions and all of their 6-connected interior neighbors to target.
+	 * Source and target must be different arrays.
+	 */
+	public static void dilate(long[] source, long[] target) {
+		for (int i = 0; i < WORD_COUNT; ++i) {
+			final long w = source[i];
+			target[i] = w | ((w << 1) & ~X0_MASK) | ((w >>> 1) & ~X15_MASK) | yzNeighbors(source, i);
+		}
+	}
+}
@@ -22,7 +22,6 @@ import static grondag.canvas.terrain.util.RenderRegionStateIndexer.TOTAL_CACHE_W
 import static grondag.canvas.terrain.util.RenderRegionStateIndexer.interiorIndex;
 import static grondag.canvas.terrain.util.RenderRegionStateIndexer.regionIndex;
 
-import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 
 import net.minecraft.block.BlockRenderType;
@@ -59,8 +58,10 @@ public abstract class RegionOcclusionCalculator {
 	}
 
 	public final BoxFinder boxFinder = new BoxFinder(new AreaFinder());
-	private final IntArrayFIFOQueue queue = new IntArrayFIFOQueue();
 	private final long[] bits = new long[WORD_COUNT];
+	private final long[] fillWords = new long[INTERIOR_CACHE_WORDS];
+	private final long[] openWords = new long[INTERIOR_CACHE_WORDS];
+	private final long[] dilatedWords = new long[INTERIOR_CACHE_WORDS];
 	private int openCount;
 	private int minRenderableX;
 	private int minRenderableY;
@@ -69,12 +70,6 @@ public abstract class RegionOcclusionCalculator {
 	private int maxRenderableY;
 	private int maxRenderableZ;
 
-	/**
-	 * Accumulates exterior faces visited during fill to track which exterior
-	 * faces are connected. Used for occlusion.
-	 */
-	private int visitedFacesMask;
-
 	public void prepare() {
 		System.arraycopy(EMPTY_BITS, 0, bits, 0, WORD_COUNT);
 		captureExterior();
@@ -82,6 +77,32 @@ public abstract class RegionOcclusionCalculator {
 		captureInterior();
 	}
 
+	/**
+	 * Replaces closed interior positions with the solid cubes of a reduced-detail mesh so the
+	 * region occludes only what that mesh draws.  Call after {@link #prepare()} and before {@link #build(boolean)}.
+	 *
+	 * @param scale width in blocks of each cube
+	 * @param cubes -1 for each cube that is not drawn, indexed by x + (y + z * span) * span in cube units
+	 */
+	public void applyLodSolidity(int scale, int[] cubes) {
+		final int span = 16 / scale;
+		openCount = INTERIOR_STATE_COUNT;
+
+		for (int i = 0; i < INTERIOR_STATE_COUNT; i++) {
+			final int x = (i & 0xF) / scale;
+			final int y = ((i >> 4) & 0xF) / scale;
+			final int z = ((i >> 8) & 0xF) / scale;
+			final long mask = 1L << (i & 63);
+
+			if (cubes[x + (y + z * span) * span] == -1) {
+				bits[i >> 6] &= ~mask;
+			} else {
+				bits[i >> 6] |= mask;
+				--openCount;
+			}
+		}
+	}
+
 	protected abstract BlockState blockStateAtIndex(int regionIndex);
 
 	protected abstract boolean closedAtRelativePos(BlockState blockState, int regionIndex);
@@ -131,6 +152,12 @@ public abstract class RegionOcclusionCalculator {
 	 */
 	private static final int COVERING_INDEX_COUNT = 16 * 16 * 6;
 
+	/**
+	 * Count of covering positions for each face. COVERING_INDEXES are
+	 * six consecutive groups of this size, one for each face.
+	 */
+	private static final int COVERING_FACE_INDEX_COUNT = 16 * 16;
+
 	/**
 	 * Positions from adjacent regions that can potentially obscure this region.
 	 */
@@ -247,45 +274,6 @@ public abstract class RegionOcclusionCalculator {
 		}
 	}
 
-	/**
-	 * Checks if the position is interior and not already visited.
-	 * If the position is interior and not already visited, marks it visited
-	 * and returns a boolean indicating opacity.
-	 *
-	 * @param index
-	 * @return True if position met the conditions for visiting AND was not opaque.
-	 */
-	private boolean setVisited(int index) {
-		// interior only
-		if (index >= INTERIOR_STATE_COUNT) {
-			return false;
-		}
-
-		final int wordIndex = index >> 6;
-		final long mask = 1L << (index & 63);
-
-		if ((bits[wordIndex + EXTERIOR_VISIBLE_OFFSET] & mask) == 0) {
-			// not already visited
-
-			// mark visited
-			bits[wordIndex + EXTERIOR_VISIBLE_OFFSET] |= mask;
-
-			// return opacity result
-			if ((bits[wordIndex] & mask) == 0) {
-				if (!Pipeline.advancedTerrainCulling()) {
-					trackVistedFaces(index);
-				}
-
-				return true;
-			} else {
-				return false;
-			}
-		} else {
-			// already visited
-			return false;
-		}
-	}
-
 	private void clearInteriorRenderable(int interiorIndex) {
 		bits[(interiorIndex >> 6) + RENDERABLE_OFFSET] &= ~(1L << (interiorIndex & 63));
 	}
@@ -548,10 +536,100 @@ public abstract class RegionOcclusionCalculator {
 		maxRenderableZ = maxZ < minZ ? minZ : maxZ;
 	}
 
-	private void visitSurfaceIfPossible(int index) {
-		if (setVisited(index)) {
-			fill(index);
+	/**
+	 * Fills from surface positions in the given range of COVERED_INDEXES that are not
+	 * occluded by adjacent regions. Marks all positions reached, and any closed positions
+	 * adjacent to them, as visible from the exterior. Positions already visible from
+	 * the exterior are not filled again.
+	 *
+	 * <p>On return, fillWords hold the open positions newly reached by this fill.
+	 */
+	private void fillFromSurface(int startIndex, int endIndex) {
+		final long[] bits = this.bits;
+		final long[] fillWords = this.fillWords;
+		final long[] openWords = this.openWords;
+
+		System.arraycopy(EMPTY_BITS, 0, fillWords, 0, INTERIOR_CACHE_WORDS);
+
+		for (int i = startIndex; i < endIndex; ++i) {
+			if (!isClosed(COVERING_INDEXES[i])) {
+				final int index = COVERED_INDEXES[i];
+				fillWords[index >> 6] |= 1L << (index & 63);
+			}
+		}
+
+		long seeded = 0;
+
+		for (int i = 0; i < INTERIOR_CACHE_WORDS; ++i) {
+			final long visited = bits[i + EXTERIOR_VISIBLE_OFFSET];
+			final long open = ~(bits[i] | visited);
+			final long seed = fillWords[i];
+
+			// surface positions are visible even when closed
+			bits[i + EXTERIOR_VISIBLE_OFFSET] = visited | seed;
+			openWords[i] = open;
+			fillWords[i] = seed & open;
+			seeded |= seed & open;
+		}
+
+		if (seeded != 0) {
+			RegionFloodFill.fill(fillWords, openWords);
+
+			// closed positions next to a filled position are visible
+			RegionFloodFill.dilate(fillWords, dilatedWords);
+
+			for (int i = 0; i < INTERIOR_CACHE_WORDS; ++i) {
+				bits[i + EXTERIOR_VISIBLE_OFFSET] |= dilatedWords[i];
+			}
+		}
+	}
+
+	/**
+	 * Flags for exterior faces touched by the most recent fill. Positions on edges
+	 * and corners count for only one face, with X faces taking priority over Y,
+	 * and Y faces over Z.
+	 */
+	private int filledFaceFlags() {
+		final long[] fillWords = this.fillWords;
+		long west = 0, east = 0, down = 0, up = 0, north = 0, south = 0;
+
+		for (int i = 0; i < INTERIOR_CACHE_WORDS; ++i) {
+			final long w = fillWords[i];
+
+			if (w == 0) {
+				continue;
+			}
+
+			west |= w & RegionFloodFill.X0_MASK;
+			east |= w & RegionFloodFill.X15_MASK;
+
+			final long mid = w & ~(RegionFloodFill.X0_MASK | RegionFloodFill.X15_MASK);
+			final int yWord = i & 3;
+			final long yEdge = yWord == 0 ? RegionFloodFill.Y0_ROW_MASK : yWord == 3 ? RegionFloodFill.Y15_ROW_MASK : 0;
+
+			if (yWord == 0) {
+				down |= mid & yEdge;
+			} else if (yWord == 3) {
+				up |= mid & yEdge;
+			}
+
+			if (i < 4) {
+				north |= mid & ~yEdge;
+			} else if (i >= INTERIOR_CACHE_WORDS - 4) {
+				south |= mid & ~yEdge;
+			}
 		}
+
+		int result = 0;
+
+		if (west != 0) result |= FaceConstants.WEST_FLAG;
+		if (east != 0) result |= FaceConstants.EAST_FLAG;
+		if (down != 0) result |= FaceConstants.DOWN_FLAG;
+		if (up != 0) result |= FaceConstants.UP_FLAG;
+		if (north != 0) result |= FaceConstants.NORTH_FLAG;
+		if (south != 0) result |= FaceConstants.SOUTH_FLAG;
+
+		return result;
 	}
 
 	private OcclusionResult computeOcclusion(boolean isNear) {
@@ -560,31 +638,17 @@ public abstract class RegionOcclusionCalculator {
 		long mutualFaceMask = 0;
 
 		if (Pipeline.advancedTerrainCulling()) {
-			for (int i = 0; i < COVERING_INDEX_COUNT; ++i) {
-				if (!isClosed(COVERING_INDEXES[i])) {
-					visitSurfaceIfPossible(COVERED_INDEXES[i]);
-				}
-			}
+			fillFromSurface(0, COVERING_INDEX_COUNT);
 		} else {
-			for (int i = 0; i < COVERING_INDEX_COUNT; ++i) {
-				// face indices are six groups of 256, one for each face.
-				// We want to reset visibility search on each new face and
-				// exploit this fact to know when we progress to the next face
-				if ((i & 0xFF) == 0) {
-					if (visitedFacesMask != 0) {
-						mutualFaceMask |= OcclusionResult.buildMutualFaceMask(visitedFacesMask);
-						visitedFacesMask = 0;
-					}
-				}
+			// Visibility search is reset for each face so we know which faces are connected.
+			for (int i = 0; i < COVERING_INDEX_COUNT; i += COVERING_FACE_INDEX_COUNT) {
+				fillFromSurface(i, i + COVERING_FACE_INDEX_COUNT);
 
-				if (!isClosed(COVERING_INDEXES[i])) {
-					visitSurfaceIfPossible(COVERED_INDEXES[i]);
-				}
-			}
+				final int faceFlags = filledFaceFlags();
 
-			if (visitedFacesMask != 0) {
-				mutualFaceMask |= OcclusionResult.buildMutualFaceMask(visitedFacesMask);
-				visitedFacesMask = 0;
+				if (faceFlags != 0) {
+					mutualFaceMask |= OcclusionResult.buildMutualFaceMask(faceFlags);
+				}
 			}
 		}
 
@@ -651,84 +715,4 @@ public abstract class RegionOcclusionCalculator {
 			return computeOcclusion(isNear);
 		}
 	}
-
-	private void fill(int xyz4) {
-		visit(xyz4);
-
-		while (!queue.isEmpty()) {
-			final int nextXyz4 = queue.dequeueInt();
-			visit(nextXyz4);
-		}
-	}
-
-	private void visit(int xyz4) {
-		final int x = xyz4 & 0xF;
-
-		if (x == 0) {
-			enqueIfUnvisited(xyz4 + 1);
-		} else if (x == 15) {
-			enqueIfUnvisited(xyz4 - 1);
-		} else {
-			enqueIfUnvisited(xyz4 - 1);
-			enqueIfUnvisited(xyz4 + 1);
-		}
-
-		final int y = xyz4 & 0xF0;
-
-		if (y == 0) {
-			enqueIfUnvisited(xyz4 + 0x10);
-		} else if (y == 0xF0) {
-			enqueIfUnvisited(xyz4 - 0x10);
-		} else {
-			enqueIfUnvisited(xyz4 - 0x10);
-			enqueIfUnvisited(xyz4 + 0x10);
-		}
-
-		final int z = xyz4 & 0xF00;
-
-		if (z == 0) {
-			enqueIfUnvisited(xyz4 + 0x100);
-		} else if (z == 0xF00) {
-			enqueIfUnvisited(xyz4 - 0x100);
-		} else {
-			enqueIfUnvisited(xyz4 - 0x100);
-			enqueIfUnvisited(xyz4 + 0x100);
-		}
-	}
-
-	private void trackVistedFaces(int xyz4) {
-		final int x = xyz4 & 0xF;
-
-		if (x == 0) {
-			visitedFacesMask |= FaceConstants.WEST_FLAG;
-			return;
-		} else if (x == 15) {
-			visitedFacesMask |= FaceConstants.EAST_FLAG;
-			return;
-		}
-
-		final int y = xyz4 & 0xF0;
-
-		if (y == 0) {
-			visitedFacesMask |= FaceConstants.DOWN_FLAG;
-			return;
-		} else if (y == 0xF0) {
-			visitedFacesMask |= FaceConstants.UP_FLAG;
-			return;
-		}
-
-		final int z = xyz4 & 0xF00;
-
-		if (z == 0) {
-			visitedFacesMask |= FaceConstants.NORTH_FLAG;
-		} else if (z == 0xF00) {
-			visitedFacesMask |= FaceConstants.SOUTH_FLAG;
-		}
-	}
-
-	private void enqueIfUnvisited(int xyz4) {
-		if (setVisited(xyz4)) {
-			queue.enqueue(xyz4);
-		}
-	}
 }
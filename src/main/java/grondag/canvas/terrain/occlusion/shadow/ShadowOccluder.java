@@ -27,7 +27,6 @@ import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.Matrix4f;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.util.math.Vec3f;
-import net.minecraft.util.math.Vector4f;
 
 import grondag.bitraster.OrthoRasterizer;
 import grondag.bitraster.PackedBox;
@@ -45,7 +44,22 @@ public class ShadowOccluder extends AbstractOccluder {
 	private final Matrix4fExt shadowProjMatrixExt = (Matrix4fExt) (Object) shadowProjMatrix;
 
 	private float maxRegionExtent;
-	private float r0, x0, y0, z0, r1, x1, y1, z1, r2, x2, y2, z2, r3, x3, y3, z3;
+
+	/**
+	 * Light-space bounding rectangle of each cascade, already expanded by max region extent
+	 * so that a region center inside the rectangle means the region is at least partially inside.
+	 * Five values per cascade: min x, max x, min y, max y, min z.  No max z because
+	 * regions nearer the light than the cascade can still cast shadows onto it.
+	 */
+	private final float[] cascadeBounds = new float[ShadowMatrixData.CASCADE_COUNT * 5];
+
+	/**
+	 * Light-space X/Y bounding rectangle of receivers in each cascade, expanded by max region extent.
+	 * Four values per cascade: min x, max x, min y, max y.  Empty when min > max.
+	 */
+	private final float[] receiverBounds = new float[ShadowMatrixData.CASCADE_COUNT * 4];
+	private boolean receiverBoundsExpanded;
+
 	private int lastViewVersion;
 	private Vec3d lastCameraPos;
 	private grondag.bitraster.BoxOccluder.BoxTest clearTest;
@@ -54,6 +68,7 @@ public class ShadowOccluder extends AbstractOccluder {
 
 	public ShadowOccluder(String rasterName) {
 		super(new OrthoRasterizer(), rasterName);
+		clearReceivers();
 	}
 
 	public void copyState(TerrainFrustum occlusionFrustum) {
@@ -61,25 +76,18 @@ public class ShadowOccluder extends AbstractOccluder {
 		shadowProjMatrixExt.set(ShadowMatrixData.maxCascadeProjMatrix());
 		maxRegionExtent = ShadowMatrixData.regionMaxExtent();
 		final float[] cascadeCentersAndRadii = ShadowMatrixData.cascadeCentersAndRadii;
-		x0 = cascadeCentersAndRadii[0];
-		y0 = cascadeCentersAndRadii[1];
-		z0 = cascadeCentersAndRadii[2];
-		r0 = cascadeCentersAndRadii[3];
-
-		x1 = cascadeCentersAndRadii[4];
-		y1 = cascadeCentersAndRadii[5];
-		z1 = cascadeCentersAndRadii[6];
-		r1 = cascadeCentersAndRadii[7];
-
-		x2 = cascadeCentersAndRadii[8];
-		y2 = cascadeCentersAndRadii[9];
-		z2 = cascadeCentersAndRadii[10];
-		r2 = cascadeCentersAndRadii[11];
-
-		x3 = cascadeCentersAndRadii[12];
-		y3 = cascadeCentersAndRadii[13];
-		z3 = cascadeCentersAndRadii[14];
-		r3 = cascadeCentersAndRadii[15];
+		final float[] cascadeBounds = this.cascadeBounds;
+
+		for (int i = 0; i < ShadowMatrixData.CASCADE_COUNT; ++i) {
+			final int src = i * 4;
+			final int dst = i * 5;
+			final float radius = cascadeCentersAndRadii[src + 3] + maxRegionExtent;
+			cascadeBounds[dst] = cascadeCentersAndRadii[src] - radius;
+			cascadeBounds[dst + 1] = cascadeCentersAndRadii[src] + radius;
+			cascadeBounds[dst + 2] = cascadeCentersAndRadii[src + 1] - radius;
+			cascadeBounds[dst + 3] = cascadeCentersAndRadii[src + 1] + radius;
+			cascadeBounds[dst + 4] = cascadeCentersAndRadii[src + 2] - radius;
+		}
 
 		lastCameraPos = occlusionFrustum.lastCameraPos();
 		lastViewVersion = occlusionFrustum.viewVersion();
@@ -96,71 +104,133 @@ public class ShadowOccluder extends AbstractOccluder {
 	 */
 	@Override
 	public boolean prepareScene() {
-		return super.prepareScene(lastViewVersion, lastCameraPos.x, lastCameraPos.y, lastCameraPos.z, shadowViewMatrixExt::copyTo, shadowProjMatrixExt::copyTo);
+		if (super.prepareScene(lastViewVersion, lastCameraPos.x, lastCameraPos.y, lastCameraPos.z, shadowViewMatrixExt::copyTo, shadowProjMatrixExt::copyTo)) {
+			clearReceivers();
+			return true;
+		} else {
+			return false;
+		}
 	}
 
 	/**
 	 * Smallest cascade on which a region at given origin can cast a shadow.
-	 * Returns -1 if not within shadow map.
+	 * Returns -1 if not within shadow map.  Also updates the light-space
+	 * center of the region, used for caster-receiver tests.
 	 */
 	public int cascade(RegionPosition regionPosition) {
 		// Compute center position in light space
-		final Vector4f lightSpaceRegionCenter = new Vector4f();
-		lightSpaceRegionCenter.set(regionPosition.cameraRelativeCenterX(), regionPosition.cameraRelativeCenterY(), regionPosition.cameraRelativeCenterZ(), 1.0f);
-		lightSpaceRegionCenter.transform(ShadowMatrixData.shadowViewMatrix);
+		final Matrix4fExt view = shadowViewMatrixExt;
+		final float x = regionPosition.cameraRelativeCenterX();
+		final float y = regionPosition.cameraRelativeCenterY();
+		final float z = regionPosition.cameraRelativeCenterZ();
+		final float centerX = view.a00() * x + view.a01() * y + view.a02() * z + view.a03();
+		final float centerY = view.a10() * x + view.a11() * y + view.a12() * z + view.a13();
+		final float centerZ = view.a20() * x + view.a21() * y + view.a22() * z + view.a23();
 
-		final float centerX = lightSpaceRegionCenter.getX();
-		final float centerY = lightSpaceRegionCenter.getY();
-		final float centerZ = lightSpaceRegionCenter.getZ();
-		final float extent = maxRegionExtent;
-
-		// <= extent = at least partially in
-		// < -extent = fully in
-		// > extent not in
-
-		final float dx0 = Math.abs(centerX - x0) - r0;
-		final float dy0 = Math.abs(centerY - y0) - r0;
-		final float dz0 = (centerZ - z0) + r0;
+		regionPosition.setShadowCenter(centerX, centerY);
 
-		//		if (dz0 < -extent) {
-		//			System.out.println("regin behind zero cascade");
-		//		}
-
-		if (dx0 > extent || dy0 > extent || dz0 < -extent) {
+		if (!isInCascade(0, centerX, centerY, centerZ)) {
 			// not a shadow caster
 			return -1;
 		}
 
-		final float dx3 = Math.abs(centerX - x3) - r3;
-		final float dy3 = Math.abs(centerY - y3) - r3;
-		final float dz3 = (centerZ - z3) + r3;
+		// Test from most to least detailed and stop at the first that contains the region.
+		for (int cascade = ShadowMatrixData.CASCADE_COUNT - 1; cascade > 0; --cascade) {
+			if (isInCascade(cascade, centerX, centerY, centerZ)) {
+				return cascade;
+			}
+		}
 
-		//		if (dz3 < -extent) {
-		//			System.out.println("regin behind 3 cascade");
-		//		}
+		return 0;
+	}
 
-		if (dx3 <= extent && dy3 <= extent && dz3 >= -extent) {
-			// At least partially in 3
-			return 3;
-		}
+	/** True if a region with the given light-space center is at least partially inside the cascade. */
+	private boolean isInCascade(int cascade, float centerX, float centerY, float centerZ) {
+		final float[] cascadeBounds = this.cascadeBounds;
+		final int i = cascade * 5;
+
+		return centerX >= cascadeBounds[i] && centerX <= cascadeBounds[i + 1]
+				&& centerY >= cascadeBounds[i + 2] && centerY <= cascadeBounds[i + 3]
+				&& centerZ >= cascadeBounds[i + 4];
+	}
 
-		final float dx2 = Math.abs(centerX - x2) - r2;
-		final float dy2 = Math.abs(centerY - y2) - r2;
-		final float dz2 = (centerZ - z2) + r2;
+	private void clearReceivers() {
+		final float[] receiverBounds = this.receiverBounds;
 
-		if (dx2 <= extent && dy2 <= extent && dz2 >= -extent) {
-			return 2;
+		for (int i = 0; i < receiverBounds.length; i += 4) {
+			receiverBounds[i] = Float.MAX_VALUE;
+			receiverBounds[i + 1] = -Float.MAX_VALUE;
+			receiverBounds[i + 2] = Float.MAX_VALUE;
+			receiverBounds[i + 3] = -Float.MAX_VALUE;
 		}
 
-		final float dx1 = Math.abs(centerX - x1) - r1;
-		final float dy1 = Math.abs(centerY - y1) - r1;
-		final float dz1 = (centerZ - z1) + r1;
+		receiverBoundsExpanded = false;
+	}
+
+	/**
+	 * Records a camera-visible region as a shadow receiver in every cascade
+	 * that can cover it. Only meaningful for the target occluder.
+	 */
+	public void addReceiver(RegionPosition regionPosition) {
+		final int cascade = regionPosition.shadowCascade();
 
-		if (dx1 <= extent && dy1 <= extent && dz1 >= -extent) {
-			return 1;
+		if (cascade == -1) {
+			return;
 		}
 
-		return 0;
+		final float extent = maxRegionExtent;
+		final float x0 = regionPosition.shadowCenterX() - extent;
+		final float x1 = regionPosition.shadowCenterX() + extent;
+		final float y0 = regionPosition.shadowCenterY() - extent;
+		final float y1 = regionPosition.shadowCenterY() + extent;
+		final float[] receiverBounds = this.receiverBounds;
+
+		// A receiver may sample any cascade up to the most detailed one it touches
+		for (int i = 0; i <= cascade * 4; i += 4) {
+			if (x0 < receiverBounds[i]) {
+				receiverBounds[i] = x0;
+				receiverBoundsExpanded = true;
+			}
+
+			if (x1 > receiverBounds[i + 1]) {
+				receiverBounds[i + 1] = x1;
+				receiverBoundsExpanded = true;
+			}
+
+			if (y0 < receiverBounds[i + 2]) {
+				receiverBounds[i + 2] = y0;
+				receiverBoundsExpanded = true;
+			}
+
+			if (y1 > receiverBounds[i + 3]) {
+				receiverBounds[i + 3] = y1;
+				receiverBoundsExpanded = true;
+			}
+		}
+	}
+
+	/**
+	 * True if a region at the given position could shadow any receiver in the given cascade.
+	 * Shadows are cast along light-space Z, so this only needs to check X/Y overlap.
+	 */
+	public boolean canShadowReceivers(RegionPosition regionPosition, int cascade) {
+		final float extent = maxRegionExtent;
+		final float x = regionPosition.shadowCenterX();
+		final float y = regionPosition.shadowCenterY();
+		final int i = cascade * 4;
+
+		return x + extent >= receiverBounds[i] && x - extent <= receiverBounds[i + 1]
+				&& y + extent >= receiverBounds[i + 2] && y - extent <= receiverBounds[i + 3];
+	}
+
+	/**
+	 * True if receiver bounds have grown since the last call. Casters classified
+	 * before the bounds grew may have been excluded from cascades they now shadow.
+	 */
+	public boolean checkAndClearReceiverBoundsExpanded() {
+		final boolean result = receiverBoundsExpanded;
+		receiverBoundsExpanded = false;
+		return result;
 	}
 
 	public float maxRegionExtent() {
@@ -0,0 +1,117 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.region;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.minecraft.block.entity.BlockEntity;
+
+/**
+ * Block entities of a region that render outside their bounding box, held in interior
+ * index order. Each build stages the block entities it finds, also in index order, and
+ * the staged list is compared to the previous one in a single merge pass on index keys.
+ *
+ * <p>Two sets of arrays are swapped after each comparison, so a build that finds the same
+ * block entities allocates nothing.  Only the region build task accesses an instance.
+ */
+class NoCullingBlockEntities {
+	private short[] indices = new short[4];
+	private BlockEntity[] entities = new BlockEntity[4];
+	private int size;
+
+	private short[] stagedIndices = new short[4];
+	private BlockEntity[] stagedEntities = new BlockEntity[4];
+	private int stagedSize;
+
+	void beginBuild() {
+		stagedSize = 0;
+	}
+
+	/**
+	 * Call in ascending index order, after {@link #beginBuild()}.
+	 */
+	void add(int interiorIndex, BlockEntity blockEntity) {
+		final int n = stagedSize;
+
+		if (n == stagedIndices.length) {
+			final int newLength = n * 2;
+			final short[] newIndices = new short[newLength];
+			final BlockEntity[] newEntities = new BlockEntity[newLength];
+			System.arraycopy(stagedIndices, 0, newIndices, 0, n);
+			System.arraycopy(stagedEntities, 0, newEntities, 0, n);
+			stagedIndices = newIndices;
+			stagedEntities = newEntities;
+		}
+
+		stagedIndices[n] = (short) interiorIndex;
+		stagedEntities[n] = blockEntity;
+		stagedSize = n + 1;
+	}
+
+	/**
+	 * Makes the staged block entities current and reports the differences.
+	 *
+	 * @return true if anything was added or removed
+	 */
+	boolean completeBuild(List<BlockEntity> removed, List<BlockEntity> added) {
+		final int oldSize = size;
+		final int newSize = stagedSize;
+
+		if (oldSize == 0 && newSize == 0) {
+			return false;
+		}
+
+		final short[] oldIndices = indices;
+		final BlockEntity[] oldEntities = entities;
+		final short[] newIndices = stagedIndices;
+		final BlockEntity[] newEntities = stagedEntities;
+		boolean changed = false;
+		int i = 0, j = 0;
+
+		while (i < oldSize || j < newSize) {
+			final int oldIndex = i < oldSize ? oldIndices[i] : Integer.MAX_VALUE;
+			final int newIndex = j < newSize ? newIndices[j] : Integer.MAX_VALUE;
+
+			if (oldIndex == newIndex) {
+				if (oldEntities[i] != newEntities[j]) {
+					removed.add(oldEntities[i]);
+					added.add(newEntities[j]);
+					changed = true;
+				}
+
+				++i;
+				++j;
+			} else if (oldIndex < newIndex) {
+				removed.add(oldEntities[i++]);
+				changed = true;
+			} else {
+				added.add(newEntities[j++]);
+				changed = true;
+			}
+		}
+
+		// staging arrays shouldn't retain block entities
+		Arrays.fill(oldEntities, 0, oldSize, null);
+		indices = newIndices;
+		entities = newEntities;
+		size = newSize;
+		stagedIndices = oldIndices;
+		stagedEntities = oldEntities;
+		return changed;
+	}
+}
@@ -87,6 +87,10 @@ public class RegionPosition extends BlockPos {
 
 	private int shadowDistanceRank;
 
+	/** Light-space X/Y of region center, updated with {@link #shadowCascade}. */
+	private float shadowCenterX;
+	private float shadowCenterY;
+
 	private int visibleFaceFlags;
 
 	public RegionPosition(long packedPos, RenderRegion owner) {
@@ -136,6 +140,8 @@ public class RegionPosition extends BlockPos {
 			// Based on trial-and-error
 			fuzz = squaredCameraChunkDistance >= 7 * 7 ? 1 : 0;
 			occlusionRange = PackedBox.rangeFromSquareChunkDist(squaredCameraChunkDistance);
+			owner.checkFaceMergeDistance();
+			owner.checkLodLevel();
 		}
 	}
 
@@ -293,6 +299,19 @@ public class RegionPosition extends BlockPos {
 		return shadowDistanceRank;
 	}
 
+	public void setShadowCenter(float x, float y) {
+		shadowCenterX = x;
+		shadowCenterY = y;
+	}
+
+	public float shadowCenterX() {
+		return shadowCenterX;
+	}
+
+	public float shadowCenterY() {
+		return shadowCenterY;
+	}
+
 	public boolean isPotentiallyVisibleFromSkylight() {
 		return owner.origin.isInsideRenderDistance() & shadowCascade != -1;
 	}
@@ -19,13 +19,10 @@ package grondag.canvas.terrain.region;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
-import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.mojang.blaze3d.systems.RenderSystem;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
-import it.unimi.dsi.fastutil.objects.ObjectIterator;
-import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockRenderType;
@@ -38,6 +35,7 @@ import net.minecraft.client.render.model.BakedModel;
 import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.fluid.FluidState;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
 import net.minecraft.util.math.Matrix3f;
 import net.minecraft.util.math.Matrix4f;
 import net.minecraft.util.math.Vec3d;
@@ -49,12 +47,14 @@ import net.fabricmc.fabric.api.renderer.v1.model.FabricBakedModel;
 import grondag.canvas.apiimpl.rendercontext.TerrainRenderContext;
 import grondag.canvas.buffer.input.ArrayVertexCollector;
 import grondag.canvas.buffer.input.VertexCollectorList;
+import grondag.canvas.config.Configurator;
 import grondag.canvas.material.state.RenderLayerHelper;
 import grondag.canvas.perf.ChunkRebuildCounters;
 import grondag.canvas.pipeline.Pipeline;
 import grondag.canvas.render.terrain.TerrainSectorMap.RegionRenderSector;
 import grondag.canvas.render.terrain.base.DrawableRegion;
 import grondag.canvas.render.terrain.base.UploadableRegion;
+import grondag.canvas.render.terrain.cluster.VertexClusterRealm;
 import grondag.canvas.render.world.WorldRenderState;
 import grondag.canvas.terrain.occlusion.camera.CameraRegionVisibility;
 import grondag.canvas.terrain.occlusion.geometry.RegionOcclusionCalculator;
@@ -65,10 +65,13 @@ import grondag.canvas.terrain.region.input.SignalInputRegion;
 import grondag.canvas.terrain.util.RenderRegionStateIndexer;
 import grondag.canvas.terrain.util.TerrainExecutor;
 import grondag.canvas.terrain.util.TerrainExecutorTask;
+import grondag.canvas.terrain.util.TerrainLod;
 import grondag.frex.api.fluid.FluidQuadSupplier;
 
 @Environment(EnvType.CLIENT)
 public class RenderRegion implements TerrainExecutorTask {
+	private static final Direction[] FACES = Direction.values();
+
 	private final RenderRegionBuilder renderRegionBuilder;
 
 	final WorldRenderState worldRenderState;
@@ -91,7 +94,7 @@ public class RenderRegion implements TerrainExecutorTask {
 	private volatile AtomicReference<PackedInputRegion> inputState = new AtomicReference<>(SignalInputRegion.IDLE);
 
 	private final AtomicReference<RegionBuildState> buildState;
-	private final ObjectOpenHashSet<BlockEntity> localNoCullingBlockEntities = new ObjectOpenHashSet<>();
+	private final NoCullingBlockEntities noCullingBlockEntities = new NoCullingBlockEntities();
 
 	/**
 	 * Indicates the region is not current with world state.
@@ -113,6 +116,12 @@ public class RenderRegion implements TerrainExecutorTask {
 
 	private boolean isClosed = false;
 
+	/** True if the current mesh was built with merged block faces for distant regions. */
+	private volatile boolean isFaceMerged = false;
+
+	/** Level of detail of the current mesh, zero for full detail. See {@link TerrainLod}. */
+	private volatile int lodLevel = 0;
+
 	public RenderRegion(RenderChunk chunk, long packedPos) {
 		worldRenderState = chunk.worldRenderState;
 		renderRegionBuilder = worldRenderState.regionBuilder();
@@ -128,16 +137,20 @@ public class RenderRegion implements TerrainExecutorTask {
 		origin.update();
 	}
 
-	private static <E extends BlockEntity> void addBlockEntity(List<BlockEntity> chunkEntities, Set<BlockEntity> globalEntities, E blockEntity) {
+	/**
+	 * Adds the block entity to the region list if it has a renderer.
+	 *
+	 * @return true if it also renders outside its bounding box and so can't be culled with the region
+	 */
+	private static <E extends BlockEntity> boolean addBlockEntity(List<BlockEntity> chunkEntities, E blockEntity) {
 		final BlockEntityRenderer<E> blockEntityRenderer = MinecraftClient.getInstance().getBlockEntityRenderDispatcher().get(blockEntity);
 
-		if (blockEntityRenderer != null) {
-			chunkEntities.add(blockEntity);
-
-			if (blockEntityRenderer.rendersOutsideBoundingBox(blockEntity)) {
-				globalEntities.add(blockEntity);
-			}
+		if (blockEntityRenderer == null) {
+			return false;
 		}
+
+		chunkEntities.add(blockEntity);
+		return blockEntityRenderer.rendersOutsideBoundingBox(blockEntity);
 	}
 
 	/**
@@ -161,6 +174,8 @@ public class RenderRegion implements TerrainExecutorTask {
 			cancel();
 			buildState.set(RegionBuildState.UNBUILT);
 			needsRebuild = true;
+			isFaceMerged = false;
+			lodLevel = 0;
 			origin.close();
 
 			if (renderSector != null) {
@@ -191,6 +206,33 @@ public class RenderRegion implements TerrainExecutorTask {
 		needsImportantRebuild = false;
 	}
 
+	/**
+	 * Requests a full-detail rebuild if the region was meshed with merged faces
+	 * and is now within merge distance.  Regions are only merged when built, so
+	 * a region moving away keeps its full-detail mesh.
+	 */
+	void checkFaceMergeDistance() {
+		if (isFaceMerged) {
+			final int distance = Configurator.faceMergeDistance;
+
+			if (distance == 0 || origin.squaredCameraChunkDistance() < distance * distance) {
+				isFaceMerged = false;
+				markForBuild(false);
+			}
+		}
+	}
+
+	/**
+	 * Requests a rebuild if the region has moved far enough to need a different level of detail.
+	 */
+	void checkLodLevel() {
+		final int level = lodLevel;
+
+		if (level != TerrainLod.level(origin.squaredCameraChunkDistance(), level, Configurator.lodDistance)) {
+			markForBuild(false);
+		}
+	}
+
 	public boolean needsRebuild() {
 		return needsRebuild;
 	}
@@ -351,7 +393,7 @@ public class RenderRegion implements TerrainExecutorTask {
 			buildTerrain(context, newBuildState);
 
 			if (runningState.get() != SignalInputRegion.INVALID) {
-				final UploadableRegion solidUpload = collectors.toUploadableChunk(false, origin, worldRenderState);
+				final UploadableRegion solidUpload = collectors.toUploadableChunk(false, origin, solidRealm());
 				final UploadableRegion translucentUpload = collectors.toUploadableChunk(true, origin, worldRenderState);
 
 				renderRegionBuilder.scheduleUpload(() -> {
@@ -377,8 +419,23 @@ public class RenderRegion implements TerrainExecutorTask {
 		}
 	}
 
+	/** Reduced-detail meshes are kept in their own realm. */
+	private VertexClusterRealm solidRealm() {
+		return lodLevel == 0 ? worldRenderState.solidClusterRealm : worldRenderState.lodClusterRealm;
+	}
+
 	private RegionBuildState captureAndSetBuildState(TerrainRenderContext context, boolean isNear) {
 		final RegionBuildState newBuildState = new RegionBuildState();
+		final int lodLevel = TerrainLod.level(origin.squaredCameraChunkDistance(), this.lodLevel, Configurator.lodDistance);
+		this.lodLevel = lodLevel;
+
+		if (lodLevel != 0) {
+			// occlusion must match the reduced mesh or regions hidden behind detail it drops would be culled
+			final int scale = TerrainLod.scale(lodLevel);
+			findLodCubes(context, scale);
+			context.region.occlusion.applyLodSolidity(scale, context.lodCubes);
+		}
+
 		newBuildState.setOcclusionResult(context.region.occlusion.build(isNear));
 		handleBlockEntities(newBuildState, context);
 
@@ -405,17 +462,38 @@ public class RenderRegion implements TerrainExecutorTask {
 
 		final VertexCollectorList collectors = context.collectors;
 
+		final int mergeDistance = Configurator.faceMergeDistance;
+		isFaceMerged = mergeDistance > 0 && origin.squaredCameraChunkDistance() >= mergeDistance * mergeDistance;
+
+		if (isFaceMerged) {
+			context.enableBlockFaceMerging();
+		}
+
+		final MatrixStack matrixStack = new MatrixStack();
+
+		// level and cubes were chosen when occlusion was captured
+		if (lodLevel != 0) {
+			buildLodTerrain(context, TerrainLod.scale(lodLevel), matrixStack);
+		} else {
+			buildBlocks(context, matrixStack);
+		}
+
+		context.completeMergedFaces();
+		buildState.prepareTranslucentIfNeeded(worldRenderState.sectorManager.cameraPos(), renderSector, collectors);
+
+		if (ChunkRebuildCounters.ENABLED) {
+			ChunkRebuildCounters.completeChunk();
+		}
+	}
+
+	private void buildBlocks(TerrainRenderContext context, MatrixStack matrixStack) {
 		final BlockPos.Mutable searchPos = context.searchPos;
 		final int xOrigin = origin.getX();
 		final int yOrigin = origin.getY();
 		final int zOrigin = origin.getZ();
-
 		final InputRegion region = context.region;
-		final MatrixStack matrixStack = new MatrixStack();
-		final MatrixStack.Entry entry = matrixStack.peek();
-		final Matrix4f modelMatrix = entry.getModel();
-		final Matrix3f normalMatrix = entry.getNormal();
-
+		final Matrix4f modelMatrix = matrixStack.peek().getModel();
+		final Matrix3f normalMatrix = matrixStack.peek().getNormal();
 		final BlockRenderManager blockRenderManager = MinecraftClient.getInstance().getBlockRenderManager();
 		final RegionOcclusionCalculator occlusionRegion = region.occlusion;
 
@@ -457,54 +535,145 @@ public class RenderRegion implements TerrainExecutorTask {
 				}
 			}
 		}
+	}
 
-		buildState.prepareTranslucentIfNeeded(worldRenderState.sectorManager.cameraPos(), renderSector, collectors);
+	/**
+	 * Fills {@link TerrainRenderContext#lodCubes} for reduced detail. A cube of scale^3 blocks is
+	 * solid if at least half of it is full-cube blocks, and holds the index of its highest
+	 * full-cube block, or -1 if it is not solid.
+	 */
+	private void findLodCubes(TerrainRenderContext context, int scale) {
+		final BlockPos.Mutable searchPos = context.searchPos;
+		final int xOrigin = origin.getX();
+		final int yOrigin = origin.getY();
+		final int zOrigin = origin.getZ();
+		final InputRegion region = context.region;
+		final int[] cubes = context.lodCubes;
+		final int span = 16 / scale;
+		final int threshold = scale * scale * scale / 2;
+
+		for (int c = 0; c < span * span * span; ++c) {
+			final int cx = (c % span) * scale;
+			final int cy = ((c / span) % span) * scale;
+			final int cz = (c / (span * span)) * scale;
+			int count = 0;
+			int top = -1;
+
+			for (int y = cy + scale - 1; y >= cy; --y) {
+				for (int z = cz; z < cz + scale; ++z) {
+					for (int x = cx; x < cx + scale; ++x) {
+						final int i = x | (y << 4) | (z << 8);
+						final BlockState blockState = region.getLocalBlockState(i);
+
+						if (blockState.getRenderType() == BlockRenderType.MODEL && Block.isShapeFullCube(blockState.getCollisionShape(region, searchPos.set(xOrigin + x, yOrigin + y, zOrigin + z)))) {
+							++count;
+
+							if (top == -1) {
+								top = i;
+							}
+						}
+					}
+				}
+			}
 
-		if (ChunkRebuildCounters.ENABLED) {
-			ChunkRebuildCounters.completeChunk();
+			cubes[c] = count >= threshold ? top : -1;
 		}
 	}
 
-	private void handleBlockEntities(RegionBuildState regionData, TerrainRenderContext context) {
-		final ObjectOpenHashSet<BlockEntity> nonCullBlockEntities = context.nonCullBlockEntities;
-		final ObjectArrayList<BlockEntity> regionDataBlockEntities = regionData.blockEntities;
+	/**
+	 * Meshes the region at reduced detail from cubes found by {@link #findLodCubes(TerrainRenderContext, int)}.
+	 * Each solid cube is drawn as one cube with the model of its highest full-cube block, and
+	 * only cube faces not hidden by another solid cube of the region are drawn.  Fluids are
+	 * meshed at full detail so that oceans and lakes don't thin out, and other blocks are omitted.
+	 *
+	 * <p>Thin walls and floors that fill less than half of a cube are not drawn.  Region occlusion
+	 * is captured from the same cubes, so regions behind them are not culled through the gap.
+	 */
+	private void buildLodTerrain(TerrainRenderContext context, int scale, MatrixStack matrixStack) {
+		final BlockPos.Mutable searchPos = context.searchPos;
+		final int xOrigin = origin.getX();
+		final int yOrigin = origin.getY();
+		final int zOrigin = origin.getZ();
+		final InputRegion region = context.region;
+		final int[] cubes = context.lodCubes;
+		final int span = 16 / scale;
 
-		// PERF: benchmark vs list, empty indicator, or some other structure
-		for (final BlockEntity blockEntity : context.region.blockEntities) {
-			if (blockEntity != null) {
-				addBlockEntity(regionDataBlockEntities, nonCullBlockEntities, blockEntity);
-			}
-		}
+		final BlockRenderManager blockRenderManager = MinecraftClient.getInstance().getBlockRenderManager();
+
+		for (int c = 0; c < span * span * span; ++c) {
+			final int i = cubes[c];
 
-		final ObjectOpenHashSet<BlockEntity> addedBlockEntities = context.addedBlockEntities;
-		final ObjectOpenHashSet<BlockEntity> removedBlockEntities = context.removedBlockEntities;
+			if (i == -1) {
+				continue;
+			}
 
-		if (!localNoCullingBlockEntities.isEmpty()) {
-			final ObjectIterator<BlockEntity> it = localNoCullingBlockEntities.iterator();
+			final int x = c % span;
+			final int y = (c / span) % span;
+			final int z = c / (span * span);
+			int faceFlags = 0;
 
-			while (it.hasNext()) {
-				final BlockEntity be = it.next();
+			for (final Direction face : FACES) {
+				final int nx = x + face.getOffsetX();
+				final int ny = y + face.getOffsetY();
+				final int nz = z + face.getOffsetZ();
 
-				if (!nonCullBlockEntities.contains(be)) {
-					it.remove();
-					removedBlockEntities.add(be);
+				// faces on the region boundary are always drawn because neighbors may be at any detail
+				if (nx < 0 || ny < 0 || nz < 0 || nx >= span || ny >= span || nz >= span || cubes[nx + (ny + nz * span) * span] == -1) {
+					faceFlags |= 1 << face.getId();
 				}
 			}
+
+			if (faceFlags != 0) {
+				final BlockState blockState = region.getLocalBlockState(i);
+				searchPos.set(xOrigin + (i & 0xF), yOrigin + ((i >> 4) & 0xF), zOrigin + ((i >> 8) & 0xF));
+				final BakedModel model = blockRenderManager.getModel(blockState);
+				context.renderLodBlock(blockState, searchPos, x * scale, y * scale, z * scale, scale, faceFlags, (FabricBakedModel) model);
+			}
 		}
 
-		if (!nonCullBlockEntities.isEmpty()) {
-			final ObjectIterator<BlockEntity> it = nonCullBlockEntities.iterator();
+		final Matrix4f modelMatrix = matrixStack.peek().getModel();
+		final Matrix3f normalMatrix = matrixStack.peek().getNormal();
+		final RegionOcclusionCalculator occlusionRegion = region.occlusion;
 
-			while (it.hasNext()) {
-				final BlockEntity be = it.next();
+		for (int i = 0; i < RenderRegionStateIndexer.INTERIOR_STATE_COUNT; i++) {
+			if (occlusionRegion.shouldRender(i)) {
+				final BlockState blockState = region.getLocalBlockState(i);
+				final FluidState fluidState = blockState.getFluidState();
 
-				if (localNoCullingBlockEntities.add(be)) {
-					addedBlockEntities.add(be);
+				if (!fluidState.isEmpty()) {
+					final int x = i & 0xF;
+					final int y = (i >> 4) & 0xF;
+					final int z = (i >> 8) & 0xF;
+					searchPos.set(xOrigin + x, yOrigin + y, zOrigin + z);
+					modelMatrix.loadIdentity();
+					modelMatrix.multiplyByTranslation(x, y, z);
+					normalMatrix.loadIdentity();
+					context.renderFluid(blockState, searchPos, false, FluidQuadSupplier.get(fluidState.getFluid()), matrixStack);
 				}
 			}
 		}
+	}
+
+	private void handleBlockEntities(RegionBuildState regionData, TerrainRenderContext context) {
+		final ObjectArrayList<BlockEntity> regionDataBlockEntities = regionData.blockEntities;
+		final BlockEntity[] blockEntities = context.region.blockEntities;
+		final NoCullingBlockEntities noCullingBlockEntities = this.noCullingBlockEntities;
+		noCullingBlockEntities.beginBuild();
+
+		for (int i = 0; i < RenderRegionStateIndexer.INTERIOR_STATE_COUNT; ++i) {
+			final BlockEntity blockEntity = blockEntities[i];
+
+			if (blockEntity != null && addBlockEntity(regionDataBlockEntities, blockEntity)) {
+				noCullingBlockEntities.add(i, blockEntity);
+			}
+		}
+
+		final ObjectArrayList<BlockEntity> addedBlockEntities = context.addedBlockEntities;
+		final ObjectArrayList<BlockEntity> removedBlockEntities = context.removedBlockEntities;
 
-		worldRenderState.cwr.updateNoCullingBlockEntities(removedBlockEntities, addedBlockEntities);
+		if (noCullingBlockEntities.completeBuild(removedBlockEntities, addedBlockEntities)) {
+			worldRenderState.cwr.updateNoCullingBlockEntities(removedBlockEntities, addedBlockEntities);
+		}
 	}
 
 	public void rebuildOnMainThread() {
@@ -534,7 +703,7 @@ public class RenderRegion implements TerrainExecutorTask {
 			}
 
 			final VertexCollectorList collectors = context.collectors;
-			final UploadableRegion solidUpload = collectors.toUploadableChunk(false, origin, worldRenderState);
+			final UploadableRegion solidUpload = collectors.toUploadableChunk(false, origin, solidRealm());
 			final UploadableRegion translucentUpload = collectors.toUploadableChunk(true, origin, worldRenderState);
 
 			releaseDrawables();
@@ -29,12 +29,14 @@ import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.shorts.ShortArrayList;
 import org.jetbrains.annotations.Nullable;
 
+import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.client.render.WorldRenderer;
 import net.minecraft.fluid.FluidState;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
+import net.minecraft.world.BlockView;
 import net.minecraft.world.LightType;
 import net.minecraft.world.chunk.light.LightingProvider;
 import net.minecraft.world.level.ColorResolver;
@@ -45,6 +47,7 @@ import grondag.canvas.apiimpl.rendercontext.TerrainRenderContext;
 import grondag.canvas.terrain.occlusion.geometry.RegionOcclusionCalculator;
 import grondag.canvas.terrain.util.ChunkColorCache;
 import grondag.canvas.terrain.util.ChunkPaletteCopier.PaletteCopy;
+import grondag.canvas.terrain.util.FaceCullTable;
 
 // FIX: should not allow direct world access, esp from non-main threads
 public class InputRegion extends AbstractInputRegion implements RenderAttachedBlockView {
@@ -52,6 +55,7 @@ public class InputRegion extends AbstractInputRegion implements RenderAttachedBl
 	private static final int[] EMPTY_LIGHT_CACHE = new int[TOTAL_STATE_COUNT];
 	private static final Object[] EMPTY_RENDER_DATA = new Object[INTERIOR_STATE_COUNT];
 	private static final BlockEntity[] EMPTY_BLOCK_ENTITIES = new BlockEntity[INTERIOR_STATE_COUNT];
+	private static final long[] EMPTY_CULL_INFO = new long[TOTAL_STATE_COUNT];
 
 	static {
 		Arrays.fill(EMPTY_AO_CACHE, Integer.MAX_VALUE);
@@ -84,6 +88,9 @@ public class InputRegion extends AbstractInputRegion implements RenderAttachedBl
 	private final int[] aoCache = new int[TOTAL_STATE_COUNT];
 	private final int[] lightCache = new int[TOTAL_STATE_COUNT];
 
+	/** Lazily populated from {@link FaceCullTable#info(BlockState)}, zero if not yet retrieved. */
+	private final long[] cullInfo = new long[TOTAL_STATE_COUNT];
+
 	public InputRegion(TerrainRenderContext terrainContext) {
 		this.terrainContext = terrainContext;
 	}
@@ -94,6 +101,7 @@ public class InputRegion extends AbstractInputRegion implements RenderAttachedBl
 		System.arraycopy(EMPTY_RENDER_DATA, 0, renderData, 0, INTERIOR_STATE_COUNT);
 		System.arraycopy(EMPTY_AO_CACHE, 0, aoCache, 0, TOTAL_STATE_COUNT);
 		System.arraycopy(EMPTY_LIGHT_CACHE, 0, lightCache, 0, TOTAL_STATE_COUNT);
+		System.arraycopy(EMPTY_CULL_INFO, 0, cullInfo, 0, TOTAL_STATE_COUNT);
 
 		world = packedRegion.world;
 
@@ -176,6 +184,13 @@ public class InputRegion extends AbstractInputRegion implements RenderAttachedBl
 		return states[interiorIndex];
 	}
 
+	/**
+	 * Accepts any region index, including padding.
+	 */
+	public BlockState getRegionBlockState(int regionIndex) {
+		return states[regionIndex];
+	}
+
 	@Override
 	@Nullable
 	public BlockEntity getBlockEntity(BlockPos pos) {
@@ -272,6 +287,34 @@ public class InputRegion extends AbstractInputRegion implements RenderAttachedBl
 		return result;
 	}
 
+	private long cullInfo(int regionIndex) {
+		long result = cullInfo[regionIndex];
+
+		if (result == 0) {
+			result = FaceCullTable.info(states[regionIndex]);
+			cullInfo[regionIndex] = result;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Same result as {@link Block#shouldDrawSide(BlockState, BlockView, BlockPos, Direction, BlockPos)}
+	 * but uses {@link FaceCullTable} with cull info cached by region index.
+	 */
+	public boolean shouldDrawSide(BlockState blockState, BlockPos pos, Direction face, BlockPos neighborPos) {
+		final int index = blockIndex(pos.getX(), pos.getY(), pos.getZ());
+		final int neighborIndex = blockIndex(neighborPos.getX(), neighborPos.getY(), neighborPos.getZ());
+
+		if (index == -1 || neighborIndex == -1) {
+			return Block.shouldDrawSide(blockState, this, pos, face, neighborPos);
+		}
+
+		assert states[index] == blockState;
+
+		return FaceCullTable.shouldDrawSide(blockState, cullInfo(index), states[neighborIndex], cullInfo(neighborIndex), face, this, pos, neighborPos);
+	}
+
 	/**
 	 * Only valid for positions in render region, including exterior.
 	 */
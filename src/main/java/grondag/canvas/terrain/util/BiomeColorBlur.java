@@ -0,0 +1,104 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.util;
+
+/**
+ * Box blur of biome colors for all columns of a chunk, used by {@link ChunkColorCache}
+ * when colors are computed in bulk.
+ */
+abstract class BiomeColorBlur {
+	/** Bits per color channel when channels are summed in parallel lanes of a long. Holds 255 * 31 * 31. */
+	private static final int LANE_BITS = 21;
+	private static final long LANE_MASK = (1L << LANE_BITS) - 1;
+
+	/**
+	 * Average of colors over a square of the given radius around each column.
+	 * Channels are summed in separate lanes of a long and the square sum is separated into
+	 * running row sums and then running column sums, so each column costs a few adds
+	 * regardless of radius. Sums and rounding are the same as blending one column at a time.
+	 *
+	 * @param radius blend radius, at most {@link ChunkColorCache#MAX_BLEND_RADIUS}
+	 * @param colors base colors of the chunk and a border of radius columns, row-major in x
+	 *               with rows of 16 + radius * 2
+	 * @return blended colors indexed by x | z << 4
+	 */
+	static int[] blend(int radius, int[] colors) {
+		final int diameter = radius * 2 + 1;
+		final int span = 16 + radius * 2;
+		final long[] samples = new long[span * span];
+
+		for (int i = 0; i < samples.length; ++i) {
+			final int color = colors[i];
+			samples[i] = ((color >> 16) & 255) | ((long) ((color >> 8) & 255) << LANE_BITS) | ((long) (color & 255) << (LANE_BITS * 2));
+		}
+
+		// running sums along x, 16 per row
+		final long[] rowSums = new long[16 * span];
+
+		for (int sz = 0; sz < span; ++sz) {
+			final int rowStart = sz * span;
+			long sum = 0;
+
+			for (int k = 0; k < diameter; ++k) {
+				sum += samples[rowStart + k];
+			}
+
+			final int outStart = sz * 16;
+			rowSums[outStart] = sum;
+
+			for (int x = 1; x < 16; ++x) {
+				sum += samples[rowStart + x + diameter - 1] - samples[rowStart + x - 1];
+				rowSums[outStart + x] = sum;
+			}
+		}
+
+		// running sums along z, all 16 columns of a row at a time
+		final long[] sums = new long[16];
+
+		for (int k = 0; k < diameter; ++k) {
+			final int rowStart = k * 16;
+
+			for (int x = 0; x < 16; ++x) {
+				sums[x] += rowSums[rowStart + x];
+			}
+		}
+
+		final int[] result = new int[256];
+		final int sampleCount = diameter * diameter;
+
+		for (int z = 0; z < 16; ++z) {
+			if (z > 0) {
+				final int addStart = (z + diameter - 1) * 16;
+				final int removeStart = (z - 1) * 16;
+
+				for (int x = 0; x < 16; ++x) {
+					sums[x] += rowSums[addStart + x] - rowSums[removeStart + x];
+				}
+			}
+
+			for (int x = 0; x < 16; ++x) {
+				final long sum = sums[x];
+				final int r = (int) (sum & LANE_MASK);
+				final int g = (int) ((sum >> LANE_BITS) & LANE_MASK);
+				final int b = (int) (sum >> (LANE_BITS * 2));
+				result[x | (z << 4)] = (r / sampleCount & 255) << 16 | (g / sampleCount & 255) << 8 | b / sampleCount & 255;
+			}
+		}
+
+		return result;
+	}
+}
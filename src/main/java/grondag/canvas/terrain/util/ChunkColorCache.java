@@ -32,22 +32,40 @@ import net.minecraft.world.level.ColorResolver;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 
+import grondag.canvas.config.Configurator;
 import grondag.canvas.mixinterface.BiomeAccessExt;
 import grondag.canvas.mixinterface.WorldChunkExt;
 
+/**
+ * Biome colors for terrain, per block column.
+ *
+ * <p>By default colors are computed lazily one column at a time. With {@link Configurator#bulkBiomeColors}
+ * base colors for all columns and all resolvers are computed in one pass on first use, and blended
+ * colors for a resolver are computed for the whole chunk at once with a running-sum box blur,
+ * so cost does not depend on blend radius.  Both give the same colors.
+ */
 //FEAT: per-vertex blending (quality)
 @Environment(value = EnvType.CLIENT)
 public class ChunkColorCache implements BiomeAccess.Storage {
 	private static final MinecraftClient mc = MinecraftClient.getInstance();
 	private static int VERSION = 0;
+
+	/** Largest radius the bulk path supports, so that blending never reaches beyond adjacent chunks. */
+	public static final int MAX_BLEND_RADIUS = 15;
+
 	private final WorldChunk chunk;
 	private final ClientWorld world;
 	private final int chunkX;
 	private final int chunkZ;
 	private final int version;
-	private final BiomeColorCache grassCache = new BiomeColorCache(BiomeColors.GRASS_COLOR, c -> c.grassCache);
-	private final BiomeColorCache foliageCache = new BiomeColorCache(BiomeColors.FOLIAGE_COLOR, c -> c.foliageCache);
-	private final BiomeColorCache waterCache = new BiomeColorCache(BiomeColors.WATER_COLOR, c -> c.waterCache);
+	private final BiomeColorCache grassCache = new BiomeColorCache(BiomeColors.GRASS_COLOR, c -> c.grassCache, 0);
+	private final BiomeColorCache foliageCache = new BiomeColorCache(BiomeColors.FOLIAGE_COLOR, c -> c.foliageCache, 256);
+	private final BiomeColorCache waterCache = new BiomeColorCache(BiomeColors.WATER_COLOR, c -> c.waterCache, 512);
+
+	/**
+	 * Grass, foliage and water base colors for all columns, in that order, or null until computed in bulk.
+	 */
+	private volatile int[] basePlanes;
 
 	public ChunkColorCache(ClientWorld world, WorldChunk chunk) {
 		this.world = world;
@@ -70,6 +88,40 @@ public class ChunkColorCache implements BiomeAccess.Storage {
 		return version < VERSION;
 	}
 
+	static int blendRadius() {
+		final int radius = Configurator.biomeBlendRadius;
+		return radius < 0 ? Math.min(MAX_BLEND_RADIUS, mc.options.biomeBlendRadius) : radius;
+	}
+
+	/**
+	 * Base colors for every column and resolver, using one biome lookup per column.
+	 *
+	 * @param y block height used for biome lookup of every column
+	 */
+	private int[] basePlanes(int y) {
+		int[] result = basePlanes;
+
+		if (result == null) {
+			result = new int[768];
+			final int x0 = chunkX << 4;
+			final int z0 = chunkZ << 4;
+
+			for (int index = 0; index < 256; ++index) {
+				final int x = x0 + (index & 0xF);
+				final int z = z0 + (index >> 4);
+				final Biome biome = getBiome(x, y, z);
+				result[index] = BiomeColors.GRASS_COLOR.getColor(biome, x, z);
+				result[index + 256] = BiomeColors.FOLIAGE_COLOR.getColor(biome, x, z);
+				result[index + 512] = BiomeColors.WATER_COLOR.getColor(biome, x, z);
+			}
+
+			// racing threads compute the same values
+			basePlanes = result;
+		}
+
+		return result;
+	}
+
 	private Biome getBiome(int x, int y, int z) {
 		return ((BiomeAccessExt) world.getBiomeAccess()).getBiome(x, y, z, this);
 	}
@@ -118,9 +170,16 @@ public class ChunkColorCache implements BiomeAccess.Storage {
 		private final Function<ChunkColorCache, BiomeColorCache> cacheFunc;
 		private final int[] data = new int[512 + 16];
 
-		private BiomeColorCache(ColorResolver colorResolver, Function<ChunkColorCache, BiomeColorCache> cacheFunc) {
+		/** Start of this resolver in {@link ChunkColorCache#basePlanes}. */
+		private final int planeOffset;
+
+		/** Blended colors for all columns, or null until computed in bulk. */
+		private volatile int[] blendedPlane;
+
+		private BiomeColorCache(ColorResolver colorResolver, Function<ChunkColorCache, BiomeColorCache> cacheFunc, int planeOffset) {
 			this.colorResolver = colorResolver;
 			this.cacheFunc = cacheFunc;
+			this.planeOffset = planeOffset;
 		}
 
 		private int getBaseColor(int x, int y, int z) {
@@ -156,12 +215,67 @@ public class ChunkColorCache implements BiomeAccess.Storage {
 		private int getColor(int x, int y, int z) {
 			final int cx = x >> 4;
 			final int cz = z >> 4;
+			final BiomeColorCache cache = cx == chunkX && cz == chunkZ ? this : cacheFunc.apply(get(world.getChunk(cx, cz)));
 
-			if (cx == chunkX && cz == chunkZ) {
-				return getLocalBlendedColor(x, y, z);
+			if (Configurator.bulkBiomeColors) {
+				return cache.blendedPlane(y)[(x & 0xF) | ((z & 0xF) << 4)];
 			} else {
-				return cacheFunc.apply(get(world.getChunk(cx, cz))).getLocalBlendedColor(x, y, z);
+				return cache.getLocalBlendedColor(x, y, z);
+			}
+		}
+
+		private int[] blendedPlane(int y) {
+			int[] result = blendedPlane;
+
+			if (result == null) {
+				final int radius = Math.min(MAX_BLEND_RADIUS, blendRadius());
+				result = radius == 0 ? basePlane(y) : computeBlendedPlane(radius, y);
+				blendedPlane = result;
 			}
+
+			return result;
+		}
+
+		private int[] basePlane(int y) {
+			final int[] planes = basePlanes(y);
+			final int[] result = new int[256];
+			System.arraycopy(planes, planeOffset, result, 0, 256);
+			return result;
+		}
+
+		/**
+		 * Box blur of base colors over a square of the given radius around each column,
+		 * gathering base colors of the bordering columns from neighbor chunks.
+		 * Gives the same colors as {@link #computeLocalBlendedColor(int, int, int)}.
+		 */
+		private int[] computeBlendedPlane(int radius, int y) {
+			final int span = 16 + radius * 2;
+			final int[] colors = new int[span * span];
+			final int[][] neighborPlanes = new int[9][];
+			final int xMin = (chunkX << 4) - radius;
+			final int zMin = (chunkZ << 4) - radius;
+
+			for (int sz = 0; sz < span; ++sz) {
+				final int z = zMin + sz;
+				final int nz = (z >> 4) - chunkZ + 1;
+
+				for (int sx = 0; sx < span; ++sx) {
+					final int x = xMin + sx;
+					final int nx = (x >> 4) - chunkX + 1;
+					final int n = nx + nz * 3;
+					int[] plane = neighborPlanes[n];
+
+					if (plane == null) {
+						final ChunkColorCache neighbor = n == 4 ? ChunkColorCache.this : get(world.getChunk(x >> 4, z >> 4));
+						plane = neighbor.basePlanes(y);
+						neighborPlanes[n] = plane;
+					}
+
+					colors[sx + sz * span] = plane[planeOffset + ((x & 0xF) | ((z & 0xF) << 4))];
+				}
+			}
+
+			return BiomeColorBlur.blend(radius, colors);
 		}
 
 		private int getLocalBlendedColor(int x, int y, int z) {
@@ -180,7 +294,7 @@ public class ChunkColorCache implements BiomeAccess.Storage {
 		}
 
 		private int computeLocalBlendedColor(int xIn, int yIn, int zIn) {
-			final int radius = mc.options.biomeBlendRadius;
+			final int radius = blendRadius();
 
 			if (radius == 0) {
 				return getLocalBaseColor(xIn, yIn, zIn);
@@ -0,0 +1,213 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import it.unimi.dsi.fastutil.HashCommon;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.function.BooleanBiFunction;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.shape.VoxelShape;
+import net.minecraft.util.shape.VoxelShapes;
+import net.minecraft.world.BlockView;
+import net.minecraft.world.EmptyBlockView;
+
+/**
+ * Lock-free replacement for {@link Block#shouldDrawSide(BlockState, BlockView, BlockPos, Direction, BlockPos)}.
+ *
+ * <p>Vanilla caches face cull results in a small thread-local LRU map keyed by an allocated
+ * neighbor group, which thrashes when many threads build terrain at once.  Here each block state
+ * gets packed cull info - opacity and whether each culling face is empty, full or partial -
+ * and most decisions reduce to bit tests. Only partial-vs-partial faces need a shape comparison,
+ * and those results go in a shared direct-mapped cache that threads can read and write without locking.
+ *
+ * <p>Results match vanilla except that blocks with dynamic bounds are never cached, so they
+ * always use the shapes at their actual position.
+ */
+public abstract class FaceCullTable {
+	/** Set in all computed info so that zero can mean "not yet computed." */
+	private static final int COMPUTED_FLAG = 1;
+	private static final int OPAQUE_FLAG = 2;
+	private static final int DYNAMIC_FLAG = 4;
+	private static final int FACE_SHIFT = 3;
+
+	private static final int FACE_EMPTY = 0;
+	private static final int FACE_FULL = 1;
+	private static final int FACE_PARTIAL = 2;
+
+	/** Largest state id that fits in a pair cache key. Larger ids bypass the pair cache. */
+	private static final int MAX_PAIR_ID = (1 << 24) - 1;
+
+	private static final int PAIR_CACHE_BITS = 16;
+	private static final int PAIR_CACHE_MASK = (1 << PAIR_CACHE_BITS) - 1;
+	private static final long PAIR_VALID = 2;
+	private static final long PAIR_RESULT = 1;
+
+	private static final Direction[] FACES = Direction.values();
+
+	/** Indexed by raw block state id.  Lazily populated, racing writes store identical values. */
+	private static volatile int[] stateFlags = new int[0];
+
+	/** Direct-mapped results of partial face comparisons. Collisions simply evict. */
+	private static final AtomicLongArray PAIR_CACHE = new AtomicLongArray(1 << PAIR_CACHE_BITS);
+
+	/**
+	 * Packed cull info for the given state: raw state id in the high 32 bits, flags in the low.
+	 * Never zero. Intended to be cached by callers, for example per region index.
+	 */
+	public static long info(BlockState state) {
+		final int id = Block.getRawIdFromState(state);
+		int[] flags = stateFlags;
+
+		if (id >= flags.length) {
+			synchronized (FaceCullTable.class) {
+				flags = stateFlags;
+
+				if (id >= flags.length) {
+					final int[] grown = new int[Math.max(id + 1, Block.STATE_IDS.size())];
+					System.arraycopy(flags, 0, grown, 0, flags.length);
+					flags = grown;
+					stateFlags = grown;
+				}
+			}
+		}
+
+		int result = flags[id];
+
+		if (result == 0) {
+			result = computeFlags(state);
+			flags[id] = result;
+		}
+
+		return ((long) id << 32) | result;
+	}
+
+	private static int computeFlags(BlockState state) {
+		int result = COMPUTED_FLAG;
+
+		if (state.isOpaque()) {
+			result |= OPAQUE_FLAG;
+		}
+
+		if (state.getBlock().hasDynamicBounds()) {
+			result |= DYNAMIC_FLAG;
+		} else {
+			// without dynamic bounds culling faces come from the state shape cache and ignore world and position
+			for (final Direction face : FACES) {
+				result |= faceType(state.getCullingFace(EmptyBlockView.INSTANCE, BlockPos.ORIGIN, face)) << (FACE_SHIFT + face.getId() * 2);
+			}
+		}
+
+		return result;
+	}
+
+	private static int faceType(VoxelShape shape) {
+		if (shape.isEmpty()) {
+			return FACE_EMPTY;
+		}
+
+		return VoxelShapes.matchesAnywhere(VoxelShapes.fullCube(), shape, BooleanBiFunction.ONLY_FIRST) ? FACE_PARTIAL : FACE_FULL;
+	}
+
+	private static int faceType(int flags, Direction face) {
+		return (flags >> (FACE_SHIFT + face.getId() * 2)) & 3;
+	}
+
+	/**
+	 * Same result as {@link Block#shouldDrawSide(BlockState, BlockView, BlockPos, Direction, BlockPos)}.
+	 *
+	 * @param info          from {@link #info(BlockState)} for state
+	 * @param neighborInfo  from {@link #info(BlockState)} for neighbor
+	 */
+	public static boolean shouldDrawSide(BlockState state, long info, BlockState neighbor, long neighborInfo, Direction face, BlockView world, BlockPos pos, BlockPos neighborPos) {
+		if (state.isSideInvisible(neighbor, face)) {
+			return false;
+		}
+
+		final int neighborFlags = (int) neighborInfo;
+
+		if ((neighborFlags & OPAQUE_FLAG) == 0) {
+			return true;
+		}
+
+		final int flags = (int) info;
+
+		if (((flags | neighborFlags) & DYNAMIC_FLAG) != 0) {
+			return compareFaces(state, neighbor, face, world, pos, neighborPos);
+		}
+
+		final int faceType = faceType(flags, face);
+
+		if (faceType == FACE_EMPTY) {
+			return true;
+		}
+
+		final int neighborFaceType = faceType(neighborFlags, face.getOpposite());
+
+		if (neighborFaceType == FACE_FULL) {
+			return false;
+		} else if (neighborFaceType == FACE_EMPTY) {
+			return true;
+		}
+
+		final int id = (int) (info >>> 32);
+		final int neighborId = (int) (neighborInfo >>> 32);
+
+		if (id > MAX_PAIR_ID || neighborId > MAX_PAIR_ID) {
+			return compareFaces(state, neighbor, face, world, pos, neighborPos);
+		}
+
+		final long key = ((long) id << 27) | ((long) neighborId << 3) | face.getId();
+		final int slot = (int) HashCommon.mix(key) & PAIR_CACHE_MASK;
+		final long entry = PAIR_CACHE.get(slot);
+
+		if ((entry >>> 2) == key && (entry & PAIR_VALID) != 0) {
+			return (entry & PAIR_RESULT) != 0;
+		}
+
+		final boolean result = compareFaces(state, neighbor, face, world, pos, neighborPos);
+		PAIR_CACHE.lazySet(slot, (key << 2) | PAIR_VALID | (result ? PAIR_RESULT : 0));
+		return result;
+	}
+
+	private static boolean compareFaces(BlockState state, BlockState neighbor, Direction face, BlockView world, BlockPos pos, BlockPos neighborPos) {
+		final VoxelShape shape = state.getCullingFace(world, pos, face);
+
+		if (shape.isEmpty()) {
+			return true;
+		}
+
+		return VoxelShapes.matchesAnywhere(shape, neighbor.getCullingFace(world, neighborPos, face.getOpposite()), BooleanBiFunction.ONLY_FIRST);
+	}
+
+	/**
+	 * Call when block state ids or shapes may have changed.
+	 */
+	public static void clear() {
+		synchronized (FaceCullTable.class) {
+			stateFlags = new int[0];
+
+			for (int i = 0; i <= PAIR_CACHE_MASK; ++i) {
+				PAIR_CACHE.set(i, 0);
+			}
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.util;
+
+/**
+ * Selects the level of detail for terrain regions from distance to the camera.
+ *
+ * <p>Level zero is full detail.  Regions at level n are meshed in cubes 2^n blocks wide,
+ * starting at the configured distance and doubling the distance for each further level.
+ * A region must move past a level boundary by {@link #HYSTERESIS} chunks before its level
+ * changes, so regions near a boundary are not rebuilt back and forth as the camera moves.
+ */
+public abstract class TerrainLod {
+	public static final int MAX_LEVEL = 3;
+
+	/** Distance in chunks beyond a level boundary needed to change level. */
+	static final float HYSTERESIS = 1f;
+
+	/**
+	 * Level for a region, given the level of its current mesh.
+	 *
+	 * @param squaredChunkDistance squared distance in chunks from the camera region
+	 * @param currentLevel         level of the current mesh, zero if none
+	 * @param lodDistance          distance in chunks where reduced detail starts, zero if disabled
+	 */
+	public static int level(int squaredChunkDistance, int currentLevel, int lodDistance) {
+		if (lodDistance == 0) {
+			return 0;
+		}
+
+		final float distance = (float) Math.sqrt(squaredChunkDistance);
+		final int farther = levelAt(distance - HYSTERESIS, lodDistance);
+
+		if (farther > currentLevel) {
+			return farther;
+		}
+
+		final int nearer = levelAt(distance + HYSTERESIS, lodDistance);
+		return nearer < currentLevel ? nearer : currentLevel;
+	}
+
+	/** Width in blocks of the cubes used to mesh a level. */
+	public static int scale(int level) {
+		return 1 << level;
+	}
+
+	static int levelAt(float chunkDistance, int lodDistance) {
+		int level = 0;
+		float boundary = lodDistance;
+
+		while (level < MAX_LEVEL && chunkDistance >= boundary) {
+			++level;
+			boundary *= 2;
+		}
+
+		return level;
+	}
+}
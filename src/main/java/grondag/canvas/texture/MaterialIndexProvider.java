@@ -90,6 +90,7 @@ public abstract class MaterialIndexProvider {
 
 			private final RenderMaterialImpl mat;
 			private final Int2IntOpenHashMap spriteMap = new Int2IntOpenHashMap(64, Hash.VERY_FAST_LOAD_FACTOR);
+			private final Int2IntOpenHashMap repeatingSpriteMap = new Int2IntOpenHashMap(8, Hash.VERY_FAST_LOAD_FACTOR);
 
 			@Override
 			public int index(int spriteId) {
@@ -102,6 +103,18 @@ public abstract class MaterialIndexProvider {
 					});
 				}
 			}
+
+			@Override
+			public int repeatingIndex(int spriteId) {
+				synchronized (sync) {
+					return repeatingSpriteMap.computeIfAbsent(spriteId, k -> {
+						final int i = nextIndex++;
+						final Sprite sprite = mat.texture.atlasInfo().fromId(k);
+						tex.set(i, mat.vertexShaderIndex, mat.fragmentShaderIndex, mat.shaderFlags | REPEAT_UV_SHADER_FLAG, mat.condition.index, sprite);
+						return i;
+					});
+				}
+			}
 		}
 
 		@Override
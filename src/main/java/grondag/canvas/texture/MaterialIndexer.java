@@ -18,5 +18,24 @@ package grondag.canvas.texture;
 
 @FunctionalInterface
 public interface MaterialIndexer {
+	/**
+	 * Shader flag set only for indices from {@link #repeatingIndex(int)}, not part of
+	 * material state. Must match _CV_FLAG_REPEAT_UV in flags.glsl.
+	 */
+	int REPEAT_UV_SHADER_FLAG = 1 << 11;
+
+	/** Sprites spanned by normalized texture coordinates of repeating quads. Must match _CV_REPEAT_UV_TILES. */
+	int REPEAT_UV_TILES = 16;
+
 	int index(int spriteId);
+
+	/**
+	 * Like {@link #index(int)} but the shader tiles the sprite instead of stretching it.
+	 * Normalized texture coordinates then span {@link #REPEAT_UV_TILES} sprites.
+	 * Only supported for atlas textures. Callers must not merge or scale quads of other textures.
+	 */
+	default int repeatingIndex(int spriteId) {
+		assert false : "Sprite repeat requires an atlas texture";
+		return index(spriteId);
+	}
 }
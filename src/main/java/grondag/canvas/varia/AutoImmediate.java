@@ -94,6 +94,11 @@ public class AutoImmediate extends Immediate {
 		}
 	}
 
+	/** Number of layers that have been written since the last clear, which is the number of draws needed. */
+	public int activeLayerCount() {
+		return activeConsumers.size();
+	}
+
 	public void clear() {
 		for (var buffer : activeConsumers) {
 			buffer.reset();
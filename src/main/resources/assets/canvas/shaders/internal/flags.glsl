@@ -13,6 +13,7 @@
 #define _CV_FLAG_ENABLE_FOG         8
 #define _CV_FLAG_DISABLE_SHADOW	    9
 #define _CV_FLAG_GLINT			   10
+#define _CV_FLAG_REPEAT_UV         11 // 1 if normalized texture coordinates tile the sprite - set per material index, not by material state
 
 #define _CV_CUTOUT_SHIFT 3u
 #define _CV_CUTOUT_MASK 3u
@@ -21,6 +22,10 @@
 #define _CV_CUTOUT_TENTH 2u
 #define _CV_CUTOUT_ZERO 3u
 
+// Sprites spanned by normalized texture coordinates when _CV_FLAG_REPEAT_UV is set.
+// frx_texcoord is still mapped to the sprite in atlas space, stretched over the quad; the base color is sampled tiled.
+#define _CV_REPEAT_UV_TILES 16.0
+
 #define _CV_TRANSLUCENT_CUTOUT_THRESHOLD 0.003921569
 
 #ifdef VERTEX_SHADER
@@ -12,6 +12,23 @@
   canvas:shaders/internal/shadow_main.frag
 ******************************************************/
 
+vec4 _cv_sampleBaseColor() {
+	if (_CV_GET_FLAG(_CV_FLAG_REPEAT_UV) == 1) {
+		// frx_texcoord stretches the sprite over the quad - tile it here
+		vec2 tile = frx_normalizeMappedUV(frx_texcoord) * _CV_REPEAT_UV_TILES;
+		vec2 uv = frx_mapNormalizedUV(fract(tile));
+
+		if (frx_matUnmipped == 1) {
+			return textureLod(frxs_baseColor, uv, 0.0);
+		}
+
+		// gradients come from the unwrapped coordinate so mip level doesn't jump at tile edges
+		return textureGrad(frxs_baseColor, uv, dFdx(frx_texcoord) * _CV_REPEAT_UV_TILES, dFdy(frx_texcoord) * _CV_REPEAT_UV_TILES);
+	} else {
+		return texture(frxs_baseColor, frx_texcoord, frx_matUnmipped * -4.0);
+	}
+}
+
 void _cv_startFragment() {
 	int cv_programId = _cv_fragmentProgramId();
 
@@ -24,7 +41,7 @@ void main() {
 		discard;
 	}
 #endif
-	frx_sampleColor = texture(frxs_baseColor, frx_texcoord, frx_matUnmipped * -4.0);
+	frx_sampleColor = _cv_sampleBaseColor();
 
 #ifdef _CV_FRAGMENT_COMPAT
 	compatData = frx_FragmentData(frx_sampleColor, frx_vertexColor);
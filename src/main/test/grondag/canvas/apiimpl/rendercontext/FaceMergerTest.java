@@ -0,0 +1,157 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.apiimpl.rendercontext;
+
+import static grondag.canvas.apiimpl.mesh.MeshEncodingHelper.UV_PRECISE_UNIT_VALUE;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import grondag.canvas.apiimpl.mesh.QuadViewImpl;
+import grondag.canvas.texture.MaterialIndexer;
+
+/**
+ * Checks that merged faces cover the same blocks as the unmerged mesh and
+ * that sprite coordinates sampled as the shader does match the unmerged quads.
+ */
+class FaceMergerTest {
+	@Test
+	void rectanglesCoverCellsExactly() {
+		final Random rand = new Random(42);
+		final int[] rects = new int[256];
+
+		for (int n = 0; n < 1000; ++n) {
+			final int[] rows = new int[16];
+			final int density = rand.nextInt(5);
+			int cellCount = 0;
+
+			for (int z = 0; z < 16; ++z) {
+				for (int x = 0; x < 16; ++x) {
+					if (density == 4 || rand.nextInt(4) < density) {
+						rows[z] |= 1 << x;
+						++cellCount;
+					}
+				}
+			}
+
+			final int[] expected = rows.clone();
+			final int[] covered = new int[16];
+			final int rectCount = FaceMerger.mergeRectangles(rows, rects);
+
+			assert rectCount <= cellCount;
+			assert density != 4 || rectCount == 1;
+
+			for (int r = 0; r < rectCount; ++r) {
+				final int rect = rects[r];
+				final int x0 = FaceMerger.rectFirst(rect);
+				final int z0 = FaceMerger.rectSecond(rect);
+				final int width = FaceMerger.rectWidth(rect);
+				final int depth = FaceMerger.rectHeight(rect);
+
+				assert x0 + width <= 16 && z0 + depth <= 16;
+
+				for (int z = z0; z < z0 + depth; ++z) {
+					final int mask = ((1 << width) - 1) << x0;
+					assert (covered[z] & mask) == 0 : "overlapping rectangles";
+					covered[z] |= mask;
+				}
+			}
+
+			for (int z = 0; z < 16; ++z) {
+				assert covered[z] == expected[z];
+				assert rows[z] == 0;
+			}
+		}
+	}
+
+	/**
+	 * For every way a sprite can be flipped or rotated on a block face, samples the
+	 * merged quad at many points as the shader would: interpolate the encoded coordinate,
+	 * scale by tile count and take the fraction. Result must match the unmerged quad
+	 * of the block containing the point.
+	 */
+	@Test
+	void mergedSpritesMatchUnmerged() {
+		final Random rand = new Random(1234);
+
+		for (int mapping = 0; mapping < 8; ++mapping) {
+			final boolean uFollowsX = (mapping & 1) == 0;
+			final boolean flipU = (mapping & 2) != 0;
+			final boolean flipV = (mapping & 4) != 0;
+
+			for (int n = 0; n < 50; ++n) {
+				final int width = 1 + rand.nextInt(16);
+				final int depth = 1 + rand.nextInt(16);
+				final int uExtent = uFollowsX ? width : depth;
+				final int vExtent = uFollowsX ? depth : width;
+
+				// encoded merged coordinates at corners, indexed by x | z << 1
+				final float[] u = new float[4];
+				final float[] v = new float[4];
+
+				for (int corner = 0; corner < 4; ++corner) {
+					final int cx = corner & 1;
+					final int cz = corner >> 1;
+					u[corner] = encode(FaceMerger.mergedSprite(cellSprite(uFollowsX ? cx : cz, flipU), uExtent));
+					v[corner] = encode(FaceMerger.mergedSprite(cellSprite(uFollowsX ? cz : cx, flipV), vExtent));
+				}
+
+				for (int s = 0; s < 200; ++s) {
+					final float px = rand.nextFloat() * width;
+					final float pz = rand.nextFloat() * depth;
+					final float fx = px - (int) px;
+					final float fz = pz - (int) pz;
+
+					final float expectedU = unmerged(uFollowsX ? fx : fz, flipU);
+					final float expectedV = unmerged(uFollowsX ? fz : fx, flipV);
+					final float actualU = sample(u, px / width, pz / depth);
+					final float actualV = sample(v, px / width, pz / depth);
+
+					assert wrappedDistance(expectedU, actualU) < 0.002f : "u mismatch " + expectedU + " " + actualU;
+					assert wrappedDistance(expectedV, actualV) < 0.002f : "v mismatch " + expectedV + " " + actualV;
+				}
+			}
+		}
+	}
+
+	private static int cellSprite(int bit, boolean flip) {
+		return (bit == 1) != flip ? UV_PRECISE_UNIT_VALUE : 0;
+	}
+
+	private static float unmerged(float fraction, boolean flip) {
+		return flip ? 1 - fraction : fraction;
+	}
+
+	/** Vertex buffer value as normalized in the shader. */
+	private static float encode(int preciseSprite) {
+		return QuadViewImpl.roundSpriteData(preciseSprite) / 65535f;
+	}
+
+	private static float sample(float[] corners, float x, float z) {
+		final float low = corners[0] + (corners[1] - corners[0]) * x;
+		final float high = corners[2] + (corners[3] - corners[2]) * x;
+		final float tile = (low + (high - low) * z) * MaterialIndexer.REPEAT_UV_TILES;
+		return tile - (float) Math.floor(tile);
+	}
+
+	/** Fraction sampled at a tile edge may wrap to either side. */
+	private static float wrappedDistance(float a, float b) {
+		final float d = Math.abs(a - b);
+		return Math.min(d, 1 - d);
+	}
+}
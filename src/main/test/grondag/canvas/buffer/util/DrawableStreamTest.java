@@ -0,0 +1,87 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.buffer.util;
+
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.ThreadMXBean;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.junit.jupiter.api.Test;
+
+import grondag.canvas.buffer.format.CanvasVertexFormats;
+import grondag.canvas.buffer.input.ArrayVertexCollector;
+
+class DrawableStreamTest {
+	@Test
+	void capturedStatesMatchCollectors() {
+		final DrawableStream stream = new DrawableStream();
+		final ObjectArrayList<ArrayVertexCollector> drawList = drawList(40);
+
+		final int bytes = stream.captureStates(drawList);
+		int expected = 0;
+
+		for (final ArrayVertexCollector collector : drawList) {
+			expected += collector.byteSize();
+		}
+
+		assert bytes == expected;
+		stream.close();
+	}
+
+	@Test
+	void steadyStateDoesNotAllocate() {
+		final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			return;
+		}
+
+		final DrawableStream stream = new DrawableStream();
+		final ObjectArrayList<ArrayVertexCollector> drawList = drawList(40);
+
+		// first use grows the arrays
+		for (int i = 0; i < 1000; ++i) {
+			stream.captureStates(drawList);
+			stream.close();
+		}
+
+		final long before = threads.getCurrentThreadAllocatedBytes();
+
+		for (int i = 0; i < 100000; ++i) {
+			stream.captureStates(drawList);
+			stream.close();
+		}
+
+		final long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+		// per-use arrays would be several megabytes here; allow for incidental allocation by the measurement
+		assert allocated < 4096 : allocated + " bytes allocated";
+	}
+
+	private static ObjectArrayList<ArrayVertexCollector> drawList(int size) {
+		final ObjectArrayList<ArrayVertexCollector> result = new ObjectArrayList<>();
+
+		for (int i = 0; i < size; ++i) {
+			// render state isn't needed to capture counts
+			final ArrayVertexCollector collector = new ArrayVertexCollector(null, false);
+			collector.allocate(CanvasVertexFormats.STANDARD_QUAD_STRIDE * (i + 1));
+			result.add(collector);
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.light;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that face data sharing a canonical lightmap render the same pixels once
+ * quad coordinates are mapped into the canonical orientation.
+ */
+class LightmapHdTest {
+	@Test
+	void mirrorsShareKey() {
+		final Random rand = new Random(7);
+		final AoFaceData face = randomFace(rand);
+		final AoFaceData mirror = face.clone();
+		mirror.left = face.right;
+		mirror.right = face.left;
+		mirror.topLeft = face.topRight;
+		mirror.topRight = face.topLeft;
+		mirror.bottomLeft = face.bottomRight;
+		mirror.bottomRight = face.bottomLeft;
+		mirror.aoLeft = face.aoRight;
+		mirror.aoRight = face.aoLeft;
+		mirror.aoTopLeft = face.aoTopRight;
+		mirror.aoTopRight = face.aoTopLeft;
+		mirror.aoBottomLeft = face.aoBottomRight;
+		mirror.aoBottomRight = face.aoBottomLeft;
+
+		final AoFaceData key = new AoFaceData();
+		final AoFaceData mirrorKey = new AoFaceData();
+		final int[] values = new int[18];
+		LightmapHd.canonicalize(face, values, key);
+		LightmapHd.canonicalize(mirror, values, mirrorKey);
+
+		assert key.equals(mirrorKey);
+		assert key.hashCode() == mirrorKey.hashCode();
+	}
+
+	@Test
+	void canonicalPixelsMatch() {
+		final Random rand = new Random(42);
+		final LightmapHd.Scratch scratch = new LightmapHd.Scratch();
+		final AoFaceData key = new AoFaceData();
+		final int[] original = new int[LightmapSizer.lightmapPixels];
+		final int max = LightmapSizer.paddedSize - 1;
+
+		for (int n = 0; n < 10000; ++n) {
+			final AoFaceData face = randomFace(rand);
+			LightmapHd.computePixels(face, scratch);
+			System.arraycopy(scratch.light, 0, original, 0, original.length);
+
+			final int uvTransform = LightmapHd.inverse(LightmapHd.canonicalize(face, scratch.values, key));
+			LightmapHd.computePixels(key, scratch);
+
+			for (int v = 0; v <= max; ++v) {
+				for (int u = 0; u <= max; ++u) {
+					final int cu = (int) LightmapHd.transformU(uvTransform, u, v, max);
+					final int cv = (int) LightmapHd.transformV(uvTransform, u, v, max);
+					final int expected = original[LightmapHd.lightIndex(u, v)];
+					final int actual = scratch.light[LightmapHd.lightIndex(cu, cv)];
+
+					// summation order differs between orientations so allow rounding differences
+					for (int shift = 0; shift < 32; shift += 8) {
+						assert Math.abs(((expected >>> shift) & 0xFF) - ((actual >>> shift) & 0xFF)) <= 1;
+					}
+				}
+			}
+		}
+	}
+
+	private static AoFaceData randomFace(Random rand) {
+		final AoFaceData result = new AoFaceData();
+		result.top = randomLight(rand);
+		result.bottom = randomLight(rand);
+		result.left = randomLight(rand);
+		result.right = randomLight(rand);
+		result.topLeft = randomLight(rand);
+		result.topRight = randomLight(rand);
+		result.bottomLeft = randomLight(rand);
+		result.bottomRight = randomLight(rand);
+		result.center = rand.nextInt(16) * 16 | (rand.nextInt(16) * 16) << 16;
+		result.aoTop = randomAo(rand);
+		result.aoBottom = randomAo(rand);
+		result.aoLeft = randomAo(rand);
+		result.aoRight = randomAo(rand);
+		result.aoTopLeft = randomAo(rand);
+		result.aoTopRight = randomAo(rand);
+		result.aoBottomLeft = randomAo(rand);
+		result.aoBottomRight = randomAo(rand);
+		result.aoCenter = randomAo(rand);
+		result.updateHash();
+		return result;
+	}
+
+	private static int randomLight(Random rand) {
+		return rand.nextInt(4) == 0 ? AoFaceData.OPAQUE : rand.nextInt(16) * 16 | (rand.nextInt(16) * 16) << 16;
+	}
+
+	private static int randomAo(Random rand) {
+		return rand.nextInt(3) == 0 ? 255 : rand.nextInt(256);
+	}
+}
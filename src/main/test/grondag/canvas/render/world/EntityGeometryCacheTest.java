@@ -0,0 +1,38 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.render.world;
+
+import org.junit.jupiter.api.Test;
+
+class EntityGeometryCacheTest {
+	@Test
+	void intervalGrowsWithDistance() {
+		assert EntityGeometryCache.frameInterval(10, 1, 0, 4) == 1;
+		assert EntityGeometryCache.frameInterval(63, 1, 64, 4) == 1;
+		assert EntityGeometryCache.frameInterval(64, 1, 64, 4) == 2;
+		assert EntityGeometryCache.frameInterval(128, 1, 64, 4) == 3;
+		assert EntityGeometryCache.frameInterval(200, 1, 64, 4) == 4;
+		assert EntityGeometryCache.frameInterval(1000, 1, 64, 4) == 4;
+	}
+
+	@Test
+	void largeEntitiesAlwaysRender() {
+		// ender dragon sized
+		assert EntityGeometryCache.frameInterval(100, 16, 64, 4) == 1;
+		assert EntityGeometryCache.frameInterval(200, 16, 64, 4) == 4;
+	}
+}
@@ -0,0 +1,319 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.occlusion.camera;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import grondag.bitraster.PackedBox;
+
+/**
+ * Checks occluder ranking and budget, checks budgeted culling against an unbudgeted
+ * reference, and prints an accuracy-vs-cost report for seeded dense scenes, replayed
+ * near-to-far as the terrain iterator would.
+ */
+class OccluderSelectorTest {
+	private static final int SCENE_COUNT = 8;
+	private static final int SCENE_RADIUS = 6;
+	private static final int[] BUDGETS = {0, 3200, 1600, 800, 400, 200};
+	/** Smaller scenes for the ray-cast culling check. */
+	private static final int CULL_SCENE_COUNT = 4;
+	private static final int CULL_SCENE_RADIUS = 4;
+
+	@Test
+	void nearerAndLargerRanksHigher() {
+		final int small = PackedBox.pack(0, 0, 0, 2, 2, 2, PackedBox.RANGE_EXTREME);
+		final int large = PackedBox.pack(0, 0, 0, 8, 8, 8, PackedBox.RANGE_EXTREME);
+
+		assert OccluderSelector.projectedArea(large, 16, 0, 0) > OccluderSelector.projectedArea(small, 16, 0, 0);
+		assert OccluderSelector.projectedArea(small, 16, 0, 0) > OccluderSelector.projectedArea(small, 64, 0, 0);
+	}
+
+	@Test
+	void selectionIsOrderedAndBudgeted() {
+		final Random rand = new Random(42);
+		final OccluderSelector selector = new OccluderSelector();
+		final int budget = 20;
+		int drawn = 0;
+
+		selector.startPass(budget);
+
+		for (int n = 0; n < 50; ++n) {
+			final int[] data = randomRegion(rand);
+			final float ox = rand.nextInt(9) * 16 - 64;
+			final float oz = rand.nextInt(9) * 16 - 64;
+			selector.select(data, PackedBox.RANGE_NEAR, ox, -8, oz);
+
+			float lastArea = Float.MAX_VALUE;
+
+			for (int i = 0; i < selector.selectedCount(); ++i) {
+				final float area = OccluderSelector.projectedArea(selector.selected(i), ox, -8, oz);
+				assert area <= lastArea;
+				assert area >= OccluderSelector.MIN_PROJECTED_AREA;
+				lastArea = area;
+			}
+
+			drawn += selector.selectedCount();
+		}
+
+		assert drawn <= budget;
+	}
+
+	/**
+	 * Regions culled with a budget must also be culled by the unbudgeted reference (no false culls)
+	 * and most regions the reference culls must still be culled. Loss bounds have margin over the
+	 * worst case seen across twenty seeds (9.5% at 1600, 28.8% at 800).
+	 */
+	@Test
+	void budgetedCullingMatchesReference() {
+		final Random rand = new Random(1234);
+		final int[][][] scenes = new int[CULL_SCENE_COUNT][][];
+
+		for (int s = 0; s < CULL_SCENE_COUNT; ++s) {
+			scenes[s] = randomScene(rand, CULL_SCENE_RADIUS, true);
+		}
+
+		final boolean[][] reference = cull(scenes, 0);
+		checkCulling(reference, cull(scenes, 3200), 0.15f);
+		checkCulling(reference, cull(scenes, 1600), 0.15f);
+		checkCulling(reference, cull(scenes, 800), 0.35f);
+		checkCulling(reference, cull(scenes, 200), 1f);
+	}
+
+	private static void checkCulling(boolean[][] reference, boolean[][] culled, float maxLoss) {
+		int referenceCount = 0;
+		int lost = 0;
+
+		for (int s = 0; s < reference.length; ++s) {
+			for (int r = 0; r < reference[s].length; ++r) {
+				assert reference[s][r] || !culled[s][r] : "Budgeted occluders culled a visible region";
+
+				if (reference[s][r]) {
+					++referenceCount;
+
+					if (!culled[s][r]) {
+						++lost;
+					}
+				}
+			}
+		}
+
+		assert referenceCount > 0;
+		assert lost <= referenceCount * maxLoss : String.format("Lost %d of %d culled regions", lost, referenceCount);
+	}
+
+	/**
+	 * Reference occluder: each region is tested against boxes drawn by nearer regions,
+	 * then its selected boxes are drawn. A region is culled when every ray from the camera
+	 * to a 3x3x3 grid of points on its bounds passes through a drawn box.
+	 *
+	 * @return culled flag for each region of each scene
+	 */
+	private static boolean[][] cull(int[][][] scenes, int budget) {
+		final OccluderSelector selector = new OccluderSelector();
+		final boolean[][] result = new boolean[scenes.length][];
+
+		for (int s = 0; s < scenes.length; ++s) {
+			final int[][] scene = scenes[s];
+			final boolean[] culled = new boolean[scene.length];
+			float[] occluders = new float[600];
+			int occluderCount = 0;
+			selector.startPass(budget);
+
+			for (int r = 0; r < scene.length; ++r) {
+				final int[] region = scene[r];
+				final float ox = region[0];
+				final float oy = region[1];
+				final float oz = region[2];
+				culled[r] = isOccluded(occluders, occluderCount, ox, oy, oz);
+				selector.select(Arrays.copyOfRange(region, 3, region.length), PackedBox.RANGE_NEAR, ox, oy, oz);
+
+				for (int i = 0; i < selector.selectedCount(); ++i) {
+					if (occluderCount + 6 > occluders.length) {
+						occluders = Arrays.copyOf(occluders, occluders.length * 2);
+					}
+
+					final int box = selector.selected(i);
+					occluders[occluderCount++] = ox + PackedBox.x0(box);
+					occluders[occluderCount++] = oy + PackedBox.y0(box);
+					occluders[occluderCount++] = oz + PackedBox.z0(box);
+					occluders[occluderCount++] = ox + PackedBox.x1(box);
+					occluders[occluderCount++] = oy + PackedBox.y1(box);
+					occluders[occluderCount++] = oz + PackedBox.z1(box);
+				}
+			}
+
+			result[s] = culled;
+		}
+
+		return result;
+	}
+
+	private static boolean isOccluded(float[] occluders, int occluderCount, float ox, float oy, float oz) {
+		// points are inset slightly so rays don't graze the faces of adjacent regions
+		for (int x = 0; x <= 2; ++x) {
+			for (int y = 0; y <= 2; ++y) {
+				for (int z = 0; z <= 2; ++z) {
+					if (!isRayBlocked(occluders, occluderCount, ox + 0.01f + x * 7.99f, oy + 0.01f + y * 7.99f, oz + 0.01f + z * 7.99f)) {
+						return false;
+					}
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * True if the segment from the camera at the origin to the given point enters a box before
+	 * reaching the point. Boxes that contain the camera are ignored.
+	 */
+	private static boolean isRayBlocked(float[] occluders, int occluderCount, float px, float py, float pz) {
+		for (int i = 0; i < occluderCount; i += 6) {
+			float tMin = Float.NEGATIVE_INFINITY;
+			float tMax = Float.POSITIVE_INFINITY;
+			boolean miss = false;
+
+			for (int axis = 0; axis < 3; ++axis) {
+				final float d = axis == 0 ? px : axis == 1 ? py : pz;
+				final float lo = occluders[i + axis];
+				final float hi = occluders[i + 3 + axis];
+
+				if (d == 0) {
+					if (lo > 0 || hi < 0) {
+						miss = true;
+						break;
+					}
+				} else {
+					final float t0 = lo / d;
+					final float t1 = hi / d;
+					tMin = Math.max(tMin, Math.min(t0, t1));
+					tMax = Math.min(tMax, Math.max(t0, t1));
+				}
+			}
+
+			if (!miss && tMin > 0 && tMin < tMax && tMin < 1) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	@Test
+	void accuracyReport() {
+		final Random rand = new Random(1234);
+		final int[][][] scenes = new int[SCENE_COUNT][][];
+
+		for (int s = 0; s < SCENE_COUNT; ++s) {
+			scenes[s] = randomScene(rand, SCENE_RADIUS, false);
+		}
+
+		final OccluderSelector selector = new OccluderSelector();
+		final double[] totalArea = new double[SCENE_COUNT];
+
+		System.out.println("Budget   Boxes drawn   Area retained   Select ns/region");
+
+		for (final int budget : BUDGETS) {
+			long boxes = 0;
+			double retained = 0;
+			long nanos = 0;
+			int regionCount = 0;
+
+			for (int s = 0; s < SCENE_COUNT; ++s) {
+				final int[][] scene = scenes[s];
+				double sceneArea = 0;
+				selector.startPass(budget);
+
+				for (final int[] region : scene) {
+					final float ox = region[0];
+					final float oy = region[1];
+					final float oz = region[2];
+					final int[] data = region.length > 3 ? Arrays.copyOfRange(region, 3, region.length) : new int[0];
+
+					final long start = System.nanoTime();
+					selector.select(data, PackedBox.RANGE_NEAR, ox, oy, oz);
+					nanos += System.nanoTime() - start;
+					++regionCount;
+
+					for (int i = 0; i < selector.selectedCount(); ++i) {
+						sceneArea += OccluderSelector.projectedArea(selector.selected(i), ox, oy, oz);
+					}
+
+					boxes += selector.selectedCount();
+				}
+
+				if (budget == 0) {
+					totalArea[s] = sceneArea;
+				}
+
+				retained += totalArea[s] == 0 ? 1 : sceneArea / totalArea[s];
+			}
+
+			System.out.println(String.format("%6d   %11d   %12.1f%%   %16d", budget, boxes / SCENE_COUNT, retained * 100 / SCENE_COUNT, nanos / regionCount));
+		}
+	}
+
+	/**
+	 * Regions in a cube around the camera, sorted near-to-far.
+	 * Each entry is region origin relative to camera followed by occlusion data.
+	 * When {@code withSolids} is true about one region in four is fully solid.
+	 */
+	private static int[][] randomScene(Random rand, int radius, boolean withSolids) {
+		final int diameter = radius * 2 + 1;
+		final int[][] result = new int[diameter * diameter * 3][];
+		int n = 0;
+
+		for (int x = -radius; x <= radius; ++x) {
+			for (int z = -radius; z <= radius; ++z) {
+				for (int y = -1; y <= 1; ++y) {
+					final int[] data = withSolids && rand.nextInt(4) == 0 ? new int[] {PackedBox.FULL_BOX, PackedBox.FULL_BOX} : randomRegion(rand);
+					final int[] region = new int[data.length + 3];
+					region[0] = x * 16 - 8;
+					region[1] = y * 16 - 8;
+					region[2] = z * 16 - 8;
+					System.arraycopy(data, 0, region, 3, data.length);
+					result[n++] = region;
+				}
+			}
+		}
+
+		Arrays.sort(result, (a, b) -> Integer.compare(a[0] * a[0] + a[1] * a[1] + a[2] * a[2], b[0] * b[0] + b[1] * b[1] + b[2] * b[2]));
+		return result;
+	}
+
+	/**
+	 * Occlusion data with bounds plus a mix of a few large and many small boxes, typical of dense builds.
+	 */
+	private static int[] randomRegion(Random rand) {
+		final int count = 1 + rand.nextInt(40);
+		final int[] result = new int[count + 1];
+		result[0] = PackedBox.FULL_BOX;
+
+		for (int i = 1; i <= count; ++i) {
+			final int size = i <= 2 ? 8 : 1 + rand.nextInt(4);
+			final int x0 = rand.nextInt(17 - size);
+			final int y0 = rand.nextInt(17 - size);
+			final int z0 = rand.nextInt(17 - size);
+			result[i] = PackedBox.pack(x0, y0, z0, x0 + size, y0 + size, z0 + 1 + rand.nextInt(size), PackedBox.RANGE_EXTREME);
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.occlusion.geometry;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares word-parallel fill against the queue-based fill it replaced.
+ */
+class RegionFloodFillTest {
+	private static final int WORDS = RegionFloodFill.WORD_COUNT;
+	private static final int SAMPLES = 2000;
+	private static final int TIMING_ROUNDS = 20000;
+
+	private final Random rand = new Random(42);
+	private final long[] open = new long[WORDS];
+	private final long[] seed = new long[WORDS];
+	private final long[] expected = new long[WORDS];
+	private final long[] actual = new long[WORDS];
+	private final long[] dilated = new long[WORDS];
+	private final IntArrayFIFOQueue queue = new IntArrayFIFOQueue();
+
+	@Test
+	void matchesQueueFill() {
+		for (int n = 0; n < SAMPLES; ++n) {
+			randomize(n % 10 * 0.1f);
+			queueFill();
+			bitFill();
+			assert Arrays.equals(expected, actual);
+		}
+	}
+
+	@Test
+	void dilateMatchesNeighbors() {
+		for (int n = 0; n < SAMPLES; ++n) {
+			randomize(0.95f);
+			RegionFloodFill.dilate(seed, dilated);
+
+			for (int i = 0; i < 4096; ++i) {
+				final boolean hit = isSet(seed, i) || neighborSet(seed, i);
+				assert hit == isSet(dilated, i);
+			}
+		}
+	}
+
+	@Test
+	void timing() {
+		randomize(0.3f);
+
+		long start = System.nanoTime();
+
+		for (int n = 0; n < TIMING_ROUNDS; ++n) {
+			queueFill();
+		}
+
+		final long queueNanos = System.nanoTime() - start;
+		start = System.nanoTime();
+
+		for (int n = 0; n < TIMING_ROUNDS; ++n) {
+			bitFill();
+		}
+
+		final long bitNanos = System.nanoTime() - start;
+
+		System.out.println("Queue fill: " + queueNanos / TIMING_ROUNDS + " ns  Bitwise fill: " + bitNanos / TIMING_ROUNDS + " ns");
+	}
+
+	/**
+	 * Random closed positions at the given density with seeds on the region surface.
+	 */
+	private void randomize(float closedChance) {
+		Arrays.fill(open, 0);
+		Arrays.fill(seed, 0);
+
+		for (int i = 0; i < 4096; ++i) {
+			final boolean isOpen = rand.nextFloat() >= closedChance;
+
+			if (isOpen) {
+				open[i >> 6] |= 1L << (i & 63);
+			}
+
+			final int x = i & 15;
+			final int y = (i >> 4) & 15;
+			final int z = (i >> 8) & 15;
+			final boolean surface = x == 0 || x == 15 || y == 0 || y == 15 || z == 0 || z == 15;
+
+			if (surface && isOpen && rand.nextInt(8) == 0) {
+				seed[i >> 6] |= 1L << (i & 63);
+			}
+		}
+	}
+
+	private void bitFill() {
+		System.arraycopy(seed, 0, actual, 0, WORDS);
+		RegionFloodFill.fill(actual, open);
+	}
+
+	private void queueFill() {
+		System.arraycopy(seed, 0, expected, 0, WORDS);
+		queue.clear();
+
+		for (int i = 0; i < 4096; ++i) {
+			if (isSet(seed, i)) {
+				queue.enqueue(i);
+			}
+		}
+
+		while (!queue.isEmpty()) {
+			final int i = queue.dequeueInt();
+			final int x = i & 15;
+			final int y = (i >> 4) & 15;
+			final int z = (i >> 8) & 15;
+
+			if (x > 0) enqueue(i - 1);
+			if (x < 15) enqueue(i + 1);
+			if (y > 0) enqueue(i - 0x10);
+			if (y < 15) enqueue(i + 0x10);
+			if (z > 0) enqueue(i - 0x100);
+			if (z < 15) enqueue(i + 0x100);
+		}
+	}
+
+	private void enqueue(int i) {
+		if (isSet(open, i) && !isSet(expected, i)) {
+			expected[i >> 6] |= 1L << (i & 63);
+			queue.enqueue(i);
+		}
+	}
+
+	private static boolean neighborSet(long[] words, int i) {
+		final int x = i & 15;
+		final int y = (i >> 4) & 15;
+		final int z = (i >> 8) & 15;
+
+		return (x > 0 && isSet(words, i - 1)) || (x < 15 && isSet(words, i + 1))
+			|| (y > 0 && isSet(words, i - 0x10)) || (y < 15 && isSet(words, i + 0x10))
+			|| (z > 0 && isSet(words, i - 0x100)) || (z < 15 && isSet(words, i + 0x100));
+	}
+
+	private static boolean isSet(long[] words, int i) {
+		return (words[i >> 6] & (1L << (i & 63))) != 0;
+	}
+}
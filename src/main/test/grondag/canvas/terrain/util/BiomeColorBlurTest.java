@@ -0,0 +1,131 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the running-sum blur against blending each column on its own, over random biome
+ * grids spanning a chunk and its eight neighbors, for every supported blend radius.
+ */
+class BiomeColorBlurTest {
+	/** Columns on a side of the three-by-three chunk grid. */
+	private static final int GRID = 48;
+
+	@Test
+	void matchesPerColumnBlend() {
+		final Random rand = new Random(36);
+
+		for (int n = 0; n < 8; ++n) {
+			final int[] grid = randomBiomeGrid(rand);
+
+			for (int radius = 0; radius <= ChunkColorCache.MAX_BLEND_RADIUS; ++radius) {
+				checkBlend(grid, radius);
+			}
+		}
+	}
+
+	@Test
+	void saturatedColorsDoNotOverflow() {
+		final int[] grid = new int[GRID * GRID];
+		Arrays.fill(grid, 0xFFFFFF);
+		checkBlend(grid, ChunkColorCache.MAX_BLEND_RADIUS);
+
+		for (int i = 0; i < grid.length; ++i) {
+			grid[i] = ((i % GRID) + (i / GRID) & 1) == 0 ? 0xFFFFFF : 0;
+		}
+
+		for (int radius = 0; radius <= ChunkColorCache.MAX_BLEND_RADIUS; ++radius) {
+			checkBlend(grid, radius);
+		}
+	}
+
+	/**
+	 * Blurs the center chunk of the grid and compares every column, including those at
+	 * chunk edges whose squares reach into neighbor chunks, with a direct sum.
+	 */
+	private static void checkBlend(int[] grid, int radius) {
+		final int span = 16 + radius * 2;
+		final int[] colors = new int[span * span];
+
+		for (int sz = 0; sz < span; ++sz) {
+			for (int sx = 0; sx < span; ++sx) {
+				colors[sx + sz * span] = grid[16 - radius + sx + (16 - radius + sz) * GRID];
+			}
+		}
+
+		final int[] result = BiomeColorBlur.blend(radius, colors);
+
+		for (int z = 0; z < 16; ++z) {
+			for (int x = 0; x < 16; ++x) {
+				final int expected = blendColumn(grid, 16 + x, 16 + z, radius);
+				assert result[x | (z << 4)] == expected : String.format("radius %d at %d, %d: %06X != %06X", radius, x, z, result[x | (z << 4)], expected);
+			}
+		}
+	}
+
+	/** Same sums and rounding as blending a single column in {@link ChunkColorCache}. */
+	private static int blendColumn(int[] grid, int xIn, int zIn, int radius) {
+		final int sampleCount = (radius * 2 + 1) * (radius * 2 + 1);
+		int r = 0;
+		int g = 0;
+		int b = 0;
+
+		for (int x = xIn - radius; x <= xIn + radius; x++) {
+			for (int z = zIn - radius; z <= zIn + radius; z++) {
+				final int color = grid[x + z * GRID];
+				g += (color >> 8) & 255;
+				r += (color >> 16) & 255;
+				b += color & 255;
+			}
+		}
+
+		return (r / sampleCount & 255) << 16 | (g / sampleCount & 255) << 8 | b / sampleCount & 255;
+	}
+
+	/**
+	 * Base colors with biomes chosen per four-block cell, as biomes are stored, and from
+	 * a small palette so that neighboring cells often match and borders are sharp.
+	 */
+	private static int[] randomBiomeGrid(Random rand) {
+		final int[] palette = new int[2 + rand.nextInt(6)];
+
+		for (int i = 0; i < palette.length; ++i) {
+			palette[i] = rand.nextInt(0x1000000);
+		}
+
+		final int cells = GRID / 4;
+		final int[] biomes = new int[cells * cells];
+
+		for (int i = 0; i < biomes.length; ++i) {
+			biomes[i] = palette[rand.nextInt(palette.length)];
+		}
+
+		final int[] result = new int[GRID * GRID];
+
+		for (int z = 0; z < GRID; ++z) {
+			for (int x = 0; x < GRID; ++x) {
+				result[x + z * GRID] = biomes[(x >> 2) + (z >> 2) * cells];
+			}
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.fluid.FluidState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.BlockView;
+import net.minecraft.world.EmptyBlockView;
+
+/**
+ * Compares {@link FaceCullTable} with vanilla for every block state and face against every
+ * distinct neighbor.  Neighbors with the same opacity and culling faces take the same path
+ * in both implementations, apart from {@link BlockState#isSideInvisible(BlockState, Direction)}
+ * which both call directly, so one of each is enough and keeps run time reasonable.
+ */
+class FaceCullTableTest {
+	@Test
+	void matchesVanilla() {
+		SharedConstants.createGameVersion();
+		Bootstrap.initialize();
+
+		final int stateCount = Block.STATE_IDS.size();
+		final BlockState[] states = new BlockState[stateCount];
+
+		for (int i = 0; i < stateCount; ++i) {
+			states[i] = Block.STATE_IDS.get(i);
+		}
+
+		final BlockState[] neighbors = distinctNeighbors(states);
+		final PairView view = new PairView();
+		final BlockPos pos = BlockPos.ORIGIN;
+		long mismatches = 0;
+
+		for (final Direction face : Direction.values()) {
+			final BlockPos neighborPos = pos.offset(face);
+
+			for (final BlockState state : states) {
+				final long info = FaceCullTable.info(state);
+				view.state = state;
+
+				for (final BlockState neighbor : neighbors) {
+					view.neighbor = neighbor;
+					final boolean expected = Block.shouldDrawSide(state, view, pos, face, neighborPos);
+					final boolean actual = FaceCullTable.shouldDrawSide(state, info, neighbor, FaceCullTable.info(neighbor), face, view, pos, neighborPos);
+
+					if (expected != actual) {
+						if (mismatches++ < 20) {
+							System.out.println("Mismatch: " + state + " " + face + " " + neighbor + " expected " + expected);
+						}
+					}
+				}
+			}
+		}
+
+		assert mismatches == 0 : mismatches + " mismatches";
+	}
+
+	private static BlockState[] distinctNeighbors(BlockState[] states) {
+		final HashSet<List<Object>> keys = new HashSet<>();
+		final ArrayList<BlockState> result = new ArrayList<>();
+
+		for (final BlockState state : states) {
+			final List<Object> key = new ArrayList<>();
+			key.add(state.isOpaque());
+
+			if (state.getBlock().hasDynamicBounds()) {
+				key.add(state);
+			} else {
+				// shapes without dynamic bounds are cached instances, so identity is meaningful
+				for (final Direction face : Direction.values()) {
+					key.add(state.getCullingFace(EmptyBlockView.INSTANCE, BlockPos.ORIGIN, face));
+				}
+			}
+
+			if (keys.add(key)) {
+				result.add(state);
+			}
+		}
+
+		return result.toArray(new BlockState[result.size()]);
+	}
+
+	/** Holds a block state at the origin and another at every other position. */
+	private static class PairView implements BlockView {
+		BlockState state;
+		BlockState neighbor;
+
+		@Override
+		public @Nullable BlockEntity getBlockEntity(BlockPos pos) {
+			return null;
+		}
+
+		@Override
+		public BlockState getBlockState(BlockPos pos) {
+			return pos.equals(BlockPos.ORIGIN) ? state : neighbor;
+		}
+
+		@Override
+		public FluidState getFluidState(BlockPos pos) {
+			return getBlockState(pos).getFluidState();
+		}
+
+		@Override
+		public int getHeight() {
+			return 256;
+		}
+
+		@Override
+		public int getBottomY() {
+			return 0;
+		}
+	}
+}
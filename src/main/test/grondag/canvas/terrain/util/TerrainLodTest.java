@@ -0,0 +1,55 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.util;
+
+import org.junit.jupiter.api.Test;
+
+class TerrainLodTest {
+	@Test
+	void levelsDoubleWithDistance() {
+		assert TerrainLod.levelAt(7.9f, 8) == 0;
+		assert TerrainLod.levelAt(8f, 8) == 1;
+		assert TerrainLod.levelAt(16f, 8) == 2;
+		assert TerrainLod.levelAt(32f, 8) == 3;
+		assert TerrainLod.levelAt(1000f, 8) == TerrainLod.MAX_LEVEL;
+		assert TerrainLod.level(1000 * 1000, 0, 0) == 0;
+	}
+
+	@Test
+	void levelChangesOnlyPastHysteresis() {
+		// just past the boundary keeps full detail, and just inside keeps reduced detail
+		assert TerrainLod.level(sq(8.5f), 0, 8) == 0;
+		assert TerrainLod.level(sq(7.5f), 1, 8) == 1;
+
+		assert TerrainLod.level(sq(9f), 0, 8) == 1;
+		assert TerrainLod.level(sq(6.5f), 1, 8) == 0;
+
+		// large camera moves skip levels
+		assert TerrainLod.level(sq(40f), 0, 8) == 3;
+		assert TerrainLod.level(sq(3f), 3, 8) == 0;
+
+		// stable anywhere once selected
+		for (int d = 0; d < 50; ++d) {
+			final int level = TerrainLod.level(d * d, 0, 8);
+			assert TerrainLod.level(d * d, level, 8) == level;
+		}
+	}
+
+	private static int sq(float chunkDistance) {
+		return Math.round(chunkDistance * chunkDistance);
+	}
+}